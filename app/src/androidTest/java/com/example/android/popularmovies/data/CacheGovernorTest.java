@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.android.popularmovies.model.MovieDetails;
+import com.example.android.popularmovies.model.Review;
+import com.example.android.popularmovies.model.ReviewResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented tests of {@link CacheGovernor} against an in-memory {@link MovieDatabase}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CacheGovernorTest {
+
+    private static final int MOVIE_COUNT = 40;
+    /** The size of the review of each cached movie, so that a movie spans several pages */
+    private static final int REVIEW_CHARS = 16 * 1024;
+    /** The number of movies the budget is short of */
+    private static final int MOVIES_OVER_BUDGET = 10;
+
+    private Context mContext;
+    private MovieDatabase mDatabase;
+    private CachedDetailsDao mCachedDetailsDao;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mDatabase = Room.inMemoryDatabaseBuilder(mContext, MovieDatabase.class).build();
+        mCachedDetailsDao = mDatabase.cachedDetailsDao();
+
+        char[] content = new char[REVIEW_CHARS];
+        Arrays.fill(content, 'a');
+        for (int movieId = 1; movieId <= MOVIE_COUNT; movieId++) {
+            Review review = new Review();
+            review.setId("review" + movieId);
+            review.setContent(new String(content));
+            ReviewResponse reviewResponse = new ReviewResponse();
+            reviewResponse.setReviewResults(Collections.singletonList(review));
+            MovieDetails movieDetails = new MovieDetails();
+            movieDetails.setReviews(reviewResponse);
+            // The movie IDs are also the order the movies were last viewed in
+            mCachedDetailsDao.replaceMovieDetails(movieId, movieDetails, movieId);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void secondRun_doesNotEvictAgain() {
+        long footprintBytes = createGovernor(Long.MAX_VALUE).getFootprintBytes();
+        long budgetBytes = footprintBytes - MOVIES_OVER_BUDGET * REVIEW_CHARS;
+        CacheGovernor governor = createGovernor(budgetBytes);
+
+        governor.run();
+        int cachedMovieCount = mCachedDetailsDao.countMovieDetails();
+        assertTrue("Footprint " + governor.getFootprintBytes() + " over " + budgetBytes,
+                governor.getFootprintBytes() <= budgetBytes);
+        assertTrue("Kept " + cachedMovieCount + " movies",
+                cachedMovieCount < MOVIE_COUNT && cachedMovieCount > 0);
+        // The least recently viewed movies were evicted
+        for (int movieId = MOVIE_COUNT - cachedMovieCount + 1; movieId <= MOVIE_COUNT; movieId++) {
+            assertEquals(Long.valueOf(movieId), mCachedDetailsDao.loadFetchedAt(movieId));
+        }
+
+        // The freed pages stay in the file until a VACUUM, but aren't counted again
+        governor.run();
+        assertEquals(cachedMovieCount, mCachedDetailsDao.countMovieDetails());
+    }
+
+    @Test
+    public void underBudget_evictsNothing() {
+        CacheGovernor governor = createGovernor(createGovernor(Long.MAX_VALUE).getFootprintBytes());
+
+        governor.run();
+
+        assertEquals(MOVIE_COUNT, mCachedDetailsDao.countMovieDetails());
+    }
+
+    private CacheGovernor createGovernor(long budgetBytes) {
+        return new CacheGovernor(mContext, mDatabase, new CacheEvictionPolicy(budgetBytes));
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.android.popularmovies.model.Cast;
+import com.example.android.popularmovies.model.Credits;
+import com.example.android.popularmovies.model.Crew;
+import com.example.android.popularmovies.model.Genre;
+import com.example.android.popularmovies.model.MovieDetails;
+import com.example.android.popularmovies.model.Review;
+import com.example.android.popularmovies.model.ReviewResponse;
+import com.example.android.popularmovies.model.Video;
+import com.example.android.popularmovies.model.VideoResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Instrumented tests of the normalized cache of the movie details in {@link CachedDetailsDao},
+ * against an in-memory {@link MovieDatabase}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CachedDetailsDaoTest {
+
+    private static final int MOVIE_ID = 11;
+    private static final int OTHER_MOVIE_ID = 12;
+    private static final long FETCHED_AT = 1_500_000_000_000L;
+
+    private MovieDatabase mDatabase;
+    private CachedDetailsDao mCachedDetailsDao;
+
+    @Before
+    public void setUp() {
+        mDatabase = Room.inMemoryDatabaseBuilder(
+                InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                MovieDatabase.class).build();
+        mCachedDetailsDao = mDatabase.cachedDetailsDao();
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void replaceThenLoad_returnsTheSameDetailsInOrder() {
+        MovieDetails movieDetails = createMovieDetails(3);
+        mCachedDetailsDao.replaceMovieDetails(MOVIE_ID, movieDetails, FETCHED_AT);
+
+        assertDetailsEqual(movieDetails, mCachedDetailsDao.loadMovieDetails(MOVIE_ID));
+        assertEquals(Long.valueOf(FETCHED_AT), mCachedDetailsDao.loadFetchedAt(MOVIE_ID));
+    }
+
+    @Test
+    public void replace_withShorterLists_leavesNoStaleRows() {
+        mCachedDetailsDao.replaceMovieDetails(MOVIE_ID, createMovieDetails(3), FETCHED_AT);
+        MovieDetails refreshed = createMovieDetails(1);
+        mCachedDetailsDao.replaceMovieDetails(MOVIE_ID, refreshed, FETCHED_AT + 1);
+
+        assertDetailsEqual(refreshed, mCachedDetailsDao.loadMovieDetails(MOVIE_ID));
+        assertEquals(Long.valueOf(FETCHED_AT + 1), mCachedDetailsDao.loadFetchedAt(MOVIE_ID));
+        assertEquals(1, mCachedDetailsDao.countMovieDetails());
+    }
+
+    @Test
+    public void replace_withoutCreditsVideosAndReviews_loadsEmptyLists() {
+        MovieDetails movieDetails = createMovieDetails(0);
+        movieDetails.setCredits(null);
+        movieDetails.setVideos(null);
+        movieDetails.setReviews(null);
+        mCachedDetailsDao.replaceMovieDetails(MOVIE_ID, movieDetails, FETCHED_AT);
+
+        MovieDetails loaded = mCachedDetailsDao.loadMovieDetails(MOVIE_ID);
+        assertEquals(0, loaded.getGenres().size());
+        assertEquals(0, loaded.getCredits().getCast().size());
+        assertEquals(0, loaded.getCredits().getCrew().size());
+        assertEquals(0, loaded.getVideos().getVideoResults().size());
+        assertEquals(0, loaded.getReviews().getReviewResults().size());
+    }
+
+    @Test
+    public void load_uncachedMovie_returnsNull() {
+        mCachedDetailsDao.replaceMovieDetails(MOVIE_ID, createMovieDetails(1), FETCHED_AT);
+
+        assertNull(mCachedDetailsDao.loadMovieDetails(OTHER_MOVIE_ID));
+        assertNull(mCachedDetailsDao.loadFetchedAt(OTHER_MOVIE_ID));
+    }
+
+    @Test
+    public void delete_removesOnlyTheGivenMovies() {
+        MovieDetails kept = createMovieDetails(2);
+        mCachedDetailsDao.replaceMovieDetails(MOVIE_ID, createMovieDetails(2), FETCHED_AT);
+        mCachedDetailsDao.replaceMovieDetails(OTHER_MOVIE_ID, kept, FETCHED_AT);
+
+        mCachedDetailsDao.deleteMovieDetails(Collections.singletonList(MOVIE_ID));
+
+        assertNull(mCachedDetailsDao.loadMovieDetails(MOVIE_ID));
+        assertDetailsEqual(kept, mCachedDetailsDao.loadMovieDetails(OTHER_MOVIE_ID));
+        // No row of the deleted movie is left in the tables of the lists
+        mCachedDetailsDao.replaceMovieDetails(MOVIE_ID, createMovieDetails(0), FETCHED_AT);
+        assertEquals(0, mCachedDetailsDao.loadMovieDetails(MOVIE_ID).getGenres().size());
+    }
+
+    /**
+     * Returns movie details with the given number of genres, cast, crew, videos and reviews
+     */
+    private static MovieDetails createMovieDetails(int count) {
+        MovieDetails movieDetails = new MovieDetails();
+        movieDetails.setBudget(11_000_000L + count);
+        movieDetails.setRuntime(121);
+        movieDetails.setRevenue(775_398_007L);
+        movieDetails.setStatus("Released");
+        movieDetails.setVoteCount(16_000 + count);
+
+        List<Genre> genres = new ArrayList<>();
+        List<Cast> cast = new ArrayList<>();
+        List<Crew> crew = new ArrayList<>();
+        List<Video> videos = new ArrayList<>();
+        List<Review> reviews = new ArrayList<>();
+        // Descending values, so that a list loaded in another order than its position fails
+        for (int i = count; i > 0; i--) {
+            Genre genre = new Genre();
+            genre.setGenreId(i);
+            genre.setGenreName("Genre " + i);
+            genres.add(genre);
+
+            Cast castMember = new Cast();
+            castMember.setCastId(i);
+            castMember.setPersonId(100 + i);
+            castMember.setName("Actor " + i);
+            castMember.setCharacter("Character " + i);
+            castMember.setProfilePath("/profile" + i + ".jpg");
+            cast.add(castMember);
+
+            Crew crewMember = new Crew();
+            crewMember.setJob("Job " + i);
+            crewMember.setName("Crew " + i);
+            crew.add(crewMember);
+
+            Video video = new Video();
+            video.setVideoId("video" + i);
+            video.setKey("key" + i);
+            video.setName("Trailer " + i);
+            video.setSite("YouTube");
+            video.setSize(1080);
+            video.setType("Trailer");
+            videos.add(video);
+
+            Review review = new Review();
+            review.setId("review" + i);
+            review.setAuthor("Author " + i);
+            review.setContent("Content " + i);
+            review.setUrl("https://www.themoviedb.org/review/" + i);
+            reviews.add(review);
+        }
+        movieDetails.setGenres(genres);
+
+        Credits credits = new Credits();
+        credits.setCast(cast);
+        credits.setCrew(crew);
+        movieDetails.setCredits(credits);
+
+        VideoResponse videoResponse = new VideoResponse();
+        videoResponse.setVideoResults(videos);
+        movieDetails.setVideos(videoResponse);
+
+        ReviewResponse reviewResponse = new ReviewResponse();
+        reviewResponse.setReviewResults(reviews);
+        movieDetails.setReviews(reviewResponse);
+        return movieDetails;
+    }
+
+    /**
+     * Compare the fields the cache stores, since the models don't implement equals()
+     */
+    private static void assertDetailsEqual(MovieDetails expected, MovieDetails actual) {
+        assertEquals(expected.getBudget(), actual.getBudget());
+        assertEquals(expected.getRuntime(), actual.getRuntime());
+        assertEquals(expected.getRevenue(), actual.getRevenue());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getVoteCount(), actual.getVoteCount());
+
+        List<String> expectedRows = new ArrayList<>();
+        List<String> actualRows = new ArrayList<>();
+        for (Genre genre : expected.getGenres()) {
+            expectedRows.add(Arrays.toString(new Object[]{genre.getGenreId(), genre.getGenreName()}));
+        }
+        for (Genre genre : actual.getGenres()) {
+            actualRows.add(Arrays.toString(new Object[]{genre.getGenreId(), genre.getGenreName()}));
+        }
+        for (Cast cast : expected.getCredits().getCast()) {
+            expectedRows.add(toRow(cast));
+        }
+        for (Cast cast : actual.getCredits().getCast()) {
+            actualRows.add(toRow(cast));
+        }
+        for (Crew crew : expected.getCredits().getCrew()) {
+            expectedRows.add(Arrays.toString(new Object[]{crew.getJob(), crew.getName()}));
+        }
+        for (Crew crew : actual.getCredits().getCrew()) {
+            actualRows.add(Arrays.toString(new Object[]{crew.getJob(), crew.getName()}));
+        }
+        for (Video video : expected.getVideos().getVideoResults()) {
+            expectedRows.add(toRow(video));
+        }
+        for (Video video : actual.getVideos().getVideoResults()) {
+            actualRows.add(toRow(video));
+        }
+        for (Review review : expected.getReviews().getReviewResults()) {
+            expectedRows.add(toRow(review));
+        }
+        for (Review review : actual.getReviews().getReviewResults()) {
+            actualRows.add(toRow(review));
+        }
+        assertEquals(expectedRows, actualRows);
+    }
+
+    private static String toRow(Cast cast) {
+        return Arrays.toString(new Object[]{cast.getCastId(), cast.getPersonId(), cast.getName(),
+                cast.getCharacter(), cast.getProfilePath()});
+    }
+
+    private static String toRow(Video video) {
+        return Arrays.toString(new Object[]{video.getVideoId(), video.getKey(), video.getName(),
+                video.getSite(), video.getSize(), video.getType()});
+    }
+
+    private static String toRow(Review review) {
+        return Arrays.toString(new Object[]{review.getId(), review.getAuthor(),
+                review.getContent(), review.getUrl()});
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Instrumented tests of {@link FavoritesBackup}, exporting from an in-memory {@link MovieDatabase}
+ * and importing into another one.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FavoritesBackupTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int ACTION = 28;
+    private static final int DRAMA = 18;
+
+    /** The number of favorites the backup has to handle within the heap budget */
+    private static final int MANY_FAVORITES = 50000;
+    /** About the length of a TMDb overview */
+    private static final int OVERVIEW_LENGTH = 300;
+    private static final long FIXTURE_SEED = 42L;
+    /**
+     * The Java heap the export or the import may hold on to while it runs. The 50,000 favorites
+     * take several times this as objects, so holding them all goes over it.
+     */
+    private static final long HEAP_BUDGET_BYTES = 8 * 1024 * 1024;
+    /** The bytes written or read between two measures of the heap */
+    private static final int HEAP_SAMPLE_INTERVAL_BYTES = 1024 * 1024;
+
+    private Context mContext;
+    private MovieDatabase mSource;
+    private MovieDatabase mTarget;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mSource = Room.inMemoryDatabaseBuilder(mContext, MovieDatabase.class).build();
+        mTarget = Room.inMemoryDatabaseBuilder(mContext, MovieDatabase.class).build();
+    }
+
+    @After
+    public void tearDown() {
+        mSource.close();
+        mTarget.close();
+    }
+
+    @Test
+    public void exportThenImport_addsTheMissingFavoritesWithTheirGenres() throws IOException {
+        mSource.movieDao().insertGenres(Arrays.asList(
+                new GenreEntry(ACTION, "Action"), new GenreEntry(DRAMA, "Drama")));
+        insertFavorite(mSource, 1, "Star Wars", ACTION);
+        insertFavorite(mSource, 2, "Titanic", DRAMA);
+        insertFavorite(mSource, 3, "Heat", ACTION, DRAMA);
+        // Already a favorite on the target, without genres
+        insertFavorite(mTarget, 2, "Titanic (1997)");
+
+        ByteArrayOutputStream backup = new ByteArrayOutputStream();
+        assertEquals(3, new FavoritesBackup(mSource).exportFavorites(backup));
+        FavoritesBackup.ImportResult result = new FavoritesBackup(mTarget)
+                .importFavorites(new ByteArrayInputStream(backup.toByteArray()));
+
+        assertEquals(2, result.getImportedCount());
+        assertEquals(1, result.getSkippedCount());
+        assertEquals(Arrays.asList("2 Titanic (1997)", "1 Star Wars", "3 Heat"),
+                queryRows(mTarget, "SELECT movie_id, title FROM movie ORDER BY id"));
+        assertEquals(Arrays.asList("1 28", "3 18", "3 28"),
+                queryRows(mTarget, "SELECT movie_id, genre_id FROM movie_genre "
+                        + "ORDER BY movie_id, genre_id"));
+        assertEquals(Arrays.asList("18 Drama", "28 Action"),
+                queryRows(mTarget, "SELECT id, name FROM genre ORDER BY id"));
+    }
+
+    @Test
+    public void import_genresAfterMovies_isRejectedWithoutImporting() {
+        String backup = "{\"version\": 1, "
+                + "\"movies\": [{\"movie_id\": 1, \"title\": \"Star Wars\", \"genre_ids\": [28]}], "
+                + "\"genres\": [{\"id\": 28, \"name\": \"Action\"}]}";
+
+        assertImportFails(backup);
+
+        assertEquals(Collections.<String>emptyList(),
+                queryRows(mTarget, "SELECT movie_id FROM movie"));
+        assertEquals(Collections.<String>emptyList(),
+                queryRows(mTarget, "SELECT id FROM genre"));
+    }
+
+    @Test
+    public void import_malformedMovie_rollsBackTheMoviesBeforeIt() {
+        String backup = "{\"version\": 1, \"genres\": [], "
+                + "\"movies\": [{\"movie_id\": 1, \"title\": \"Star Wars\"}, "
+                + "{\"title\": \"Heat\"}]}";
+
+        assertImportFails(backup);
+
+        assertEquals(Collections.<String>emptyList(),
+                queryRows(mTarget, "SELECT movie_id FROM movie"));
+    }
+
+    @Test
+    public void exportAndImport_manyFavorites_stayWithinTheHeapBudget() throws IOException {
+        insertManyFavorites();
+        File file = File.createTempFile("favorites", ".json", mContext.getCacheDir());
+        try {
+            HeapSampler exportSampler = new HeapSampler();
+            int exported = new FavoritesBackup(mSource).exportFavorites(
+                    exportSampler.wrap(new FileOutputStream(file)));
+            // Keep a tenth of the favorites on the target, so that the import also skips movies
+            for (int movieId = 1; movieId <= MANY_FAVORITES / 10; movieId++) {
+                insertFavorite(mTarget, movieId, "Title " + movieId);
+            }
+            HeapSampler importSampler = new HeapSampler();
+            FavoritesBackup.ImportResult result = new FavoritesBackup(mTarget).importFavorites(
+                    importSampler.wrap(new FileInputStream(file)));
+
+            assertEquals(MANY_FAVORITES, exported);
+            assertEquals(MANY_FAVORITES - MANY_FAVORITES / 10, result.getImportedCount());
+            assertEquals(MANY_FAVORITES / 10, result.getSkippedCount());
+            assertEquals(Collections.singletonList(String.valueOf(MANY_FAVORITES)),
+                    queryRows(mTarget, "SELECT COUNT(*) FROM movie"));
+            exportSampler.assertWithinBudget("Export");
+            importSampler.assertWithinBudget("Import");
+        } finally {
+            file.delete();
+        }
+    }
+
+    private void assertImportFails(String backup) {
+        try {
+            new FavoritesBackup(mTarget).importFavorites(
+                    new ByteArrayInputStream(backup.getBytes(UTF_8)));
+            fail("The backup was imported");
+        } catch (IOException expected) {
+            // The transaction was rolled back
+        }
+    }
+
+    private void insertManyFavorites() {
+        final Random random = new Random(FIXTURE_SEED);
+        mSource.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                MovieDao movieDao = mSource.movieDao();
+                movieDao.insertGenres(Arrays.asList(
+                        new GenreEntry(ACTION, "Action"), new GenreEntry(DRAMA, "Drama")));
+                List<MovieGenreEntry> movieGenreEntries = new ArrayList<>();
+                for (int movieId = 1; movieId <= MANY_FAVORITES; movieId++) {
+                    movieDao.insertMovieIfAbsent(new MovieEntry(movieId,
+                            "Original title " + movieId, "Title " + movieId,
+                            "/poster" + movieId + ".jpg", overview(random),
+                            random.nextInt(100) / 10.0, "2018-01-01",
+                            "/backdrop" + movieId + ".jpg", null, "120 min", "2018"));
+                    movieGenreEntries.clear();
+                    movieGenreEntries.add(new MovieGenreEntry(movieId,
+                            random.nextBoolean() ? ACTION : DRAMA));
+                    movieDao.insertMovieGenres(movieGenreEntries);
+                }
+            }
+        });
+    }
+
+    private static void insertFavorite(MovieDatabase database, int movieId, String title,
+                                       int... genreIds) {
+        database.movieDao().insertMovieIfAbsent(new MovieEntry(movieId, title, title, null, null,
+                7.5, null, null, null, null, null));
+        List<MovieGenreEntry> movieGenreEntries = new ArrayList<>();
+        for (int genreId : genreIds) {
+            movieGenreEntries.add(new MovieGenreEntry(movieId, genreId));
+        }
+        database.movieDao().insertMovieGenres(movieGenreEntries);
+    }
+
+    private static String overview(Random random) {
+        StringBuilder overview = new StringBuilder(OVERVIEW_LENGTH);
+        while (overview.length() < OVERVIEW_LENGTH) {
+            overview.append((char) ('a' + random.nextInt(26)));
+            if (random.nextInt(6) == 0) {
+                overview.append(' ');
+            }
+        }
+        return overview.toString();
+    }
+
+    /**
+     * Returns the rows of the query, with the columns of each row joined by spaces
+     */
+    private static List<String> queryRows(MovieDatabase database, String query) {
+        List<String> rows = new ArrayList<>();
+        Cursor cursor = database.query(query, null);
+        try {
+            while (cursor.moveToNext()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    if (i > 0) {
+                        row.append(' ');
+                    }
+                    row.append(cursor.getString(i));
+                }
+                rows.add(row.toString());
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Measures the Java heap still in use after a garbage collection, each time a stream has
+     * written or read another HEAP_SAMPLE_INTERVAL_BYTES, and keeps the largest increase over the
+     * heap in use when the sampler was created
+     */
+    private static class HeapSampler {
+
+        private final long mBaselineBytes;
+        private long mMaxIncreaseBytes;
+        private long mBytesSinceSample;
+
+        HeapSampler() {
+            mBaselineBytes = usedHeapBytes();
+        }
+
+        OutputStream wrap(OutputStream outputStream) {
+            return new FilterOutputStream(outputStream) {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    count(1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    count(len);
+                }
+            };
+        }
+
+        InputStream wrap(InputStream inputStream) {
+            return new FilterInputStream(inputStream) {
+                @Override
+                public int read() throws IOException {
+                    int b = in.read();
+                    if (b != -1) {
+                        count(1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int read = in.read(b, off, len);
+                    if (read > 0) {
+                        count(read);
+                    }
+                    return read;
+                }
+            };
+        }
+
+        void assertWithinBudget(String direction) {
+            assertTrue(direction + " held " + mMaxIncreaseBytes + " bytes of heap",
+                    mMaxIncreaseBytes <= HEAP_BUDGET_BYTES);
+        }
+
+        private void count(int bytes) {
+            mBytesSinceSample += bytes;
+            if (mBytesSinceSample >= HEAP_SAMPLE_INTERVAL_BYTES) {
+                mBytesSinceSample = 0;
+                mMaxIncreaseBytes = Math.max(mMaxIncreaseBytes, usedHeapBytes() - mBaselineBytes);
+            }
+        }
+
+        private static long usedHeapBytes() {
+            Runtime runtime = Runtime.getRuntime();
+            runtime.gc();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.paging.DataSource;
+import androidx.paging.PagedList;
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented tests of the favorites queries of {@link MovieDao}, against an in-memory
+ * {@link MovieDatabase}. The pages of the favorites grid are loaded on the test thread.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MovieDaoTest {
+
+    private static final int ACTION = 28;
+    private static final int DRAMA = 18;
+
+    private static final int PAGE_SIZE = 2;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private MovieDatabase mDatabase;
+    private MovieDao mMovieDao;
+
+    @Before
+    public void setUp() {
+        mDatabase = Room.inMemoryDatabaseBuilder(
+                InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                MovieDatabase.class).build();
+        mMovieDao = mDatabase.movieDao();
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void insertMovie_sameMovieId_replacesTheFavorite() {
+        mMovieDao.insertMovie(createMovie(11, "Star Wars"));
+        mMovieDao.insertMovie(createMovie(11, "Star Wars: A New Hope"));
+
+        assertEquals(Collections.singletonList("11 Star Wars: A New Hope"),
+                queryRows("SELECT movie_id, title FROM movie"));
+    }
+
+    @Test
+    public void insertMovieIfAbsent_sameMovieId_keepsTheStoredFavorite() {
+        assertTrue(mMovieDao.insertMovieIfAbsent(createMovie(11, "Star Wars")) > 0);
+        assertEquals(-1, mMovieDao.insertMovieIfAbsent(createMovie(11, "Star Wars (1977)")));
+
+        assertEquals(Collections.singletonList("11 Star Wars"),
+                queryRows("SELECT movie_id, title FROM movie"));
+    }
+
+    @Test
+    public void isFavorite_followsInsertAndDelete() throws InterruptedException {
+        BlockingQueue<Boolean> values = observe(mMovieDao.isFavorite(11));
+        assertFalse(takeValue(values));
+
+        mMovieDao.insertMovie(createMovie(11, "Star Wars"));
+        assertTrue(takeValue(values));
+
+        mMovieDao.deleteMovieByMovieId(11);
+        assertFalse(takeValue(values));
+    }
+
+    @Test
+    public void loadFavoriteThumbs_pagesTheFavoritesInTheOrderAdded() {
+        mMovieDao.insertMovie(createMovie(30, "Heat"));
+        mMovieDao.insertMovie(createMovie(10, "Titanic"));
+        mMovieDao.insertMovie(createMovie(20, "Alien"));
+        mMovieDao.insertMovie(createMovie(40, "Solaris"));
+        mMovieDao.insertMovie(createMovie(50, "Ringu"));
+
+        List<FavoriteThumb> thumbs = loadAll(mMovieDao.loadFavoriteThumbs());
+
+        assertEquals(Arrays.asList(30, 10, 20, 40, 50), movieIds(thumbs));
+        // Only the columns of the grid are loaded
+        assertEquals("Titanic", thumbs.get(1).getTitle());
+        assertEquals("/poster10.jpg", thumbs.get(1).getPosterPath());
+    }
+
+    @Test
+    public void loadFavoriteThumbsByGenre_returnsTheFavoritesOfTheGenreOnly() {
+        insertFavorite(30, "Heat", ACTION, DRAMA);
+        insertFavorite(10, "Titanic", DRAMA);
+        insertFavorite(20, "Alien", ACTION);
+        insertFavorite(40, "Solaris");
+
+        assertEquals(Arrays.asList(30, 20),
+                movieIds(loadAll(mMovieDao.loadFavoriteThumbsByGenre(ACTION))));
+        assertEquals(Arrays.asList(30, 10),
+                movieIds(loadAll(mMovieDao.loadFavoriteThumbsByGenre(DRAMA))));
+    }
+
+    @Test
+    public void insertFavoriteMovie_again_replacesItsGenres() throws InterruptedException {
+        insertFavorite(30, "Heat", ACTION, DRAMA);
+        insertFavorite(30, "Heat", DRAMA);
+
+        assertEquals(Collections.singletonList("Drama"),
+                genreNames(takeValue(observe(mMovieDao.loadGenresByMovieId(30)))));
+        // The genre is kept for later favorites, but no longer offered as a filter
+        assertEquals(Arrays.asList("18 Drama", "28 Action"),
+                queryRows("SELECT id, name FROM genre ORDER BY id"));
+        assertEquals(Collections.singletonList("Drama"),
+                genreNames(takeValue(observe(mMovieDao.loadFavoriteGenres()))));
+    }
+
+    @Test
+    public void deleteMoviesByMovieIds_deletesTheirGenresThroughTheForeignKey() {
+        insertFavorite(30, "Heat", ACTION, DRAMA);
+        insertFavorite(10, "Titanic", DRAMA);
+        insertFavorite(20, "Alien", ACTION);
+
+        mMovieDao.deleteMoviesByMovieIds(Arrays.asList(30, 20));
+
+        assertEquals(Collections.singletonList("10"), queryRows("SELECT movie_id FROM movie"));
+        assertEquals(Collections.singletonList("10 18"),
+                queryRows("SELECT movie_id, genre_id FROM movie_genre"));
+    }
+
+    private void insertFavorite(int movieId, String title, int... genreIds) {
+        List<GenreEntry> genreEntries = new ArrayList<>();
+        for (int genreId : genreIds) {
+            genreEntries.add(new GenreEntry(genreId, genreId == ACTION ? "Action" : "Drama"));
+        }
+        mMovieDao.insertFavoriteMovie(createMovie(movieId, title), genreEntries);
+    }
+
+    private static MovieEntry createMovie(int movieId, String title) {
+        return new MovieEntry(movieId, title, title, "/poster" + movieId + ".jpg", null, 7.5,
+                null, null, null, null, null);
+    }
+
+    /**
+     * Returns every favorite of the factory, loading one page after the other
+     */
+    private static List<FavoriteThumb> loadAll(
+            DataSource.Factory<Integer, FavoriteThumb> dataSourceFactory) {
+        PagedList.Config config = new PagedList.Config.Builder()
+                .setEnablePlaceholders(false)
+                .setPageSize(PAGE_SIZE)
+                .setInitialLoadSizeHint(PAGE_SIZE)
+                .setPrefetchDistance(PAGE_SIZE)
+                .build();
+        PagedList<FavoriteThumb> thumbs = new PagedList.Builder<>(dataSourceFactory.create(),
+                config)
+                .setFetchExecutor(DIRECT_EXECUTOR)
+                .setNotifyExecutor(DIRECT_EXECUTOR)
+                .build();
+        int size;
+        do {
+            size = thumbs.size();
+            if (size > 0) {
+                thumbs.loadAround(size - 1);
+            }
+        } while (thumbs.size() > size);
+        return new ArrayList<>(thumbs);
+    }
+
+    private static List<Integer> movieIds(List<FavoriteThumb> thumbs) {
+        List<Integer> movieIds = new ArrayList<>();
+        for (FavoriteThumb thumb : thumbs) {
+            movieIds.add(thumb.getMovieId());
+        }
+        return movieIds;
+    }
+
+    private static List<String> genreNames(List<GenreEntry> genreEntries) {
+        List<String> names = new ArrayList<>();
+        for (GenreEntry genreEntry : genreEntries) {
+            names.add(genreEntry.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Returns the rows of the query, with the columns of each row joined by spaces
+     */
+    private List<String> queryRows(String query) {
+        List<String> rows = new ArrayList<>();
+        Cursor cursor = mDatabase.query(query, null);
+        try {
+            while (cursor.moveToNext()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    if (i > 0) {
+                        row.append(' ');
+                    }
+                    row.append(cursor.getString(i));
+                }
+                rows.add(row.toString());
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+
+    /**
+     * Observe the LiveData on the main thread, since Room delivers its values there
+     */
+    private static <T> BlockingQueue<T> observe(final LiveData<T> liveData) {
+        final BlockingQueue<T> values = new LinkedBlockingQueue<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                liveData.observeForever(new Observer<T>() {
+                    @Override
+                    public void onChanged(T value) {
+                        values.add(value);
+                    }
+                });
+            }
+        });
+        return values;
+    }
+
+    private static <T> T takeValue(BlockingQueue<T> values) throws InterruptedException {
+        T value = values.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("No value delivered", value);
+        return value;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Instrumented tests of the migrations of {@link MovieDatabase}.
+ * <p>
+ * The schemas of the versions before 8 weren't exported, so a database of an older version is
+ * built from the movie table of version 1 and the migrations up to that version. Room then opens
+ * it, runs the remaining migrations and validates the tables against the current entities.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MovieDatabaseMigrationTest {
+
+    private static final String TEST_DATABASE = "migration-test";
+
+    /** The movie table Room created for the MovieEntry of version 1 */
+    private static final String CREATE_VERSION_1_MOVIE_TABLE = "CREATE TABLE IF NOT EXISTS `movie` ("
+            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `movie_id` INTEGER NOT NULL, "
+            + "`original_title` TEXT, `title` TEXT, `poster_path` TEXT, `overview` TEXT, "
+            + "`vote_average` REAL NOT NULL, `release_date` TEXT, `backdrop_path` TEXT, "
+            + "`date` INTEGER, `runtime` TEXT, `release_year` TEXT, `genre` TEXT)";
+
+    /** A genre of the cached details that isn't in the TMDb genre list of MIGRATION_5_6 */
+    private static final int CACHED_GENRE_ID = 99999;
+
+    private Context mContext;
+    private MovieDatabase mDatabase;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mContext.deleteDatabase(TEST_DATABASE);
+    }
+
+    @After
+    public void tearDown() {
+        if (mDatabase != null) {
+            mDatabase.close();
+        }
+        mContext.deleteDatabase(TEST_DATABASE);
+    }
+
+    @Test
+    public void migrate1ToLatest_keepsOneRowPerFavorite() {
+        SupportSQLiteOpenHelper helper = createDatabase(1);
+        SupportSQLiteDatabase db = helper.getWritableDatabase();
+        db.execSQL("INSERT INTO movie (id, movie_id, title, vote_average, genre) "
+                + "VALUES (1, 11, 'Star Wars', 8.2, NULL)");
+        db.execSQL("INSERT INTO movie (id, movie_id, title, vote_average, genre) "
+                + "VALUES (2, 11, 'Star Wars', 8.2, 'Action')");
+        db.execSQL("INSERT INTO movie (id, movie_id, title, vote_average, genre) "
+                + "VALUES (3, 12, 'Finding Nemo', 7.8, 'Animation')");
+        helper.close();
+
+        db = openWithRoom();
+
+        // The most recently added row of a duplicate favorite is kept
+        assertEquals(Arrays.asList("2 11", "3 12"),
+                queryRows(db, "SELECT id, movie_id FROM movie ORDER BY id"));
+        assertEquals(Arrays.asList("11 28", "12 16"),
+                queryRows(db, "SELECT movie_id, genre_id FROM movie_genre "
+                        + "ORDER BY movie_id, genre_id"));
+        assertEquals(Collections.singletonList("12"),
+                queryRows(db, "SELECT movie.movie_id FROM movie_fts "
+                        + "INNER JOIN movie ON movie.rowid = movie_fts.docid "
+                        + "WHERE movie_fts MATCH 'nemo*'"));
+    }
+
+    @Test
+    public void migrate5To6_resolvesGenresAndRebuildsFavorites() {
+        SupportSQLiteOpenHelper helper = createDatabase(5);
+        SupportSQLiteDatabase db = helper.getWritableDatabase();
+        db.execSQL("INSERT INTO cached_genre (movie_id, position, genre_id, genre_name) "
+                + "VALUES (13, 0, " + CACHED_GENRE_ID + ", 'Custom')");
+        db.execSQL("INSERT INTO movie (id, movie_id, title, overview, vote_average, genre) "
+                + "VALUES (7, 11, 'Star Wars', 'A long time ago', 8.2, 'Adventure, Action,Unknown')");
+        db.execSQL("INSERT INTO movie (id, movie_id, title, vote_average, genre) "
+                + "VALUES (9, 12, 'Finding Nemo', 7.8, NULL)");
+        db.execSQL("INSERT INTO movie (id, movie_id, title, vote_average, genre) "
+                + "VALUES (10, 13, 'Other Movie', 6.5, 'Custom')");
+        helper.close();
+
+        db = openWithRoom();
+
+        // The rebuilt table keeps the ids, which are the docids of movie_fts
+        assertEquals(Arrays.asList("7 11 Star Wars", "9 12 Finding Nemo", "10 13 Other Movie"),
+                queryRows(db, "SELECT id, movie_id, title FROM movie ORDER BY id"));
+        // Unknown names are dropped, and a genre only known from the cached details is resolved
+        assertEquals(Arrays.asList("11 12", "11 28", "13 " + CACHED_GENRE_ID),
+                queryRows(db, "SELECT movie_id, genre_id FROM movie_genre "
+                        + "ORDER BY movie_id, genre_id"));
+        assertEquals(Collections.singletonList("Custom"),
+                queryRows(db, "SELECT name FROM genre WHERE id = " + CACHED_GENRE_ID));
+
+        // The favorites are still found, and the recreated triggers index the new ones
+        db.execSQL("INSERT INTO movie (movie_id, title, vote_average) VALUES (14, 'Star Trek', 7)");
+        assertEquals(Arrays.asList("11", "14"),
+                queryRows(db, "SELECT movie.movie_id FROM movie_fts "
+                        + "INNER JOIN movie ON movie.rowid = movie_fts.docid "
+                        + "WHERE movie_fts MATCH 'star*' ORDER BY movie.movie_id"));
+    }
+
+    @Test
+    public void migrate6To7_countsCachedDetailsAsViewedWhenFetched() {
+        SupportSQLiteOpenHelper helper = createDatabase(6);
+        helper.getWritableDatabase().execSQL("INSERT INTO cached_details (movie_id, budget, "
+                + "runtime, revenue, status, vote_count, fetched_at) "
+                + "VALUES (11, 11000000, 121, 775398007, 'Released', 16000, 1500000000000)");
+        helper.close();
+
+        SupportSQLiteDatabase db = openWithRoom();
+
+        assertEquals(Collections.singletonList("11 1500000000000"),
+                queryRows(db, "SELECT movie_id, last_viewed_at FROM cached_details"));
+    }
+
+    /**
+     * Returns the helper of the test database at the given version, created from the movie table
+     * of version 1 and the migrations up to that version
+     */
+    private SupportSQLiteOpenHelper createDatabase(final int version) {
+        SupportSQLiteOpenHelper.Callback callback = new SupportSQLiteOpenHelper.Callback(version) {
+            @Override
+            public void onCreate(SupportSQLiteDatabase db) {
+                db.execSQL(CREATE_VERSION_1_MOVIE_TABLE);
+                for (Migration migration : MovieDatabase.MIGRATIONS) {
+                    if (migration.endVersion <= version) {
+                        migration.migrate(db);
+                    }
+                }
+            }
+
+            @Override
+            public void onUpgrade(SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+            }
+        };
+        return new FrameworkSQLiteOpenHelperFactory().create(
+                SupportSQLiteOpenHelper.Configuration.builder(mContext)
+                        .name(TEST_DATABASE)
+                        .callback(callback)
+                        .build());
+    }
+
+    /**
+     * Open the test database with Room, which runs the remaining migrations and validates the
+     * migrated tables against the entities of the current version
+     */
+    private SupportSQLiteDatabase openWithRoom() {
+        mDatabase = Room.databaseBuilder(mContext, MovieDatabase.class, TEST_DATABASE)
+                .addMigrations(MovieDatabase.MIGRATIONS)
+                .build();
+        return mDatabase.getOpenHelper().getWritableDatabase();
+    }
+
+    /**
+     * Returns the rows of the query, with the columns of each row joined by spaces
+     */
+    private static List<String> queryRows(SupportSQLiteDatabase db, String query) {
+        List<String> rows = new ArrayList<>();
+        Cursor cursor = db.query(query);
+        try {
+            while (cursor.moveToNext()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    if (i > 0) {
+                        row.append(' ');
+                    }
+                    row.append(cursor.getString(i));
+                }
+                rows.add(row.toString());
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+}
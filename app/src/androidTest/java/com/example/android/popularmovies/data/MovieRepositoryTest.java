@@ -0,0 +1,189 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.android.popularmovies.AppExecutors;
+import com.example.android.popularmovies.model.MovieDetails;
+import com.example.android.popularmovies.utilities.Controller;
+import com.example.android.popularmovies.utilities.TheMovieApi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static com.example.android.popularmovies.utilities.Constant.MOVIE_DETAILS_CACHE_TTL_MILLIS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented tests of the cache-first details of {@link MovieRepository}, against an in-memory
+ * {@link MovieDatabase} and a MockWebServer.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MovieRepositoryTest {
+
+    private static final int MOVIE_ID = 11;
+    private static final long CACHED_BUDGET = 1000;
+    private static final long REFRESHED_BUDGET = 2000;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final MockWebServer mServer = new MockWebServer();
+    private MovieDatabase mDatabase;
+    private CachedDetailsDao mCachedDetailsDao;
+    private MovieRepository mRepository;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer.start();
+        mDatabase = Room.inMemoryDatabaseBuilder(
+                InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                MovieDatabase.class).build();
+        mCachedDetailsDao = mDatabase.cachedDetailsDao();
+        TheMovieApi theMovieApi = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .addConverterFactory(GsonConverterFactory.create(Controller.createGson()))
+                .build()
+                .create(TheMovieApi.class);
+        mRepository = new MovieRepository(mDatabase.movieDao(), mDatabase.cachedMovieDao(),
+                mCachedDetailsDao, theMovieApi, AppExecutors.getInstance());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mDatabase.close();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void freshCache_isServedWithoutRequest() throws InterruptedException {
+        cacheDetails(System.currentTimeMillis());
+
+        BlockingQueue<MovieDetails[]> values = observe(mRepository.getMovieDetails(MOVIE_ID));
+
+        assertEquals(CACHED_BUDGET, takeValue(values).getBudget());
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+    @Test
+    public void expiredCache_isRefreshedAndCachedAgain() throws InterruptedException {
+        long fetchedAt = System.currentTimeMillis() - MOVIE_DETAILS_CACHE_TTL_MILLIS - 1;
+        cacheDetails(fetchedAt);
+        mServer.enqueue(new MockResponse().setBody("{\"budget\": " + REFRESHED_BUDGET + "}"));
+
+        BlockingQueue<MovieDetails[]> values = observe(mRepository.getMovieDetails(MOVIE_ID));
+
+        // The cached details may be replaced by the refreshed ones before they are observed
+        MovieDetails movieDetails = takeValue(values);
+        if (movieDetails.getBudget() == CACHED_BUDGET) {
+            movieDetails = takeValue(values);
+        }
+        assertEquals(REFRESHED_BUDGET, movieDetails.getBudget());
+        assertEquals(1, mServer.getRequestCount());
+
+        // The refreshed details are written on the disk thread
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (mCachedDetailsDao.loadFetchedAt(MOVIE_ID) == fetchedAt
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(mCachedDetailsDao.loadFetchedAt(MOVIE_ID) > fetchedAt);
+        assertEquals(REFRESHED_BUDGET, mCachedDetailsDao.loadMovieDetails(MOVIE_ID).getBudget());
+    }
+
+    @Test
+    public void expiredCache_keptWhenRefreshFails() throws InterruptedException {
+        cacheDetails(System.currentTimeMillis() - MOVIE_DETAILS_CACHE_TTL_MILLIS - 1);
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+
+        BlockingQueue<MovieDetails[]> values = observe(mRepository.getMovieDetails(MOVIE_ID));
+
+        assertEquals(CACHED_BUDGET, takeValue(values).getBudget());
+        assertNotNull(mServer.takeRequest(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(values.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void noCache_errorResponse_deliversNull() throws InterruptedException {
+        mServer.enqueue(new MockResponse().setResponseCode(404));
+
+        BlockingQueue<MovieDetails[]> values = observe(mRepository.getMovieDetails(MOVIE_ID));
+
+        assertNull(takeValue(values));
+        assertNull(mCachedDetailsDao.loadFetchedAt(MOVIE_ID));
+    }
+
+    @Test
+    public void noCache_networkFailure_deliversNull() throws InterruptedException {
+        mServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+
+        BlockingQueue<MovieDetails[]> values = observe(mRepository.getMovieDetails(MOVIE_ID));
+
+        assertNull(takeValue(values));
+    }
+
+    private void cacheDetails(long fetchedAt) {
+        MovieDetails movieDetails = new MovieDetails();
+        movieDetails.setBudget(CACHED_BUDGET);
+        mCachedDetailsDao.replaceMovieDetails(MOVIE_ID, movieDetails, fetchedAt);
+    }
+
+    /**
+     * Observe the LiveData on the main thread. Each value is wrapped in an array, since a queue
+     * can't hold null.
+     */
+    private static BlockingQueue<MovieDetails[]> observe(final LiveData<MovieDetails> liveData) {
+        final BlockingQueue<MovieDetails[]> values = new LinkedBlockingQueue<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                liveData.observeForever(new Observer<MovieDetails>() {
+                    @Override
+                    public void onChanged(MovieDetails movieDetails) {
+                        values.add(new MovieDetails[]{movieDetails});
+                    }
+                });
+            }
+        });
+        return values;
+    }
+
+    private static MovieDetails takeValue(BlockingQueue<MovieDetails[]> values)
+            throws InterruptedException {
+        MovieDetails[] value = values.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("No value delivered", value);
+        return value[0];
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import androidx.annotation.NonNull;
+import androidx.paging.DataSource;
+import androidx.paging.PagedList;
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.android.popularmovies.AppExecutors;
+import com.example.android.popularmovies.model.Movie;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented tests of the full-text search of {@link MovieRepository#searchMovies(String)},
+ * against an in-memory {@link MovieDatabase}. The pages are loaded on the test thread.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MovieSearchTest {
+
+    private static final String QUERY = "the lord of the rings";
+    private static final int PAGE_SIZE = 20;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private MovieDatabase mDatabase;
+    private MovieRepository mRepository;
+
+    @Before
+    public void setUp() {
+        mDatabase = Room.inMemoryDatabaseBuilder(
+                InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                MovieDatabase.class).build();
+        mRepository = new MovieRepository(mDatabase.movieDao(), mDatabase.cachedMovieDao(),
+                mDatabase.cachedDetailsDao(), null, AppExecutors.getInstance());
+
+        insertFavorite(1, "The Lord of the Rings", "A hobbit leaves the Shire");
+        insertFavorite(2, "The Lord of the Flies", "Boys are stranded on an island");
+        insertFavorite(3, "Fellowship", "The story of the lord of the rings begins");
+        mDatabase.cachedMovieDao().insertMovies(Arrays.asList(
+                // A favorite, which is returned as a favorite only
+                createCachedMovie("popular", 0, 1, "The Lord of the Rings", "A hobbit"),
+                // The same movie cached under two sort criteria
+                createCachedMovie("popular", 1, 10, "The Lord of the Rings: The Two Towers",
+                        "The fellowship is broken"),
+                createCachedMovie("top_rated", 0, 10, "The Lord of the Rings: The Two Towers",
+                        "The fellowship is broken"),
+                createCachedMovie("popular", 2, 11, "Ringu",
+                        "Not the lord of the rings, but a cursed tape")));
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void search_ranksFavoritesAndTitlesFirstAndMatchesEveryWord() {
+        // "The Lord of the Flies" doesn't match the fifth word
+        assertEquals(Arrays.asList(1, 10, 3, 11), search(QUERY, PAGE_SIZE));
+    }
+
+    @Test
+    public void search_pageByPage_returnsEveryResultOnceInOrder() {
+        assertEquals(Arrays.asList(1, 10, 3, 11), search(QUERY, 1));
+        assertEquals(search("lord", PAGE_SIZE), search("lord", 1));
+    }
+
+    @Test
+    public void search_pageByPage_breaksTitleTiesByMovieId() {
+        insertFavorite(22, "Solaris", null);
+        insertFavorite(21, "Solaris", null);
+        mDatabase.cachedMovieDao().insertMovies(Collections.singletonList(
+                createCachedMovie("popular", 3, 20, "Solaris", null)));
+
+        // The favorites come first, then the cached movie
+        assertEquals(Arrays.asList(21, 22, 20), search("solaris", 1));
+    }
+
+    @Test
+    public void search_withoutWords_returnsNothing() {
+        assertEquals(Collections.<Integer>emptyList(), search(" -* ", PAGE_SIZE));
+    }
+
+    @Test
+    public void newFavorite_invalidatesTheResults() throws InterruptedException {
+        DataSource<MovieSearchDataSource.Key, Movie> dataSource =
+                mRepository.searchMovies(QUERY).create();
+        final CountDownLatch invalidated = new CountDownLatch(1);
+        dataSource.addInvalidatedCallback(new DataSource.InvalidatedCallback() {
+            @Override
+            public void onInvalidated() {
+                invalidated.countDown();
+            }
+        });
+
+        insertFavorite(4, "The Return of the King", null);
+
+        assertTrue(invalidated.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Returns the movie IDs of every result of the search, loading one page after the other
+     */
+    private List<Integer> search(String text, int pageSize) {
+        PagedList.Config config = new PagedList.Config.Builder()
+                .setEnablePlaceholders(false)
+                .setPageSize(pageSize)
+                .setInitialLoadSizeHint(pageSize)
+                .setPrefetchDistance(pageSize)
+                .build();
+        PagedList<Movie> movies = new PagedList.Builder<>(mRepository.searchMovies(text).create(),
+                config)
+                .setFetchExecutor(DIRECT_EXECUTOR)
+                .setNotifyExecutor(DIRECT_EXECUTOR)
+                .build();
+        int size;
+        do {
+            size = movies.size();
+            if (size > 0) {
+                movies.loadAround(size - 1);
+            }
+        } while (movies.size() > size);
+
+        List<Integer> movieIds = new ArrayList<>();
+        for (Movie movie : movies) {
+            movieIds.add(movie.getId());
+        }
+        return movieIds;
+    }
+
+    private void insertFavorite(int movieId, String title, String overview) {
+        mDatabase.movieDao().insertMovie(new MovieEntry(movieId, title, title, null, overview,
+                7.5, null, null, null, null, null));
+    }
+
+    private static CachedMovieEntry createCachedMovie(String sortCriteria, int position,
+                                                      int movieId, String title, String overview) {
+        return new CachedMovieEntry(sortCriteria, 1, position, movieId, title, title, null,
+                overview, 7.5, null, null, 0);
+    }
+}
@@ -22,8 +22,18 @@ import androidx.annotation.NonNull;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.example.android.popularmovies.utilities.Constant.DATABASE_QUERY_THREAD_NAME_PREFIX;
+import static com.example.android.popularmovies.utilities.Constant.NUMBER_OF_DATABASE_QUERY_THREADS;
+import static com.example.android.popularmovies.utilities.Constant.NUMBER_OF_FIXED_THREADS_FIVE;
 import static com.example.android.popularmovies.utilities.Constant.NUMBER_OF_THREADS_THREE;
+import static com.example.android.popularmovies.utilities.Constant.PAGING_THREAD_KEEP_ALIVE_SECONDS;
+import static com.example.android.popularmovies.utilities.Constant.PAGING_THREAD_NAME_PREFIX;
 
 /**
  * Global executor pools for the whole application.
@@ -35,28 +45,61 @@ public class AppExecutors {
 
     // For Singleton instantiation
     private static final Object LOCK = new Object();
-    private static AppExecutors sInstance;
+    private static volatile AppExecutors sInstance;
     private final Executor diskIO;
     private final Executor mainThread;
     private final Executor networkIO;
+    private final ThreadPoolExecutor pagingIO;
+    private final Executor databaseQuery;
 
-    private AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread) {
+    private AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread,
+                         ThreadPoolExecutor pagingIO, Executor databaseQuery) {
         this.diskIO = diskIO;
         this.networkIO = networkIO;
         this.mainThread = mainThread;
+        this.pagingIO = pagingIO;
+        this.databaseQuery = databaseQuery;
     }
 
     public static AppExecutors getInstance() {
         if (sInstance == null) {
             synchronized (LOCK) {
-                sInstance = new AppExecutors(Executors.newSingleThreadExecutor(),
-                        Executors.newFixedThreadPool(NUMBER_OF_THREADS_THREE),
-                        new MainThreadExecutor());
+                // Another thread may have created the pools while this one waited for the lock
+                if (sInstance == null) {
+                    sInstance = create(new MainThreadExecutor());
+                }
             }
         }
         return sInstance;
     }
 
+    /**
+     * Create the pools of the app around the given main thread executor. The pools don't need a
+     * Looper, so local unit tests can create them with an executor of their own.
+     */
+    static AppExecutors create(Executor mainThread) {
+        return new AppExecutors(Executors.newSingleThreadExecutor(),
+                Executors.newFixedThreadPool(NUMBER_OF_THREADS_THREE),
+                mainThread,
+                createPagingExecutor(),
+                Executors.newFixedThreadPool(NUMBER_OF_DATABASE_QUERY_THREADS,
+                        new NamedThreadFactory(DATABASE_QUERY_THREAD_NAME_PREFIX)));
+    }
+
+    /**
+     * Create the pool shared by every PagedList of movies. The number of threads is bounded, and
+     * idle threads time out so the pool doesn't hold threads while nothing is being paged.
+     */
+    private static ThreadPoolExecutor createPagingExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                NUMBER_OF_FIXED_THREADS_FIVE, NUMBER_OF_FIXED_THREADS_FIVE,
+                PAGING_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new NamedThreadFactory(PAGING_THREAD_NAME_PREFIX));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     public Executor diskIO() {
         return diskIO;
     }
@@ -69,6 +112,66 @@ public class AppExecutors {
         return networkIO;
     }
 
+    /**
+     * Returns the fetch executor used to load pages of movies into a PagedList
+     */
+    public Executor pagingIO() {
+        return pagingIO;
+    }
+
+    /**
+     * Returns the executor Room runs its LiveData and paging queries on. The reads run in parallel
+     * with the writes on diskIO, which the WAL journal allows.
+     */
+    public Executor databaseQuery() {
+        return databaseQuery;
+    }
+
+    /**
+     * Returns the number of threads currently in the paging pool
+     */
+    public int getPagingPoolSize() {
+        return pagingIO.getPoolSize();
+    }
+
+    /**
+     * Returns the approximate number of threads that are loading a page
+     */
+    public int getPagingActiveCount() {
+        return pagingIO.getActiveCount();
+    }
+
+    /**
+     * Returns the number of page loads waiting for a thread
+     */
+    public int getPagingQueueSize() {
+        return pagingIO.getQueue().size();
+    }
+
+    /**
+     * Returns the approximate number of page loads that have completed
+     */
+    public long getPagingCompletedTaskCount() {
+        return pagingIO.getCompletedTaskCount();
+    }
+
+    /**
+     * ThreadFactory that gives each thread a readable name, so the pool can be found in thread dumps
+     */
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String namePrefix;
+
+        NamedThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+        }
+    }
+
     private static class MainThreadExecutor implements Executor {
         private Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
@@ -26,6 +26,7 @@ import static com.example.android.popularmovies.utilities.Constant.TWO;
 /**
  * The ThreeTwoImageView class is responsible for making ImageView 3:2 aspect ratio.
  * The ThreeTwoImageView is used for movie backdrop image in the activity_detail.xml.
+ * Backdrops are loaded with ImageLoader.loadFitted, which decodes them at the measured size.
  */
 public class ThreeTwoImageView extends AppCompatImageView {
 
@@ -26,6 +26,7 @@ import static com.example.android.popularmovies.utilities.Constant.TWO;
 /**
  * The TwoThreeImageView class is responsible for making ImageView 2:3 aspect ratio.
  * The TwoThreeImageView is used for movie poster in the movie_list_item.xml.
+ * Posters are loaded with ImageLoader.loadFitted, which decodes them at the measured size.
  */
 public class TwoThreeImageView extends AppCompatImageView {
 
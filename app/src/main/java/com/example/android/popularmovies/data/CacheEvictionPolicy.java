@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@link CacheEvictionPolicy} decides which cached movies the {@link CacheGovernor} evicts. When
+ * the on-disk footprint of the caches is above the budget, the least recently viewed movies are
+ * evicted first, until the estimated size of the evicted movies covers the excess. Movies viewed at
+ * the same time are evicted in the order of their movie ID, so the result doesn't depend on the
+ * order the usages were loaded in.
+ */
+public class CacheEvictionPolicy {
+
+    /** Orders the movies from the least to the most recently viewed */
+    private static final Comparator<CachedMovieUsage> LEAST_RECENTLY_VIEWED_FIRST =
+            new Comparator<CachedMovieUsage>() {
+                @Override
+                public int compare(CachedMovieUsage first, CachedMovieUsage second) {
+                    if (first.getLastViewedAt() != second.getLastViewedAt()) {
+                        return first.getLastViewedAt() < second.getLastViewedAt() ? -1 : 1;
+                    }
+                    return first.getMovieId() < second.getMovieId() ? -1
+                            : (first.getMovieId() == second.getMovieId() ? 0 : 1);
+                }
+            };
+
+    private final long mBudgetBytes;
+
+    /**
+     * Constructor
+     *
+     * @param budgetBytes The on-disk footprint the caches are allowed to take, in bytes
+     */
+    public CacheEvictionPolicy(long budgetBytes) {
+        mBudgetBytes = budgetBytes;
+    }
+
+    public long getBudgetBytes() {
+        return mBudgetBytes;
+    }
+
+    /**
+     * Returns the IDs of the movies to evict, least recently viewed first
+     *
+     * @param usages When each evictable movie was last viewed
+     * @param footprintBytes The current on-disk footprint of the caches, in bytes
+     * @param bytesPerMovie The estimated size of the cached details of one movie, in bytes
+     */
+    public List<Integer> selectMoviesToEvict(List<CachedMovieUsage> usages, long footprintBytes,
+                                             long bytesPerMovie) {
+        long excessBytes = footprintBytes - mBudgetBytes;
+        if (excessBytes <= 0 || usages.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Round up, so that the evicted movies cover the whole excess
+        long evictCount = bytesPerMovie <= 0
+                ? usages.size() : (excessBytes + bytesPerMovie - 1) / bytesPerMovie;
+        int count = (int) Math.min(evictCount, usages.size());
+
+        List<CachedMovieUsage> sortedUsages = new ArrayList<>(usages);
+        Collections.sort(sortedUsages, LEAST_RECENTLY_VIEWED_FIRST);
+        List<Integer> movieIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            movieIds.add(sortedUsages.get(i).getMovieId());
+        }
+        return movieIds;
+    }
+}
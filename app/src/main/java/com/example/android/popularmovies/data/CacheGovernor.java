@@ -0,0 +1,181 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.util.Log;
+
+import java.io.File;
+import java.util.List;
+
+import static com.example.android.popularmovies.utilities.Constant.CACHED_PAGE_MAX_AGE_MILLIS;
+import static com.example.android.popularmovies.utilities.Constant.CACHE_GOVERNOR_PREFERENCES;
+import static com.example.android.popularmovies.utilities.Constant.HTTP_CACHE_DIR;
+import static com.example.android.popularmovies.utilities.Constant.IMAGE_CACHE_DIR;
+import static com.example.android.popularmovies.utilities.Constant.PREF_LAST_VACUUM_AT;
+import static com.example.android.popularmovies.utilities.Constant.VACUUM_INTERVAL_MILLIS;
+
+/**
+ * {@link CacheGovernor} keeps the on-disk footprint of the caches under a budget. The footprint is
+ * the size of the live pages of the Room database, the HTTP cache of Controller and the image
+ * cache. The HTTP and image caches are bounded by their own LRU, so the governor frees the excess
+ * in the database: it deletes the old cached pages and the cached details of the least recently
+ * viewed movies that are not favorites, then VACUUMs the database to give the freed pages back to
+ * the file system.
+ * <p>
+ * The free pages and the WAL file aren't part of the footprint, so the space freed by a run counts
+ * as freed before the next VACUUM, and the next runs don't evict again for it.
+ * <p>
+ * Every method does disk I/O, so {@link #run()} is called from the {@link CacheGovernorWorker}.
+ */
+public class CacheGovernor {
+
+    private static final String TAG = CacheGovernor.class.getSimpleName();
+
+    private final Context mContext;
+    private final MovieDatabase mDatabase;
+    private final CacheEvictionPolicy mPolicy;
+
+    public CacheGovernor(Context context, MovieDatabase database, CacheEvictionPolicy policy) {
+        mContext = context.getApplicationContext();
+        mDatabase = database;
+        mPolicy = policy;
+    }
+
+    /**
+     * Delete the old cached pages, evict the least recently viewed movies while the footprint is
+     * above the budget, and VACUUM the database when something was deleted and the last VACUUM is
+     * older than VACUUM_INTERVAL_MILLIS
+     */
+    public void run() {
+        long now = System.currentTimeMillis();
+        int deletedPageRows = mDatabase.cachedMovieDao()
+                .deletePagesFetchedBefore(now - CACHED_PAGE_MAX_AGE_MILLIS);
+
+        long cacheDirectoryBytes = getCacheDirectoryBytes();
+        long databaseBytes = getDatabaseBytes();
+        long footprintBytes = databaseBytes + cacheDirectoryBytes;
+
+        CachedDetailsDao cachedDetailsDao = mDatabase.cachedDetailsDao();
+        // The whole database over the number of cached movies overestimates the size of one movie,
+        // so the first batch evicts too few movies rather than too many. The next batches are
+        // sized with the bytes the previous batch was measured to free.
+        int cachedMovieCount = cachedDetailsDao.countMovieDetails();
+        long bytesPerMovie = cachedMovieCount == 0 ? 0 : databaseBytes / cachedMovieCount;
+        int evictedCount = 0;
+        while (true) {
+            List<Integer> movieIds = mPolicy.selectMoviesToEvict(
+                    cachedDetailsDao.loadEvictableMovieUsages(), footprintBytes, bytesPerMovie);
+            if (movieIds.isEmpty()) {
+                break;
+            }
+            cachedDetailsDao.deleteMovieDetails(movieIds);
+            evictedCount += movieIds.size();
+
+            long freedBytes = databaseBytes - getDatabaseBytes();
+            databaseBytes -= freedBytes;
+            footprintBytes = databaseBytes + cacheDirectoryBytes;
+            if (freedBytes <= 0) {
+                // The rows of the evicted movies shared their pages with other rows
+                break;
+            }
+            bytesPerMovie = Math.max(1, freedBytes / movieIds.size());
+        }
+        Log.d(TAG, "Footprint " + footprintBytes + " of " + mPolicy.getBudgetBytes()
+                + " bytes, evicted " + evictedCount + " movies and " + deletedPageRows
+                + " cached page rows");
+
+        if ((deletedPageRows > 0 || evictedCount > 0) && isVacuumDue(now)) {
+            vacuum(now);
+        }
+    }
+
+    /**
+     * Returns the on-disk footprint of the caches in bytes
+     */
+    long getFootprintBytes() {
+        return getDatabaseBytes() + getCacheDirectoryBytes();
+    }
+
+    /**
+     * Returns the size of the pages of the database in use, in bytes. The free pages left by the
+     * deletes until the next VACUUM aren't counted, nor the WAL file, which holds newer copies of
+     * the pages counted here.
+     */
+    public long getDatabaseBytes() {
+        return (queryPragma("page_count") - queryPragma("freelist_count"))
+                * queryPragma("page_size");
+    }
+
+    private long queryPragma(String pragma) {
+        Cursor cursor = mDatabase.query("PRAGMA " + pragma, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns the size of the HTTP cache and the image cache, in bytes
+     */
+    private long getCacheDirectoryBytes() {
+        return getDirectoryBytes(new File(mContext.getCacheDir(), HTTP_CACHE_DIR))
+                + getDirectoryBytes(new File(mContext.getCacheDir(), IMAGE_CACHE_DIR));
+    }
+
+    /**
+     * Returns the total size of the files in the directory, in bytes
+     */
+    private static long getDirectoryBytes(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (File file : files) {
+            bytes += file.isDirectory() ? getDirectoryBytes(file) : file.length();
+        }
+        return bytes;
+    }
+
+    private boolean isVacuumDue(long now) {
+        SharedPreferences preferences = mContext.getSharedPreferences(
+                CACHE_GOVERNOR_PREFERENCES, Context.MODE_PRIVATE);
+        return now - preferences.getLong(PREF_LAST_VACUUM_AT, 0) >= VACUUM_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Rebuild the database file without its free pages, then truncate the WAL file, which
+     * otherwise keeps the size of the rebuilt database
+     */
+    private void vacuum(long now) {
+        mDatabase.getOpenHelper().getWritableDatabase().execSQL("VACUUM");
+        Cursor cursor = mDatabase.query("PRAGMA wal_checkpoint(TRUNCATE)", null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+        mContext.getSharedPreferences(CACHE_GOVERNOR_PREFERENCES, Context.MODE_PRIVATE)
+                .edit()
+                .putLong(PREF_LAST_VACUUM_AT, now)
+                .apply();
+        Log.d(TAG, "Vacuumed the database, now " + getDatabaseBytes() + " bytes");
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import android.content.Context;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.example.android.popularmovies.utilities.Constant.CACHE_BUDGET_BYTES;
+import static com.example.android.popularmovies.utilities.Constant.CACHE_GOVERNOR_INTERVAL_HOURS;
+import static com.example.android.popularmovies.utilities.Constant.CACHE_GOVERNOR_WORK_NAME;
+
+/**
+ * {@link Worker} that runs the {@link CacheGovernor} as deferrable background work.
+ */
+public class CacheGovernorWorker extends Worker {
+
+    public CacheGovernorWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        new CacheGovernor(context, MovieDatabase.getInstance(context),
+                new CacheEvictionPolicy(CACHE_BUDGET_BYTES)).run();
+        return Result.success();
+    }
+
+    /**
+     * Schedule the CacheGovernor to run about once every CACHE_GOVERNOR_INTERVAL_HOURS, only while
+     * the battery is not low and, from Marshmallow on, while the device is idle. The work that is
+     * already scheduled is kept, so this can be called every time the app starts.
+     */
+    public static void schedule(Context context) {
+        Constraints.Builder constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            constraints.setRequiresDeviceIdle(true);
+        }
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(CacheGovernorWorker.class,
+                CACHE_GOVERNOR_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints.build())
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(CACHE_GOVERNOR_WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+import com.example.android.popularmovies.model.Cast;
+
+/**
+ * A {@link CachedCastEntry} is a single cast member of a movie whose details are cached on disk.
+ * Rows are keyed by the movie ID and the position in the response, so that they are served in the
+ * same order they were received from the network.
+ */
+@Entity(tableName = "cached_cast", primaryKeys = {"movie_id", "position"})
+public class CachedCastEntry {
+
+    @ColumnInfo(name = "movie_id")
+    private int movieId;
+
+    private int position;
+
+    @ColumnInfo(name = "cast_id")
+    private int castId;
+
+    @ColumnInfo(name = "person_id")
+    private int personId;
+
+    private String name;
+
+    private String character;
+
+    @ColumnInfo(name = "profile_path")
+    private String profilePath;
+
+    /**
+     * Constructor used by Room to create CachedCastEntries
+     */
+    public CachedCastEntry(int movieId, int position, int castId, int personId, String name,
+                           String character, String profilePath) {
+        this.movieId = movieId;
+        this.position = position;
+        this.castId = castId;
+        this.personId = personId;
+        this.name = name;
+        this.character = character;
+        this.profilePath = profilePath;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param movieId The ID of the movie
+     * @param position The position of the cast member in the response
+     * @param cast The cast member received from the network
+     */
+    @Ignore
+    public CachedCastEntry(int movieId, int position, Cast cast) {
+        this(movieId, position, cast.getCastId(), cast.getPersonId(), cast.getName(),
+                cast.getCharacter(), cast.getProfilePath());
+    }
+
+    /**
+     * Returns a {@link Cast} object built from the cached data
+     */
+    public Cast toCast() {
+        Cast cast = new Cast();
+        cast.setCastId(castId);
+        cast.setPersonId(personId);
+        cast.setName(name);
+        cast.setCharacter(character);
+        cast.setProfilePath(profilePath);
+        return cast;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getCastId() {
+        return castId;
+    }
+
+    public int getPersonId() {
+        return personId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCharacter() {
+        return character;
+    }
+
+    public String getProfilePath() {
+        return profilePath;
+    }
+}
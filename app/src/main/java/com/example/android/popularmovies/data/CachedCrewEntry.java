@@ -0,0 +1,89 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+import com.example.android.popularmovies.model.Crew;
+
+/**
+ * A {@link CachedCrewEntry} is a single crew member of a movie whose details are cached on disk.
+ * Rows are keyed by the movie ID and the position in the response, so that they are served in the
+ * same order they were received from the network.
+ */
+@Entity(tableName = "cached_crew", primaryKeys = {"movie_id", "position"})
+public class CachedCrewEntry {
+
+    @ColumnInfo(name = "movie_id")
+    private int movieId;
+
+    private int position;
+
+    private String name;
+
+    private String job;
+
+    /**
+     * Constructor used by Room to create CachedCrewEntries
+     */
+    public CachedCrewEntry(int movieId, int position, String name, String job) {
+        this.movieId = movieId;
+        this.position = position;
+        this.name = name;
+        this.job = job;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param movieId The ID of the movie
+     * @param position The position of the crew member in the response
+     * @param crew The crew member received from the network
+     */
+    @Ignore
+    public CachedCrewEntry(int movieId, int position, Crew crew) {
+        this(movieId, position, crew.getName(), crew.getJob());
+    }
+
+    /**
+     * Returns a {@link Crew} object built from the cached data
+     */
+    public Crew toCrew() {
+        Crew crew = new Crew();
+        crew.setName(name);
+        crew.setJob(job);
+        return crew;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getJob() {
+        return job;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.example.android.popularmovies.model.Cast;
+import com.example.android.popularmovies.model.Credits;
+import com.example.android.popularmovies.model.Crew;
+import com.example.android.popularmovies.model.Genre;
+import com.example.android.popularmovies.model.MovieDetails;
+import com.example.android.popularmovies.model.Review;
+import com.example.android.popularmovies.model.ReviewResponse;
+import com.example.android.popularmovies.model.Video;
+import com.example.android.popularmovies.model.VideoResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link Dao} which provides an API for the movie details cached in the MovieDatabase, along with
+ * their genres, cast, crew, videos and reviews.
+ */
+@Dao
+public abstract class CachedDetailsDao {
+
+    @Query("SELECT fetched_at FROM cached_details WHERE movie_id = :movieId")
+    public abstract Long loadFetchedAt(int movieId);
+
+    @Query("UPDATE cached_details SET last_viewed_at = :viewedAt WHERE movie_id = :movieId")
+    public abstract void updateLastViewedAt(int movieId, long viewedAt);
+
+    @Query("SELECT COUNT(*) FROM cached_details")
+    public abstract int countMovieDetails();
+
+    /**
+     * Load when the cached details of each movie were last viewed. The favorites are left out,
+     * so that their details stay available offline.
+     */
+    @Query("SELECT movie_id, last_viewed_at FROM cached_details "
+            + "WHERE movie_id NOT IN (SELECT movie_id FROM movie)")
+    public abstract List<CachedMovieUsage> loadEvictableMovieUsages();
+
+    @Query("SELECT * FROM cached_details WHERE movie_id = :movieId")
+    abstract CachedDetailsEntry loadDetails(int movieId);
+
+    @Query("SELECT * FROM cached_genre WHERE movie_id = :movieId ORDER BY position")
+    abstract List<CachedGenreEntry> loadGenres(int movieId);
+
+    @Query("SELECT * FROM cached_cast WHERE movie_id = :movieId ORDER BY position")
+    abstract List<CachedCastEntry> loadCast(int movieId);
+
+    @Query("SELECT * FROM cached_crew WHERE movie_id = :movieId ORDER BY position")
+    abstract List<CachedCrewEntry> loadCrew(int movieId);
+
+    @Query("SELECT * FROM cached_video WHERE movie_id = :movieId ORDER BY position")
+    abstract List<CachedVideoEntry> loadVideos(int movieId);
+
+    @Query("SELECT * FROM cached_review WHERE movie_id = :movieId ORDER BY position")
+    abstract List<CachedReviewEntry> loadReviews(int movieId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertDetails(CachedDetailsEntry detailsEntry);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertGenres(List<CachedGenreEntry> genreEntries);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertCast(List<CachedCastEntry> castEntries);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertCrew(List<CachedCrewEntry> crewEntries);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertVideos(List<CachedVideoEntry> videoEntries);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract void insertReviews(List<CachedReviewEntry> reviewEntries);
+
+    @Query("DELETE FROM cached_details WHERE movie_id = :movieId")
+    abstract void deleteDetails(int movieId);
+
+    @Query("DELETE FROM cached_genre WHERE movie_id = :movieId")
+    abstract void deleteGenres(int movieId);
+
+    @Query("DELETE FROM cached_cast WHERE movie_id = :movieId")
+    abstract void deleteCast(int movieId);
+
+    @Query("DELETE FROM cached_crew WHERE movie_id = :movieId")
+    abstract void deleteCrew(int movieId);
+
+    @Query("DELETE FROM cached_video WHERE movie_id = :movieId")
+    abstract void deleteVideos(int movieId);
+
+    @Query("DELETE FROM cached_review WHERE movie_id = :movieId")
+    abstract void deleteReviews(int movieId);
+
+    /**
+     * Returns the cached MovieDetails with its genres, credits, videos and reviews, or null if the
+     * movie is not cached
+     */
+    @Transaction
+    public MovieDetails loadMovieDetails(int movieId) {
+        CachedDetailsEntry detailsEntry = loadDetails(movieId);
+        if (detailsEntry == null) {
+            return null;
+        }
+        MovieDetails movieDetails = detailsEntry.toMovieDetails();
+
+        List<Genre> genres = new ArrayList<>();
+        for (CachedGenreEntry genreEntry : loadGenres(movieId)) {
+            genres.add(genreEntry.toGenre());
+        }
+        movieDetails.setGenres(genres);
+
+        List<Cast> cast = new ArrayList<>();
+        for (CachedCastEntry castEntry : loadCast(movieId)) {
+            cast.add(castEntry.toCast());
+        }
+        List<Crew> crew = new ArrayList<>();
+        for (CachedCrewEntry crewEntry : loadCrew(movieId)) {
+            crew.add(crewEntry.toCrew());
+        }
+        Credits credits = new Credits();
+        credits.setCast(cast);
+        credits.setCrew(crew);
+        movieDetails.setCredits(credits);
+
+        List<Video> videos = new ArrayList<>();
+        for (CachedVideoEntry videoEntry : loadVideos(movieId)) {
+            videos.add(videoEntry.toVideo());
+        }
+        VideoResponse videoResponse = new VideoResponse();
+        videoResponse.setId(movieId);
+        videoResponse.setVideoResults(videos);
+        movieDetails.setVideos(videoResponse);
+
+        List<Review> reviews = new ArrayList<>();
+        for (CachedReviewEntry reviewEntry : loadReviews(movieId)) {
+            reviews.add(reviewEntry.toReview());
+        }
+        ReviewResponse reviewResponse = new ReviewResponse();
+        reviewResponse.setId(movieId);
+        reviewResponse.setReviewResults(reviews);
+        movieDetails.setReviews(reviewResponse);
+
+        return movieDetails;
+    }
+
+    /**
+     * Replace the cached details of the movie, so that shorter lists from the network don't leave
+     * stale rows behind
+     */
+    @Transaction
+    public void replaceMovieDetails(int movieId, MovieDetails movieDetails, long fetchedAt) {
+        deleteMovieDetails(movieId);
+
+        insertDetails(new CachedDetailsEntry(movieId, movieDetails, fetchedAt));
+
+        List<CachedGenreEntry> genreEntries = new ArrayList<>();
+        List<Genre> genres = movieDetails.getGenres();
+        for (int position = 0; genres != null && position < genres.size(); position++) {
+            genreEntries.add(new CachedGenreEntry(movieId, position, genres.get(position)));
+        }
+        insertGenres(genreEntries);
+
+        Credits credits = movieDetails.getCredits();
+        List<CachedCastEntry> castEntries = new ArrayList<>();
+        List<CachedCrewEntry> crewEntries = new ArrayList<>();
+        if (credits != null) {
+            List<Cast> cast = credits.getCast();
+            for (int position = 0; cast != null && position < cast.size(); position++) {
+                castEntries.add(new CachedCastEntry(movieId, position, cast.get(position)));
+            }
+            List<Crew> crew = credits.getCrew();
+            for (int position = 0; crew != null && position < crew.size(); position++) {
+                crewEntries.add(new CachedCrewEntry(movieId, position, crew.get(position)));
+            }
+        }
+        insertCast(castEntries);
+        insertCrew(crewEntries);
+
+        List<CachedVideoEntry> videoEntries = new ArrayList<>();
+        VideoResponse videoResponse = movieDetails.getVideos();
+        if (videoResponse != null && videoResponse.getVideoResults() != null) {
+            List<Video> videos = videoResponse.getVideoResults();
+            for (int position = 0; position < videos.size(); position++) {
+                videoEntries.add(new CachedVideoEntry(movieId, position, videos.get(position)));
+            }
+        }
+        insertVideos(videoEntries);
+
+        List<CachedReviewEntry> reviewEntries = new ArrayList<>();
+        ReviewResponse reviewResponse = movieDetails.getReviews();
+        if (reviewResponse != null && reviewResponse.getReviewResults() != null) {
+            List<Review> reviews = reviewResponse.getReviewResults();
+            for (int position = 0; position < reviews.size(); position++) {
+                reviewEntries.add(new CachedReviewEntry(movieId, position, reviews.get(position)));
+            }
+        }
+        insertReviews(reviewEntries);
+    }
+
+    /**
+     * Delete the cached details of the movies from every table in a single transaction
+     */
+    @Transaction
+    public void deleteMovieDetails(List<Integer> movieIds) {
+        for (int movieId : movieIds) {
+            deleteMovieDetails(movieId);
+        }
+    }
+
+    /**
+     * Delete the cached details of the movie from every table
+     */
+    @Transaction
+    public void deleteMovieDetails(int movieId) {
+        deleteDetails(movieId);
+        deleteGenres(movieId);
+        deleteCast(movieId);
+        deleteCrew(movieId);
+        deleteVideos(movieId);
+        deleteReviews(movieId);
+    }
+}
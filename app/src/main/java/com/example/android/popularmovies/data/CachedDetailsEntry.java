@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+import com.example.android.popularmovies.model.MovieDetails;
+
+/**
+ * A {@link CachedDetailsEntry} holds the MovieDetails of a movie cached on disk, along with the time
+ * it was fetched. The genres, cast, crew, videos and reviews of the movie are stored in their own
+ * tables, keyed by the movie ID and their position in the response.
+ */
+@Entity(tableName = "cached_details")
+public class CachedDetailsEntry {
+
+    @PrimaryKey
+    @ColumnInfo(name = "movie_id")
+    private int movieId;
+
+    private long budget;
+
+    private int runtime;
+
+    private long revenue;
+
+    private String status;
+
+    @ColumnInfo(name = "vote_count")
+    private int voteCount;
+
+    /** Time in milliseconds when the details were fetched from the network */
+    @ColumnInfo(name = "fetched_at")
+    private long fetchedAt;
+
+    /** Time in milliseconds when the details were last shown, used to evict the cache */
+    @ColumnInfo(name = "last_viewed_at", defaultValue = "0")
+    private long lastViewedAt;
+
+    /**
+     * Constructor used by Room to create CachedDetailsEntries
+     */
+    public CachedDetailsEntry(int movieId, long budget, int runtime, long revenue, String status,
+                              int voteCount, long fetchedAt, long lastViewedAt) {
+        this.movieId = movieId;
+        this.budget = budget;
+        this.runtime = runtime;
+        this.revenue = revenue;
+        this.status = status;
+        this.voteCount = voteCount;
+        this.fetchedAt = fetchedAt;
+        this.lastViewedAt = lastViewedAt;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param movieId The ID of the movie
+     * @param movieDetails The details received from the network
+     * @param fetchedAt Time in milliseconds when the details were fetched, which is also when they
+     *                  were last viewed
+     */
+    @Ignore
+    public CachedDetailsEntry(int movieId, MovieDetails movieDetails, long fetchedAt) {
+        this(movieId, movieDetails.getBudget(), movieDetails.getRuntime(), movieDetails.getRevenue(),
+                movieDetails.getStatus(), movieDetails.getVoteCount(), fetchedAt, fetchedAt);
+    }
+
+    /**
+     * Returns a {@link MovieDetails} object built from the cached data, without the genres,
+     * credits, videos and reviews
+     */
+    public MovieDetails toMovieDetails() {
+        MovieDetails movieDetails = new MovieDetails();
+        movieDetails.setBudget(budget);
+        movieDetails.setRuntime(runtime);
+        movieDetails.setRevenue(revenue);
+        movieDetails.setStatus(status);
+        movieDetails.setVoteCount(voteCount);
+        return movieDetails;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public int getRuntime() {
+        return runtime;
+    }
+
+    public long getRevenue() {
+        return revenue;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getVoteCount() {
+        return voteCount;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public long getLastViewedAt() {
+        return lastViewedAt;
+    }
+}
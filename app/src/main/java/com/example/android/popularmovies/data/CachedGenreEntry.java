@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+import com.example.android.popularmovies.model.Genre;
+
+/**
+ * A {@link CachedGenreEntry} is a single genre of a movie whose details are cached on disk.
+ * Rows are keyed by the movie ID and the position in the response, so that they are served in the
+ * same order they were received from the network.
+ */
+@Entity(tableName = "cached_genre", primaryKeys = {"movie_id", "position"})
+public class CachedGenreEntry {
+
+    @ColumnInfo(name = "movie_id")
+    private int movieId;
+
+    private int position;
+
+    @ColumnInfo(name = "genre_id")
+    private int genreId;
+
+    @ColumnInfo(name = "genre_name")
+    private String genreName;
+
+    /**
+     * Constructor used by Room to create CachedGenreEntries
+     */
+    public CachedGenreEntry(int movieId, int position, int genreId, String genreName) {
+        this.movieId = movieId;
+        this.position = position;
+        this.genreId = genreId;
+        this.genreName = genreName;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param movieId The ID of the movie
+     * @param position The position of the genre in the response
+     * @param genre The genre received from the network
+     */
+    @Ignore
+    public CachedGenreEntry(int movieId, int position, Genre genre) {
+        this(movieId, position, genre.getGenreId(), genre.getGenreName());
+    }
+
+    /**
+     * Returns a {@link Genre} object built from the cached data
+     */
+    public Genre toGenre() {
+        Genre genre = new Genre();
+        genre.setGenreId(genreId);
+        genre.setGenreName(genreName);
+        return genre;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getGenreId() {
+        return genreId;
+    }
+
+    public String getGenreName() {
+        return genreName;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+/**
+ * {@link Dao} which provides an API for the movie pages cached in the MovieDatabase.
+ */
+@Dao
+public abstract class CachedMovieDao {
+
+    @Query("SELECT * FROM cached_movie WHERE sort_criteria = :sortCriteria AND page = :page "
+            + "ORDER BY position")
+    public abstract List<CachedMovieEntry> loadPage(String sortCriteria, int page);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertMovies(List<CachedMovieEntry> cachedMovieEntries);
+
+    @Query("DELETE FROM cached_movie WHERE sort_criteria = :sortCriteria AND page = :page")
+    public abstract void deletePage(String sortCriteria, int page);
+
+    /**
+     * Delete the cached pages fetched before the given time
+     *
+     * @return The number of cached movies deleted
+     */
+    @Query("DELETE FROM cached_movie WHERE fetched_at < :fetchedBefore")
+    public abstract int deletePagesFetchedBefore(long fetchedBefore);
+
+    /**
+     * Replace the cached page so that a shorter page from the network doesn't leave stale rows behind
+     */
+    @Transaction
+    public void replacePage(String sortCriteria, int page, List<CachedMovieEntry> cachedMovieEntries) {
+        deletePage(sortCriteria, page);
+        insertMovies(cachedMovieEntries);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+
+import com.example.android.popularmovies.model.Movie;
+
+/**
+ * A {@link CachedMovieEntry} is a single movie of a TMDb page that has been cached on disk.
+ * Rows are keyed by the sort criteria, the page number and the position of the movie within the page,
+ * so that a page can be served in the same order it was received from the network.
+ * The index on movie_id finds the other copies of a movie cached under several sort criteria.
+ */
+@Entity(tableName = "cached_movie", primaryKeys = {"sort_criteria", "page", "position"},
+        indices = {@Index(value = "movie_id")})
+public class CachedMovieEntry {
+
+    @NonNull
+    @ColumnInfo(name = "sort_criteria")
+    private String sortCriteria;
+
+    private int page;
+
+    private int position;
+
+    @ColumnInfo(name = "movie_id")
+    private int movieId;
+
+    @ColumnInfo(name = "original_title")
+    private String originalTitle;
+
+    private String title;
+
+    @ColumnInfo(name = "poster_path")
+    private String posterPath;
+
+    private String overview;
+
+    @ColumnInfo(name = "vote_average")
+    private double voteAverage;
+
+    @ColumnInfo(name = "release_date")
+    private String releaseDate;
+
+    @ColumnInfo(name = "backdrop_path")
+    private String backdropPath;
+
+    /** Time in milliseconds when the page was fetched from the network */
+    @ColumnInfo(name = "fetched_at")
+    private long fetchedAt;
+
+    /**
+     * Constructor used by Room to create CachedMovieEntries
+     */
+    public CachedMovieEntry(@NonNull String sortCriteria, int page, int position, int movieId,
+                            String originalTitle, String title, String posterPath, String overview,
+                            double voteAverage, String releaseDate, String backdropPath, long fetchedAt) {
+        this.sortCriteria = sortCriteria;
+        this.page = page;
+        this.position = position;
+        this.movieId = movieId;
+        this.originalTitle = originalTitle;
+        this.title = title;
+        this.posterPath = posterPath;
+        this.overview = overview;
+        this.voteAverage = voteAverage;
+        this.releaseDate = releaseDate;
+        this.backdropPath = backdropPath;
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param sortCriteria The sort order the page was requested with
+     * @param page The page number
+     * @param position The position of the movie within the page
+     * @param movie The movie received from the network
+     * @param fetchedAt Time in milliseconds when the page was fetched
+     */
+    @Ignore
+    public CachedMovieEntry(@NonNull String sortCriteria, int page, int position, Movie movie,
+                            long fetchedAt) {
+        this(sortCriteria, page, position, movie.getId(), movie.getOriginalTitle(), movie.getTitle(),
+                movie.getPosterPath(), movie.getOverview(), movie.getVoteAverage(),
+                movie.getReleaseDate(), movie.getBackdropPath(), fetchedAt);
+    }
+
+    /**
+     * Returns a {@link Movie} object built from the cached data
+     */
+    public Movie toMovie() {
+        return new Movie(movieId, originalTitle, title, posterPath, overview, voteAverage,
+                releaseDate, backdropPath);
+    }
+
+    @NonNull
+    public String getSortCriteria() {
+        return sortCriteria;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public String getOriginalTitle() {
+        return originalTitle;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getPosterPath() {
+        return posterPath;
+    }
+
+    public String getOverview() {
+        return overview;
+    }
+
+    public double getVoteAverage() {
+        return voteAverage;
+    }
+
+    public String getReleaseDate() {
+        return releaseDate;
+    }
+
+    public String getBackdropPath() {
+        return backdropPath;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+/**
+ * A {@link CachedMovieFtsEntry} is the full-text search index of the movies of the cached pages in the cached_movie table.
+ * The FTS4 table only indexes the text, which is read from {@link CachedMovieEntry}, and Room keeps the
+ * index in sync with triggers on the content table.
+ */
+@Fts4(contentEntity = CachedMovieEntry.class)
+@Entity(tableName = "cached_movie_fts")
+public class CachedMovieFtsEntry {
+
+    private String title;
+
+    @ColumnInfo(name = "original_title")
+    private String originalTitle;
+
+    private String overview;
+
+    /**
+     * Constructor used by Room to create CachedMovieFtsEntries
+     */
+    public CachedMovieFtsEntry(String title, String originalTitle, String overview) {
+        this.title = title;
+        this.originalTitle = originalTitle;
+        this.overview = overview;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getOriginalTitle() {
+        return originalTitle;
+    }
+
+    public String getOverview() {
+        return overview;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * A {@link CachedMovieUsage} tells when the cached details of a movie were last viewed. It is
+ * what the {@link CacheEvictionPolicy} orders the movies by.
+ */
+public class CachedMovieUsage {
+
+    @ColumnInfo(name = "movie_id")
+    private int movieId;
+
+    @ColumnInfo(name = "last_viewed_at")
+    private long lastViewedAt;
+
+    /**
+     * Constructor used by Room to create CachedMovieUsages
+     */
+    public CachedMovieUsage(int movieId, long lastViewedAt) {
+        this.movieId = movieId;
+        this.lastViewedAt = lastViewedAt;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public long getLastViewedAt() {
+        return lastViewedAt;
+    }
+}
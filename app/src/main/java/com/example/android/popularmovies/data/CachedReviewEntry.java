@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+import com.example.android.popularmovies.model.Review;
+
+/**
+ * A {@link CachedReviewEntry} is a single review of a movie whose details are cached on disk.
+ * Rows are keyed by the movie ID and the position in the response, so that they are served in the
+ * same order they were received from the network.
+ */
+@Entity(tableName = "cached_review", primaryKeys = {"movie_id", "position"})
+public class CachedReviewEntry {
+
+    @ColumnInfo(name = "movie_id")
+    private int movieId;
+
+    private int position;
+
+    @ColumnInfo(name = "review_id")
+    private String reviewId;
+
+    private String author;
+
+    private String content;
+
+    private String url;
+
+    /**
+     * Constructor used by Room to create CachedReviewEntries
+     */
+    public CachedReviewEntry(int movieId, int position, String reviewId, String author,
+                             String content, String url) {
+        this.movieId = movieId;
+        this.position = position;
+        this.reviewId = reviewId;
+        this.author = author;
+        this.content = content;
+        this.url = url;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param movieId The ID of the movie
+     * @param position The position of the review in the response
+     * @param review The review received from the network
+     */
+    @Ignore
+    public CachedReviewEntry(int movieId, int position, Review review) {
+        this(movieId, position, review.getId(), review.getAuthor(), review.getContent(),
+                review.getUrl());
+    }
+
+    /**
+     * Returns a {@link Review} object built from the cached data
+     */
+    public Review toReview() {
+        Review review = new Review();
+        review.setId(reviewId);
+        review.setAuthor(author);
+        review.setContent(content);
+        review.setUrl(url);
+        return review;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public String getReviewId() {
+        return reviewId;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+import com.example.android.popularmovies.model.Video;
+
+/**
+ * A {@link CachedVideoEntry} is a single video of a movie whose details are cached on disk.
+ * Rows are keyed by the movie ID and the position in the response, so that they are served in the
+ * same order they were received from the network.
+ */
+@Entity(tableName = "cached_video", primaryKeys = {"movie_id", "position"})
+public class CachedVideoEntry {
+
+    @ColumnInfo(name = "movie_id")
+    private int movieId;
+
+    private int position;
+
+    @ColumnInfo(name = "video_id")
+    private String videoId;
+
+    @ColumnInfo(name = "video_key")
+    private String videoKey;
+
+    private String name;
+
+    private String site;
+
+    private int size;
+
+    private String type;
+
+    /**
+     * Constructor used by Room to create CachedVideoEntries
+     */
+    public CachedVideoEntry(int movieId, int position, String videoId, String videoKey,
+                            String name, String site, int size, String type) {
+        this.movieId = movieId;
+        this.position = position;
+        this.videoId = videoId;
+        this.videoKey = videoKey;
+        this.name = name;
+        this.site = site;
+        this.size = size;
+        this.type = type;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param movieId The ID of the movie
+     * @param position The position of the video in the response
+     * @param video The video received from the network
+     */
+    @Ignore
+    public CachedVideoEntry(int movieId, int position, Video video) {
+        this(movieId, position, video.getVideoId(), video.getKey(), video.getName(),
+                video.getSite(), video.getSize(), video.getType());
+    }
+
+    /**
+     * Returns a {@link Video} object built from the cached data
+     */
+    public Video toVideo() {
+        Video video = new Video();
+        video.setVideoId(videoId);
+        video.setKey(videoKey);
+        video.setName(name);
+        video.setSite(site);
+        video.setSize(size);
+        video.setType(type);
+        return video;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public String getVideoId() {
+        return videoId;
+    }
+
+    public String getVideoKey() {
+        return videoKey;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSite() {
+        return site;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * A {@link FavoriteThumb} holds the columns of a favorite movie shown in the favorites grid.
+ * The full {@link MovieEntry} is only loaded when the movie is opened.
+ */
+public class FavoriteThumb {
+
+    @ColumnInfo(name = "movie_id")
+    private int movieId;
+
+    private String title;
+
+    @ColumnInfo(name = "poster_path")
+    private String posterPath;
+
+    /**
+     * Constructor used by Room to create FavoriteThumbs
+     */
+    public FavoriteThumb(int movieId, String title, String posterPath) {
+        this.movieId = movieId;
+        this.title = title;
+        this.posterPath = posterPath;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getPosterPath() {
+        return posterPath;
+    }
+}
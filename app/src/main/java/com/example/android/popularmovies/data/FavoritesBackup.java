@@ -0,0 +1,368 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import android.database.Cursor;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.example.android.popularmovies.utilities.Constant.FAVORITES_BACKUP_VERSION;
+
+/**
+ * {@link FavoritesBackup} exports the favorite movies to a JSON file and imports them back, so that
+ * the favorites can be moved to another device. The file has the form
+ * <pre>
+ * {"version": 1,
+ *  "genres": [{"id": 28, "name": "Action"}, ...],
+ *  "movies": [{"movie_id": 299536, "title": "Avengers: Infinity War", ..., "genre_ids": [28]}, ...]}
+ * </pre>
+ * Both directions stream the movies one at a time, so the memory used doesn't grow with the number
+ * of favorites. The export writes the rows of a Cursor as it moves through them, and the import
+ * inserts every movie as soon as it is read, all in one transaction. A movie can only be linked to
+ * a genre that is stored by then, so the genres must come before the movies, as the export writes
+ * them.
+ * <p>
+ * Every method does disk I/O, so they are called from AppExecutors.diskIO(). Running on the
+ * executor that does every write to the favorites also keeps an export consistent.
+ */
+public class FavoritesBackup {
+
+    private static final String CHARSET_NAME = "UTF-8";
+
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_GENRES = "genres";
+    private static final String KEY_MOVIES = "movies";
+    private static final String KEY_GENRE_ID = "id";
+    private static final String KEY_GENRE_NAME = "name";
+    private static final String KEY_MOVIE_ID = "movie_id";
+    private static final String KEY_ORIGINAL_TITLE = "original_title";
+    private static final String KEY_TITLE = "title";
+    private static final String KEY_POSTER_PATH = "poster_path";
+    private static final String KEY_OVERVIEW = "overview";
+    private static final String KEY_VOTE_AVERAGE = "vote_average";
+    private static final String KEY_RELEASE_DATE = "release_date";
+    private static final String KEY_BACKDROP_PATH = "backdrop_path";
+    private static final String KEY_DATE = "date";
+    private static final String KEY_RUNTIME = "runtime";
+    private static final String KEY_RELEASE_YEAR = "release_year";
+    private static final String KEY_GENRE_IDS = "genre_ids";
+
+    private static final String GENRE_IDS_SEPARATOR = ",";
+
+    private final MovieDatabase mDatabase;
+
+    public FavoritesBackup(MovieDatabase database) {
+        mDatabase = database;
+    }
+
+    /**
+     * Write every favorite movie and the genres to the stream, which is closed afterwards
+     *
+     * @return The number of favorite movies written
+     */
+    public int exportFavorites(OutputStream outputStream) throws IOException {
+        MovieDao movieDao = mDatabase.movieDao();
+        JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(outputStream, CHARSET_NAME)));
+        int count = 0;
+        try {
+            writer.beginObject();
+            writer.name(KEY_VERSION).value(FAVORITES_BACKUP_VERSION);
+
+            writer.name(KEY_GENRES).beginArray();
+            for (GenreEntry genreEntry : movieDao.loadGenres()) {
+                writer.beginObject();
+                writer.name(KEY_GENRE_ID).value(genreEntry.getId());
+                writer.name(KEY_GENRE_NAME).value(genreEntry.getName());
+                writer.endObject();
+            }
+            writer.endArray();
+
+            writer.name(KEY_MOVIES).beginArray();
+            Cursor cursor = movieDao.loadFavoritesWithGenreIds();
+            try {
+                while (cursor.moveToNext()) {
+                    writeMovie(writer, cursor);
+                    count++;
+                }
+            } finally {
+                cursor.close();
+            }
+            writer.endArray();
+            writer.endObject();
+        } finally {
+            writer.close();
+        }
+        return count;
+    }
+
+    /**
+     * Write the movie at the current position of the cursor as a JSON object
+     */
+    private static void writeMovie(JsonWriter writer, Cursor cursor) throws IOException {
+        writer.beginObject();
+        writer.name(KEY_MOVIE_ID).value(cursor.getInt(cursor.getColumnIndexOrThrow(KEY_MOVIE_ID)));
+        writeString(writer, cursor, KEY_ORIGINAL_TITLE);
+        writeString(writer, cursor, KEY_TITLE);
+        writeString(writer, cursor, KEY_POSTER_PATH);
+        writeString(writer, cursor, KEY_OVERVIEW);
+        writer.name(KEY_VOTE_AVERAGE)
+                .value(cursor.getDouble(cursor.getColumnIndexOrThrow(KEY_VOTE_AVERAGE)));
+        writeString(writer, cursor, KEY_RELEASE_DATE);
+        writeString(writer, cursor, KEY_BACKDROP_PATH);
+        int dateIndex = cursor.getColumnIndexOrThrow(KEY_DATE);
+        if (cursor.isNull(dateIndex)) {
+            writer.name(KEY_DATE).nullValue();
+        } else {
+            writer.name(KEY_DATE).value(cursor.getLong(dateIndex));
+        }
+        writeString(writer, cursor, KEY_RUNTIME);
+        writeString(writer, cursor, KEY_RELEASE_YEAR);
+
+        writer.name(KEY_GENRE_IDS).beginArray();
+        String genreIds = cursor.getString(cursor.getColumnIndexOrThrow(KEY_GENRE_IDS));
+        if (genreIds != null) {
+            for (String genreId : genreIds.split(GENRE_IDS_SEPARATOR)) {
+                writer.value(Integer.parseInt(genreId));
+            }
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private static void writeString(JsonWriter writer, Cursor cursor, String column)
+            throws IOException {
+        writer.name(column).value(cursor.getString(cursor.getColumnIndexOrThrow(column)));
+    }
+
+    /**
+     * Read a backup from the stream, which is closed afterwards, and insert its favorite movies in
+     * one transaction. A movie whose movie_id is already in the favorites is skipped, so that the
+     * favorite on this device keeps its place in the list and its genres. When the file can't be
+     * read, or its genres come after its movies, the transaction is rolled back and no movie is
+     * imported.
+     *
+     * @return The number of movies imported and skipped
+     */
+    public ImportResult importFavorites(InputStream inputStream) throws IOException {
+        MovieDao movieDao = mDatabase.movieDao();
+        JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(inputStream, CHARSET_NAME)));
+        // The movie_genre rows can only refer to the genres that are stored
+        Set<Integer> genreIds = new HashSet<>();
+        for (GenreEntry genreEntry : movieDao.loadGenres()) {
+            genreIds.add(genreEntry.getId());
+        }
+        ImportResult result = new ImportResult();
+        boolean moviesRead = false;
+
+        mDatabase.beginTransaction();
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (KEY_VERSION.equals(name)) {
+                    int version = reader.nextInt();
+                    if (version > FAVORITES_BACKUP_VERSION) {
+                        throw new IOException("Unsupported favorites backup version " + version);
+                    }
+                } else if (KEY_GENRES.equals(name)) {
+                    // The movies read so far would have been imported without these genres
+                    if (moviesRead) {
+                        throw new IOException("Favorites backup with genres after its movies");
+                    }
+                    readGenres(reader, movieDao, genreIds);
+                } else if (KEY_MOVIES.equals(name)) {
+                    readMovies(reader, movieDao, genreIds, result);
+                    moviesRead = true;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            mDatabase.setTransactionSuccessful();
+        } catch (IllegalStateException | NumberFormatException e) {
+            // JsonReader throws IllegalStateException when a value has an unexpected type
+            throw new IOException("Malformed favorites backup", e);
+        } finally {
+            mDatabase.endTransaction();
+            reader.close();
+        }
+        return result;
+    }
+
+    /**
+     * Insert the genres that are not stored yet
+     */
+    private static void readGenres(JsonReader reader, MovieDao movieDao, Set<Integer> genreIds)
+            throws IOException {
+        List<GenreEntry> genreEntries = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int id = 0;
+            String genreName = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (KEY_GENRE_ID.equals(name)) {
+                    id = reader.nextInt();
+                } else if (KEY_GENRE_NAME.equals(name)) {
+                    genreName = nextString(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (genreName != null) {
+                genreEntries.add(new GenreEntry(id, genreName));
+                genreIds.add(id);
+            }
+        }
+        reader.endArray();
+        movieDao.insertGenres(genreEntries);
+    }
+
+    /**
+     * Insert each movie and its genres as soon as it is read
+     */
+    private static void readMovies(JsonReader reader, MovieDao movieDao, Set<Integer> genreIds,
+                                   ImportResult result) throws IOException {
+        // Reused for every movie, so that the import allocates the same for any number of movies
+        List<Integer> movieGenreIds = new ArrayList<>();
+        List<MovieGenreEntry> movieGenreEntries = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            movieGenreIds.clear();
+            MovieEntry movieEntry = readMovie(reader, movieGenreIds);
+            if (movieDao.insertMovieIfAbsent(movieEntry) == -1) {
+                result.mSkippedCount++;
+                continue;
+            }
+            result.mImportedCount++;
+
+            movieGenreEntries.clear();
+            for (Integer genreId : movieGenreIds) {
+                if (genreIds.contains(genreId)) {
+                    movieGenreEntries.add(new MovieGenreEntry(movieEntry.getMovieId(), genreId));
+                }
+            }
+            movieDao.insertMovieGenres(movieGenreEntries);
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Read a movie object, adding the IDs of its genres to the list
+     */
+    private static MovieEntry readMovie(JsonReader reader, List<Integer> genreIds)
+            throws IOException {
+        Integer movieId = null;
+        String originalTitle = null;
+        String title = null;
+        String posterPath = null;
+        String overview = null;
+        double voteAverage = 0;
+        String releaseDate = null;
+        String backdropPath = null;
+        Date date = null;
+        String runtime = null;
+        String releaseYear = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if (KEY_MOVIE_ID.equals(name)) {
+                movieId = reader.nextInt();
+            } else if (KEY_ORIGINAL_TITLE.equals(name)) {
+                originalTitle = reader.nextString();
+            } else if (KEY_TITLE.equals(name)) {
+                title = reader.nextString();
+            } else if (KEY_POSTER_PATH.equals(name)) {
+                posterPath = reader.nextString();
+            } else if (KEY_OVERVIEW.equals(name)) {
+                overview = reader.nextString();
+            } else if (KEY_VOTE_AVERAGE.equals(name)) {
+                voteAverage = reader.nextDouble();
+            } else if (KEY_RELEASE_DATE.equals(name)) {
+                releaseDate = reader.nextString();
+            } else if (KEY_BACKDROP_PATH.equals(name)) {
+                backdropPath = reader.nextString();
+            } else if (KEY_DATE.equals(name)) {
+                date = new Date(reader.nextLong());
+            } else if (KEY_RUNTIME.equals(name)) {
+                runtime = reader.nextString();
+            } else if (KEY_RELEASE_YEAR.equals(name)) {
+                releaseYear = reader.nextString();
+            } else if (KEY_GENRE_IDS.equals(name)) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    genreIds.add(reader.nextInt());
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (movieId == null) {
+            throw new IOException("Favorite movie without a movie_id");
+        }
+        return new MovieEntry(movieId, originalTitle, title, posterPath, overview, voteAverage,
+                releaseDate, backdropPath, date, runtime, releaseYear);
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * The number of movies imported from a backup, and skipped because they were already favorites
+     */
+    public static class ImportResult {
+        private int mImportedCount;
+        private int mSkippedCount;
+
+        public int getImportedCount() {
+            return mImportedCount;
+        }
+
+        public int getSkippedCount() {
+            return mSkippedCount;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+import com.example.android.popularmovies.model.Genre;
+
+/**
+ * A {@link GenreEntry} is a TMDb genre of the favorite movies, keyed by the TMDb genre ID.
+ */
+@Entity(tableName = "genre")
+public class GenreEntry {
+
+    @PrimaryKey
+    private int id;
+
+    private String name;
+
+    /**
+     * Constructor used by Room to create GenreEntries
+     */
+    public GenreEntry(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    /**
+     * Constructor
+     *
+     * @param genre The genre received from the network
+     */
+    @Ignore
+    public GenreEntry(Genre genre) {
+        this(genre.getGenreId(), genre.getGenreName());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
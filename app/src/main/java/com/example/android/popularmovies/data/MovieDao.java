@@ -16,29 +16,245 @@
 
 package com.example.android.popularmovies.data;
 
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
+import androidx.paging.DataSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.InvalidationTracker;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RoomDatabase;
+import androidx.room.Transaction;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import static com.example.android.popularmovies.utilities.Constant.MAX_MOVIE_IDS_PER_QUERY;
+
 /**
  * {@link Dao} which provides an API for all data operations with the MovieDatabase.
  */
 @Dao
-public interface MovieDao {
+public abstract class MovieDao {
+
+    /** The ranks of the search results: favorites, then cached movies, title matches first */
+    static final int SEARCH_RANK_FAVORITE_TITLE = 0;
+    static final int SEARCH_RANK_CACHED_TITLE = 1;
+    static final int SEARCH_RANK_FAVORITE = 2;
+    static final int SEARCH_RANK_CACHED = 3;
+    static final int SEARCH_RANK_COUNT = 4;
+
+    /** The columns of a SearchResult, followed by its rank */
+    private static final String SELECT_SEARCH_RESULT = "SELECT movie_id, original_title, title, "
+            + "poster_path, overview, vote_average, release_date, backdrop_path, ";
+
+    /**
+     * The results after the key of the previous page, in the order of their titles. The movie ID
+     * breaks the ties, since a movie is returned at most once.
+     */
+    private static final String AFTER_KEY_BY_TITLE = "AND (ifnull(title, '') > :afterTitle "
+            + "OR (ifnull(title, '') = :afterTitle AND movie_id > :afterMovieId)) "
+            + "ORDER BY ifnull(title, ''), movie_id LIMIT :limit";
+
+    /**
+     * Leaves out a cached movie that is also a favorite, and returns a movie cached under several
+     * sort criteria once, from the row cached first
+     */
+    private static final String CACHED_MOVIE_IS_NEW = "cached_movie.movie_id NOT IN "
+            + "(SELECT movie_id FROM movie) AND NOT EXISTS (SELECT 1 FROM cached_movie AS earlier "
+            + "WHERE earlier.movie_id = cached_movie.movie_id AND earlier.rowid < cached_movie.rowid) ";
+
+    /** The InvalidationTracker of the database, which tells the search results to reload */
+    private final InvalidationTracker mInvalidationTracker;
+
+    /**
+     * Constructor used by Room, which passes the database the DAO belongs to
+     */
+    MovieDao(RoomDatabase database) {
+        mInvalidationTracker = database.getInvalidationTracker();
+    }
+
+    /**
+     * Load only the columns shown in the favorites grid, in the order the movies were added
+     */
+    @Query("SELECT movie_id, title, poster_path FROM movie ORDER BY id")
+    public abstract DataSource.Factory<Integer, FavoriteThumb> loadFavoriteThumbs();
+
+    /**
+     * Load the favorites of a genre, in the order the movies were added. The join is served by
+     * the index on movie_genre.genre_id and the unique index on movie.movie_id.
+     */
+    @Query("SELECT movie.movie_id, title, poster_path FROM movie INNER JOIN movie_genre "
+            + "ON movie.movie_id = movie_genre.movie_id WHERE movie_genre.genre_id = :genreId "
+            + "ORDER BY movie.id")
+    public abstract DataSource.Factory<Integer, FavoriteThumb> loadFavoriteThumbsByGenre(int genreId);
+
+    /**
+     * Load the genres that at least one favorite movie belongs to, sorted by name
+     */
+    @Query("SELECT * FROM genre WHERE id IN (SELECT genre_id FROM movie_genre) ORDER BY name")
+    public abstract LiveData<List<GenreEntry>> loadFavoriteGenres();
+
+    @Query("SELECT genre.* FROM genre INNER JOIN movie_genre ON genre.id = movie_genre.genre_id "
+            + "WHERE movie_genre.movie_id = :movieId ORDER BY genre.name")
+    public abstract LiveData<List<GenreEntry>> loadGenresByMovieId(int movieId);
+
+    /**
+     * Insert the genres that are not stored yet. Replacing a genre would delete its movie_genre
+     * rows through the foreign key, so existing genres are kept as they are.
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract void insertGenres(List<GenreEntry> genreEntries);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract void insertMovieGenres(List<MovieGenreEntry> movieGenreEntries);
+
+    /**
+     * Insert the favorite movie together with its genres in a single transaction. Replacing the
+     * movie deletes its previous movie_genre rows through the foreign key.
+     *
+     * @param movieEntry The favorite movie
+     * @param genreEntries The genres of the movie
+     */
+    @Transaction
+    public void insertFavoriteMovie(MovieEntry movieEntry, List<GenreEntry> genreEntries) {
+        insertMovie(movieEntry);
+        insertGenres(genreEntries);
+        List<MovieGenreEntry> movieGenreEntries = new ArrayList<>(genreEntries.size());
+        for (GenreEntry genreEntry : genreEntries) {
+            movieGenreEntries.add(new MovieGenreEntry(movieEntry.getMovieId(), genreEntry.getId()));
+        }
+        insertMovieGenres(movieGenreEntries);
+    }
+
+    /**
+     * Insert the movie unless the movie_id is already in the favorites
+     *
+     * @return The row ID of the inserted movie, or -1 when the movie_id is already stored
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    abstract long insertMovieIfAbsent(MovieEntry movieEntry);
 
-    @Query("SELECT * FROM movie")
-    LiveData<List<MovieEntry>> loadAllMovies();
+    /**
+     * Insert the movie, or replace it when the movie_id is already in the favorites
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertMovie(MovieEntry movieEntry);
 
-    @Insert
-    void insertMovie(MovieEntry movieEntry);
+    /**
+     * Insert or replace the movies in a single transaction
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertMovies(List<MovieEntry> movieEntries);
 
     @Delete
-    void deleteMovie(MovieEntry movieEntry);
+    public abstract void deleteMovie(MovieEntry movieEntry);
+
+    /**
+     * Delete the movies in a single transaction
+     */
+    @Delete
+    public abstract void deleteMovies(List<MovieEntry> movieEntries);
+
+    @Query("DELETE FROM movie WHERE movie_id = :movieId")
+    public abstract void deleteMovieByMovieId(int movieId);
+
+    @Query("DELETE FROM movie WHERE movie_id IN (:movieIds)")
+    abstract void deleteMoviesByMovieIdsChunk(List<Integer> movieIds);
+
+    /**
+     * Delete the movies with the given movie IDs in a single transaction. The IDs are bound in
+     * chunks of MAX_MOVIE_IDS_PER_QUERY to stay below the SQLite limit on bound variables.
+     */
+    @Transaction
+    public void deleteMoviesByMovieIds(List<Integer> movieIds) {
+        for (int start = 0; start < movieIds.size(); start += MAX_MOVIE_IDS_PER_QUERY) {
+            int end = Math.min(start + MAX_MOVIE_IDS_PER_QUERY, movieIds.size());
+            deleteMoviesByMovieIdsChunk(movieIds.subList(start, end));
+        }
+    }
+
+    @Query("SELECT * FROM movie WHERE movie_id = :movieId")
+    public abstract LiveData<MovieEntry> loadMovieByMovieId(int movieId);
 
     @Query("SELECT * FROM movie WHERE movie_id = :movieId")
-    LiveData<MovieEntry> loadMovieByMovieId(int movieId);
+    public abstract MovieEntry loadMovieEntryByMovieId(int movieId);
+
+    @Query("SELECT * FROM genre")
+    abstract List<GenreEntry> loadGenres();
+
+    /**
+     * Load every favorite movie with the comma-separated IDs of its genres as genre_ids, in the
+     * order the movies were added. The rows are returned as a Cursor, so that a backup reads them
+     * window by window instead of holding every favorite in memory.
+     */
+    @Query("SELECT movie.*, (SELECT group_concat(genre_id) FROM movie_genre "
+            + "WHERE movie_genre.movie_id = movie.movie_id) AS genre_ids FROM movie ORDER BY id")
+    abstract Cursor loadFavoritesWithGenreIds();
+
+    @Query("SELECT EXISTS(SELECT 1 FROM movie WHERE movie_id = :movieId)")
+    public abstract LiveData<Boolean> isFavorite(int movieId);
+
+    /**
+     * Search the favorite movies and the cached pages of movies through their FTS4 indexes.
+     * Favorites rank above cached movies, and movies whose title matches every word of the query
+     * rank above movies that only match on the original title or the overview. The results are
+     * loaded page by page by a {@link MovieSearchDataSource}, which reloads when the favorites or
+     * the cached movies change.
+     *
+     * @param query The FTS4 query matched against every indexed column, e.g. "star* war*"
+     * @param titleQuery The same query matched against the title only, e.g. "title:star* title:war*"
+     */
+    public DataSource.Factory<MovieSearchDataSource.Key, SearchResult> searchMovies(
+            final String query, final String titleQuery) {
+        return new DataSource.Factory<MovieSearchDataSource.Key, SearchResult>() {
+            @NonNull
+            @Override
+            public DataSource<MovieSearchDataSource.Key, SearchResult> create() {
+                return new MovieSearchDataSource(MovieDao.this, mInvalidationTracker, query,
+                        titleQuery);
+            }
+        };
+    }
+
+    /*
+     * The queries of the search ranks. Each one matches the FTS4 index and reads the rows back by
+     * rowid, so an index entry left behind by a REPLACE conflict, which doesn't fire the delete
+     * triggers, never matches a row. The matches of the titles are left out of the ranks that
+     * match every column.
+     */
+
+    @Query(SELECT_SEARCH_RESULT + SEARCH_RANK_FAVORITE_TITLE + " AS search_rank "
+            + "FROM (SELECT docid FROM movie_fts WHERE movie_fts MATCH :titleQuery) AS hit "
+            + "INNER JOIN movie ON movie.rowid = hit.docid WHERE 1 " + AFTER_KEY_BY_TITLE)
+    abstract List<SearchResult> searchFavoriteTitles(String titleQuery, String afterTitle,
+                                                     int afterMovieId, int limit);
+
+    @Query(SELECT_SEARCH_RESULT + SEARCH_RANK_CACHED_TITLE + " AS search_rank "
+            + "FROM (SELECT docid FROM cached_movie_fts WHERE cached_movie_fts MATCH :titleQuery) "
+            + "AS hit INNER JOIN cached_movie ON cached_movie.rowid = hit.docid "
+            + "WHERE " + CACHED_MOVIE_IS_NEW + AFTER_KEY_BY_TITLE)
+    abstract List<SearchResult> searchCachedTitles(String titleQuery, String afterTitle,
+                                                   int afterMovieId, int limit);
+
+    @Query(SELECT_SEARCH_RESULT + SEARCH_RANK_FAVORITE + " AS search_rank "
+            + "FROM (SELECT docid FROM movie_fts WHERE movie_fts MATCH :query) AS hit "
+            + "INNER JOIN movie ON movie.rowid = hit.docid WHERE hit.docid NOT IN "
+            + "(SELECT docid FROM movie_fts WHERE movie_fts MATCH :titleQuery) "
+            + AFTER_KEY_BY_TITLE)
+    abstract List<SearchResult> searchFavorites(String query, String titleQuery,
+                                                String afterTitle, int afterMovieId, int limit);
+
+    @Query(SELECT_SEARCH_RESULT + SEARCH_RANK_CACHED + " AS search_rank "
+            + "FROM (SELECT docid FROM cached_movie_fts WHERE cached_movie_fts MATCH :query) "
+            + "AS hit INNER JOIN cached_movie ON cached_movie.rowid = hit.docid "
+            + "WHERE hit.docid NOT IN (SELECT docid FROM cached_movie_fts "
+            + "WHERE cached_movie_fts MATCH :titleQuery) AND " + CACHED_MOVIE_IS_NEW
+            + AFTER_KEY_BY_TITLE)
+    abstract List<SearchResult> searchCachedMovies(String query, String titleQuery,
+                                                   String afterTitle, int afterMovieId, int limit);
 }
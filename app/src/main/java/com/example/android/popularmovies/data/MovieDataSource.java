@@ -16,30 +16,48 @@
 
 package com.example.android.popularmovies.data;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 import androidx.paging.PageKeyedDataSource;
 
+import com.example.android.popularmovies.AppExecutors;
 import com.example.android.popularmovies.model.Movie;
 import com.example.android.popularmovies.model.MovieResponse;
 import com.example.android.popularmovies.utilities.Constant;
-import com.example.android.popularmovies.utilities.Controller;
+import com.example.android.popularmovies.utilities.RequestPriority;
 import com.example.android.popularmovies.utilities.TheMovieApi;
 
+import java.util.List;
+import java.util.Random;
+
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
+import static com.example.android.popularmovies.utilities.Constant.MAX_RETRY_ATTEMPTS;
 import static com.example.android.popularmovies.utilities.Constant.NEXT_PAGE_KEY_TWO;
+import static com.example.android.popularmovies.utilities.Constant.PAGE_ONE;
 import static com.example.android.popularmovies.utilities.Constant.PREVIOUS_PAGE_KEY_ONE;
 import static com.example.android.popularmovies.utilities.Constant.RESPONSE_CODE_API_STATUS;
+import static com.example.android.popularmovies.utilities.Constant.RETRY_BASE_DELAY_MILLIS;
+import static com.example.android.popularmovies.utilities.Constant.RETRY_MAX_DELAY_MILLIS;
 
 /**
  * The MovieDataSource is the base class for loading snapshots of movie data into a given PagedList,
  * which is backed by the network. Since the TMDb API includes a key with each page load, extend
  * from PageKeyedDataSource.
  *
+ * Each page is served from the disk cache in {@link MovieRepository} when it has been fetched within
+ * the cache TTL, and only requested from the network otherwise. Pages received from the network are
+ * written back to the cache, and a stale cached page is used when the network request fails.
+ * Without a cached page, a failed request is retried with an exponential backoff, and the page can
+ * be re-issued with {@link #retry()} once the retries are used up.
+ *
  * Reference: @see "https://proandroiddev.com/8-steps-to-implement-paging-library-in-android-d02500f7fffe"
  * "https://www.youtube.com/watch?v=Ts-uxYiBEQ8" "https://www.youtube.com/watch?v=QVMqCRs0BNA"
  * "https://codelabs.developers.google.com/codelabs/android-paging/index.html#2"
@@ -52,11 +70,27 @@ public class MovieDataSource extends PageKeyedDataSource<Integer, Movie> {
     /** Member variable for TheMovieApi interface */
     private TheMovieApi mTheMovieApi;
 
+    /** Member variable for the MovieRepository which caches the pages of movies */
+    private MovieRepository mRepository;
+
     /** String for the sort order of the movies */
     private String mSortCriteria;
 
-    public MovieDataSource(String sortCriteria) {
-        mTheMovieApi = Controller.getClient().create(TheMovieApi.class);
+    /** The state of the page loads, used to show loading and failure in the UI */
+    private final MutableLiveData<NetworkState> mNetworkState = new MutableLiveData<>();
+
+    /** Load of the page that failed, which is re-issued by retry() */
+    private volatile Runnable mRetry;
+
+    /** Handler used to schedule the retries after the backoff delay */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /** Random used for the jitter of the backoff delay */
+    private final Random mRandom = new Random();
+
+    public MovieDataSource(MovieRepository repository, String sortCriteria) {
+        mTheMovieApi = repository.getTheMovieApi();
+        mRepository = repository;
         mSortCriteria = sortCriteria;
     }
 
@@ -66,26 +100,20 @@ public class MovieDataSource extends PageKeyedDataSource<Integer, Movie> {
     @Override
     public void loadInitial(@NonNull LoadInitialParams<Integer> params,
                             @NonNull final LoadInitialCallback<Integer, Movie> callback) {
-        mTheMovieApi.getMovies(mSortCriteria, Constant.API_KEY, Constant.LANGUAGE, Constant.PAGE_ONE)
-                .enqueue(new Callback<MovieResponse>() {
-                    @Override
-                    public void onResponse(Call<MovieResponse> call, Response<MovieResponse> response) {
-                        if (response.isSuccessful()) {
-                            callback.onResult(response.body().getMovieResults(),
-                                    PREVIOUS_PAGE_KEY_ONE, NEXT_PAGE_KEY_TWO);
-
-                        } else if (response.code() == RESPONSE_CODE_API_STATUS) {
-                            Log.e(TAG, "Invalid Api key. Response code: " + response.code());
-                        } else {
-                            Log.e(TAG, "Response Code: " + response.code());
-                        }
-                    }
+        // Serve the first page from disk when it has been cached recently
+        List<Movie> cachedMovies = mRepository.getCachedMoviePage(mSortCriteria, PAGE_ONE, false);
+        if (cachedMovies != null) {
+            callback.onResult(cachedMovies, PREVIOUS_PAGE_KEY_ONE, NEXT_PAGE_KEY_TWO);
+            mNetworkState.postValue(NetworkState.LOADED);
+            return;
+        }
 
-                    @Override
-                    public void onFailure(Call<MovieResponse> call, Throwable t) {
-                        Log.e(TAG, "Failed initializing a PageList: " + t.getMessage());
-                    }
-                });
+        loadPage(PAGE_ONE, new PageCallback() {
+            @Override
+            public void onPageLoaded(List<Movie> movies) {
+                callback.onResult(movies, PREVIOUS_PAGE_KEY_ONE, NEXT_PAGE_KEY_TWO);
+            }
+        }, 0);
     }
 
     /**
@@ -105,22 +133,162 @@ public class MovieDataSource extends PageKeyedDataSource<Integer, Movie> {
                           @NonNull final LoadCallback<Integer, Movie> callback) {
 
         final int currentPage = params.key;
+        final int nextKey = currentPage + 1;
+
+        // Serve the page from disk when it has been cached recently
+        List<Movie> cachedMovies = mRepository.getCachedMoviePage(mSortCriteria, currentPage, false);
+        if (cachedMovies != null) {
+            callback.onResult(cachedMovies, nextKey);
+            mNetworkState.postValue(NetworkState.LOADED);
+            return;
+        }
+
+        loadPage(currentPage, new PageCallback() {
+            @Override
+            public void onPageLoaded(List<Movie> movies) {
+                callback.onResult(movies, nextKey);
+            }
+        }, 0);
+    }
+
+    /**
+     * Returns the LiveData of the NetworkState of the page loads
+     */
+    public LiveData<NetworkState> getNetworkState() {
+        return mNetworkState;
+    }
+
+    /**
+     * Re-issue the load of the page that failed, if any. The pages already loaded are kept.
+     */
+    public void retry() {
+        final Runnable retry = mRetry;
+        mRetry = null;
+        if (retry != null) {
+            AppExecutors.getInstance().pagingIO().execute(retry);
+        }
+    }
 
-        mTheMovieApi.getMovies(mSortCriteria, Constant.API_KEY, Constant.LANGUAGE, currentPage)
+    /**
+     * Fetch the page from the network and deliver it to the PageCallback. When the request fails,
+     * a stale cached page is used if there is one, otherwise the request is retried with an
+     * exponential backoff. Once the retries are used up, the NetworkState is set to failed and
+     * {@link #retry()} can re-issue the page.
+     *
+     * @param page The page number
+     * @param pageCallback Receives the movies of the page
+     * @param attempt The number of retries made so far
+     */
+    private void loadPage(final int page, final PageCallback pageCallback, final int attempt) {
+        mNetworkState.postValue(NetworkState.LOADING);
+
+        // The first page is shown to the user right away, the following pages are loaded ahead
+        RequestPriority priority = page == PAGE_ONE
+                ? RequestPriority.INTERACTIVE : RequestPriority.PREFETCH;
+        mTheMovieApi.getMovies(mSortCriteria, Constant.API_KEY, Constant.LANGUAGE, page, priority)
                 .enqueue(new Callback<MovieResponse>() {
                     @Override
                     public void onResponse(Call<MovieResponse> call, Response<MovieResponse> response) {
-                        if (response.isSuccessful()) {
-                            int nextKey = currentPage + 1;
-                            callback.onResult(response.body().getMovieResults(), nextKey);
+                        if (response.isSuccessful() && response.body() != null) {
+                            List<Movie> movies = response.body().getMovieResults();
+                            mRepository.cacheMoviePage(mSortCriteria, page, movies);
+                            pageCallback.onPageLoaded(movies);
+                            mNetworkState.postValue(NetworkState.LOADED);
+
+                        } else if (response.code() == RESPONSE_CODE_API_STATUS) {
+                            // Retrying won't help with an invalid API key
+                            Log.e(TAG, "Invalid Api key. Response code: " + response.code());
+                            setFailed(page, pageCallback, "Response code: " + response.code());
+                        } else {
+                            Log.e(TAG, "Response Code: " + response.code());
+                            onPageFailed(page, pageCallback, attempt, "Response code: " + response.code());
                         }
                     }
 
                     @Override
                     public void onFailure(Call<MovieResponse> call, Throwable t) {
-                        Log.e(TAG, "Failed appending page: " + t.getMessage());
+                        Log.e(TAG, "Failed loading page " + page + ": " + t.getMessage());
+                        onPageFailed(page, pageCallback, attempt, t.getMessage());
                     }
                 });
+    }
+
+    /**
+     * On the first failure, fall back to the cached page even if it is older than the cache TTL.
+     * Otherwise retry with an exponential backoff, until MAX_RETRY_ATTEMPTS is reached.
+     */
+    private void onPageFailed(final int page, final PageCallback pageCallback, final int attempt,
+                              final String message) {
+        AppExecutors.getInstance().diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (attempt == 0) {
+                    List<Movie> staleMovies = mRepository.getCachedMoviePage(mSortCriteria, page, true);
+                    if (staleMovies != null) {
+                        pageCallback.onPageLoaded(staleMovies);
+                        mNetworkState.postValue(NetworkState.LOADED);
+                        return;
+                    }
+                }
+
+                if (attempt >= MAX_RETRY_ATTEMPTS || isInvalid()) {
+                    setFailed(page, pageCallback, message);
+                    return;
+                }
+
+                long delay = getBackoffDelayMillis(attempt, mRandom.nextDouble());
+                Log.d(TAG, "Retrying page " + page + " in " + delay + " ms");
+                scheduleRetry(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!isInvalid()) {
+                            loadPage(page, pageCallback, attempt + 1);
+                        }
+                    }
+                }, delay);
+            }
+        });
+    }
+
+    /**
+     * Set the NetworkState to failed and keep the load of the page so that it can be retried
+     */
+    private void setFailed(final int page, final PageCallback pageCallback, String message) {
+        mRetry = new Runnable() {
+            @Override
+            public void run() {
+                loadPage(page, pageCallback, 0);
+            }
+        };
+        mNetworkState.postValue(NetworkState.error(message));
+    }
+
+    /**
+     * Run the retry on the main thread after the delay. The tests override it to run the retry
+     * without waiting.
+     */
+    void scheduleRetry(Runnable retry, long delayMillis) {
+        mHandler.postDelayed(retry, delayMillis);
+    }
+
+    /**
+     * Returns the delay before the next retry. The delay doubles with each attempt up to
+     * RETRY_MAX_DELAY_MILLIS, and a random jitter of up to half the delay is subtracted, so that
+     * clients that failed together don't retry together.
+     *
+     * @param attempt The number of retries made so far
+     * @param random A random value between 0 inclusive and 1 exclusive, used for the jitter
+     */
+    static long getBackoffDelayMillis(int attempt, double random) {
+        long delay = Math.min(RETRY_BASE_DELAY_MILLIS << attempt, RETRY_MAX_DELAY_MILLIS);
+        long halfDelay = delay / 2;
+        return halfDelay + (long) (random * halfDelay);
+    }
 
+    /**
+     * Receives the movies of a page, whether they came from the network or the cache
+     */
+    private interface PageCallback {
+        void onPageLoaded(List<Movie> movies);
     }
 }
@@ -16,7 +16,10 @@
 
 package com.example.android.popularmovies.data;
 
+import androidx.arch.core.util.Function;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 import androidx.paging.DataSource;
 
 import com.example.android.popularmovies.model.Movie;
@@ -28,19 +31,21 @@ public class MovieDataSourceFactory extends DataSource.Factory<Integer, Movie> {
 
     private MutableLiveData<MovieDataSource> mPostLiveData;
     private MovieDataSource mMovieDataSource;
+    private MovieRepository mRepository;
     private String mSortBy;
 
-    public MovieDataSourceFactory(String sortBy) {
+    public MovieDataSourceFactory(MovieRepository repository, String sortBy) {
         mPostLiveData = new MutableLiveData<>();
+        mRepository = repository;
         mSortBy = sortBy;
     }
 
     @Override
     public DataSource<Integer, Movie> create() {
-        mMovieDataSource = new MovieDataSource(mSortBy);
+        mMovieDataSource = new MovieDataSource(mRepository, mSortBy);
 
-        // Keep reference to the data source with a MutableLiveData reference
-        mPostLiveData = new MutableLiveData<>();
+        // Keep reference to the data source with a MutableLiveData reference. Post to the same
+        // MutableLiveData so that observers follow each new generation of the data source.
         mPostLiveData.postValue(mMovieDataSource);
 
         return mMovieDataSource;
@@ -49,4 +54,27 @@ public class MovieDataSourceFactory extends DataSource.Factory<Integer, Movie> {
     public MutableLiveData<MovieDataSource> getPostLiveData() {
         return mPostLiveData;
     }
+
+    /**
+     * Returns the LiveData of the NetworkState of the current data source
+     */
+    public LiveData<NetworkState> getNetworkState() {
+        return Transformations.switchMap(mPostLiveData,
+                new Function<MovieDataSource, LiveData<NetworkState>>() {
+                    @Override
+                    public LiveData<NetworkState> apply(MovieDataSource dataSource) {
+                        return dataSource.getNetworkState();
+                    }
+                });
+    }
+
+    /**
+     * Re-issue the page load that failed in the current data source
+     */
+    public void retry() {
+        MovieDataSource dataSource = mPostLiveData.getValue();
+        if (dataSource != null) {
+            dataSource.retry();
+        }
+    }
 }
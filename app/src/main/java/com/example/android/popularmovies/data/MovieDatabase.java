@@ -16,22 +16,41 @@
 
 package com.example.android.popularmovies.data;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 
+import com.example.android.popularmovies.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import static com.example.android.popularmovies.utilities.Constant.DATABASE_NAME;
 
 /**
  * {@link MovieDatabase} database for the application including a table for {@link MovieEntry}
- * with the DAO {@link MovieDao}
+ * with the DAO {@link MovieDao}, a table for {@link CachedMovieEntry} with the DAO {@link CachedMovieDao},
+ * the tables of the cached movie details with the DAO {@link CachedDetailsDao}, the full-text
+ * search indexes {@link MovieFtsEntry} and {@link CachedMovieFtsEntry}, and the genres of the
+ * favorite movies {@link GenreEntry} and {@link MovieGenreEntry}
  */
 
 // List of the entry classes and associated TypeConverters
-@Database(entities = {MovieEntry.class}, version = 1, exportSchema = false)
+@Database(entities = {MovieEntry.class, CachedMovieEntry.class, CachedDetailsEntry.class,
+        CachedGenreEntry.class, CachedCastEntry.class, CachedCrewEntry.class, CachedVideoEntry.class,
+        CachedReviewEntry.class, MovieFtsEntry.class, CachedMovieFtsEntry.class, GenreEntry.class,
+        MovieGenreEntry.class}, version = 8)
 @TypeConverters(DateConverter.class)
 public abstract class MovieDatabase extends RoomDatabase {
 
@@ -39,21 +58,265 @@ public abstract class MovieDatabase extends RoomDatabase {
 
     // For Singleton instantiation
     private static final Object LOCK = new Object();
-    private static MovieDatabase sInstance;
+    // Volatile, so that a thread reading it outside of the lock sees a fully built database
+    private static volatile MovieDatabase sInstance;
+
+    /** Migration that adds the cached_movie table used to cache the pages of movies */
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `cached_movie` ("
+                    + "`sort_criteria` TEXT NOT NULL, `page` INTEGER NOT NULL, "
+                    + "`position` INTEGER NOT NULL, `movie_id` INTEGER NOT NULL, "
+                    + "`original_title` TEXT, `title` TEXT, `poster_path` TEXT, `overview` TEXT, "
+                    + "`vote_average` REAL NOT NULL, `release_date` TEXT, `backdrop_path` TEXT, "
+                    + "`fetched_at` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`sort_criteria`, `page`, `position`))");
+        }
+    };
+
+    /**
+     * Migration that adds a unique index on movie_id to the movie table. Duplicate favorites are
+     * removed first, keeping the most recently added row of each movie.
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("DELETE FROM `movie` WHERE `id` NOT IN "
+                    + "(SELECT MAX(`id`) FROM `movie` GROUP BY `movie_id`)");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_movie_movie_id` "
+                    + "ON `movie` (`movie_id`)");
+        }
+    };
+
+    /** Migration that adds the tables used to cache the movie details */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `cached_details` ("
+                    + "`movie_id` INTEGER NOT NULL, `budget` INTEGER NOT NULL, "
+                    + "`runtime` INTEGER NOT NULL, `revenue` INTEGER NOT NULL, `status` TEXT, "
+                    + "`vote_count` INTEGER NOT NULL, `fetched_at` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`movie_id`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `cached_genre` ("
+                    + "`movie_id` INTEGER NOT NULL, `position` INTEGER NOT NULL, "
+                    + "`genre_id` INTEGER NOT NULL, `genre_name` TEXT, "
+                    + "PRIMARY KEY(`movie_id`, `position`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `cached_cast` ("
+                    + "`movie_id` INTEGER NOT NULL, `position` INTEGER NOT NULL, "
+                    + "`cast_id` INTEGER NOT NULL, `person_id` INTEGER NOT NULL, `name` TEXT, "
+                    + "`character` TEXT, `profile_path` TEXT, "
+                    + "PRIMARY KEY(`movie_id`, `position`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `cached_crew` ("
+                    + "`movie_id` INTEGER NOT NULL, `position` INTEGER NOT NULL, "
+                    + "`name` TEXT, `job` TEXT, "
+                    + "PRIMARY KEY(`movie_id`, `position`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `cached_video` ("
+                    + "`movie_id` INTEGER NOT NULL, `position` INTEGER NOT NULL, "
+                    + "`video_id` TEXT, `video_key` TEXT, `name` TEXT, `site` TEXT, "
+                    + "`size` INTEGER NOT NULL, `type` TEXT, "
+                    + "PRIMARY KEY(`movie_id`, `position`))");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `cached_review` ("
+                    + "`movie_id` INTEGER NOT NULL, `position` INTEGER NOT NULL, "
+                    + "`review_id` TEXT, `author` TEXT, `content` TEXT, `url` TEXT, "
+                    + "PRIMARY KEY(`movie_id`, `position`))");
+        }
+    };
+
+    /**
+     * Migration that adds the FTS4 indexes of the movie and cached_movie tables, with the triggers
+     * Room uses to keep them in sync, and builds the indexes from the existing rows
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            createFtsTable(database, "movie_fts", "movie");
+            createFtsTable(database, "cached_movie_fts", "cached_movie");
+        }
+    };
+
+    /**
+     * The TMDb movie genres, used to resolve the genre names stored in the genre column of the
+     * favorites before MIGRATION_5_6. The names are the ones returned for the "en-US" language.
+     */
+    private static final int[] TMDB_GENRE_IDS = {28, 12, 16, 35, 80, 99, 18, 10751, 14, 36, 27,
+            10402, 9648, 10749, 878, 10770, 53, 10752, 37};
+    private static final String[] TMDB_GENRE_NAMES = {"Action", "Adventure", "Animation", "Comedy",
+            "Crime", "Documentary", "Drama", "Family", "Fantasy", "History", "Horror", "Music",
+            "Mystery", "Romance", "Science Fiction", "TV Movie", "Thriller", "War", "Western"};
+
+    /**
+     * Migration that replaces the comma-joined genre column of the movie table with the genre
+     * table and the movie_genre cross-reference keyed by TMDb genre IDs. The genre names of the
+     * favorites are resolved to IDs from the cached details and the TMDb genre list, and the movie
+     * table is rebuilt without the genre column.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `genre` ("
+                    + "`id` INTEGER NOT NULL, `name` TEXT, PRIMARY KEY(`id`))");
+            for (int i = 0; i < TMDB_GENRE_IDS.length; i++) {
+                ContentValues values = new ContentValues();
+                values.put("id", TMDB_GENRE_IDS[i]);
+                values.put("name", TMDB_GENRE_NAMES[i]);
+                database.insert("genre", SQLiteDatabase.CONFLICT_IGNORE, values);
+            }
+            database.execSQL("INSERT OR IGNORE INTO `genre` (`id`, `name`) "
+                    + "SELECT DISTINCT `genre_id`, `genre_name` FROM `cached_genre`");
+
+            // Resolve the genre names of every favorite before the column is dropped
+            Map<String, Integer> genreIds = new HashMap<>();
+            Cursor cursor = database.query("SELECT `id`, `name` FROM `genre`");
+            try {
+                while (cursor.moveToNext()) {
+                    genreIds.put(cursor.getString(1), cursor.getInt(0));
+                }
+            } finally {
+                cursor.close();
+            }
+            List<ContentValues> movieGenres = new ArrayList<>();
+            cursor = database.query("SELECT `movie_id`, `genre` FROM `movie` "
+                    + "WHERE `genre` IS NOT NULL");
+            try {
+                while (cursor.moveToNext()) {
+                    for (String genreName : cursor.getString(1).split(",")) {
+                        Integer genreId = genreIds.get(genreName.trim());
+                        if (genreId != null) {
+                            ContentValues values = new ContentValues();
+                            values.put("movie_id", cursor.getInt(0));
+                            values.put("genre_id", genreId);
+                            movieGenres.add(values);
+                        }
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+
+            // SQLite can't drop a column, so copy the movie table without it. The ids are kept,
+            // so the rows keep their docids in movie_fts, whose triggers are recreated.
+            database.execSQL("CREATE TABLE IF NOT EXISTS `movie_new` ("
+                    + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `movie_id` INTEGER NOT NULL, "
+                    + "`original_title` TEXT, `title` TEXT, `poster_path` TEXT, `overview` TEXT, "
+                    + "`vote_average` REAL NOT NULL, `release_date` TEXT, `backdrop_path` TEXT, "
+                    + "`date` INTEGER, `runtime` TEXT, `release_year` TEXT)");
+            database.execSQL("INSERT INTO `movie_new` (`id`, `movie_id`, `original_title`, `title`, "
+                    + "`poster_path`, `overview`, `vote_average`, `release_date`, `backdrop_path`, "
+                    + "`date`, `runtime`, `release_year`) SELECT `id`, `movie_id`, `original_title`, "
+                    + "`title`, `poster_path`, `overview`, `vote_average`, `release_date`, "
+                    + "`backdrop_path`, `date`, `runtime`, `release_year` FROM `movie`");
+            database.execSQL("DROP TABLE `movie`");
+            database.execSQL("ALTER TABLE `movie_new` RENAME TO `movie`");
+            database.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_movie_movie_id` "
+                    + "ON `movie` (`movie_id`)");
+            createFtsTable(database, "movie_fts", "movie");
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `movie_genre` ("
+                    + "`movie_id` INTEGER NOT NULL, `genre_id` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`movie_id`, `genre_id`), "
+                    + "FOREIGN KEY(`movie_id`) REFERENCES `movie`(`movie_id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE , "
+                    + "FOREIGN KEY(`genre_id`) REFERENCES `genre`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_movie_genre_genre_id` "
+                    + "ON `movie_genre` (`genre_id`)");
+            for (ContentValues values : movieGenres) {
+                database.insert("movie_genre", SQLiteDatabase.CONFLICT_IGNORE, values);
+            }
+        }
+    };
+
+    /**
+     * Migration that adds the time the cached details were last viewed, used by the CacheGovernor
+     * to evict the least recently viewed movies. Until they are viewed again, the details count as
+     * viewed when they were fetched.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `cached_details` "
+                    + "ADD COLUMN `last_viewed_at` INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("UPDATE `cached_details` SET `last_viewed_at` = `fetched_at`");
+        }
+    };
+
+    /**
+     * Migration that indexes the movie IDs of the cached movies, so that the search returns a
+     * movie cached under several sort criteria once without grouping the results
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_cached_movie_movie_id` "
+                    + "ON `cached_movie` (`movie_id`)");
+        }
+    };
+
+    /** Every migration, from the first version of the database to the current one */
+    static final Migration[] MIGRATIONS = {MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4,
+            MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8};
+
+    /**
+     * Create an external content FTS4 table indexing the title, original_title and overview of
+     * the content table, the same way Room creates it for a new database
+     */
+    private static void createFtsTable(SupportSQLiteDatabase database, String ftsTable,
+                                       String contentTable) {
+        database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `" + ftsTable + "` USING FTS4("
+                + "`title` TEXT, `original_title` TEXT, `overview` TEXT, "
+                + "content=`" + contentTable + "`)");
+        String triggerPrefix = "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_" + ftsTable;
+        String deleteRow = "DELETE FROM `" + ftsTable + "` WHERE `docid`=OLD.`rowid`; END";
+        String insertRow = "INSERT INTO `" + ftsTable + "`(`docid`, `title`, `original_title`, "
+                + "`overview`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`original_title`, "
+                + "NEW.`overview`); END";
+        database.execSQL(triggerPrefix + "_BEFORE_UPDATE BEFORE UPDATE ON `" + contentTable
+                + "` BEGIN " + deleteRow);
+        database.execSQL(triggerPrefix + "_BEFORE_DELETE BEFORE DELETE ON `" + contentTable
+                + "` BEGIN " + deleteRow);
+        database.execSQL(triggerPrefix + "_AFTER_UPDATE AFTER UPDATE ON `" + contentTable
+                + "` BEGIN " + insertRow);
+        database.execSQL(triggerPrefix + "_AFTER_INSERT AFTER INSERT ON `" + contentTable
+                + "` BEGIN " + insertRow);
+        database.execSQL("INSERT INTO `" + ftsTable + "`(`" + ftsTable + "`) VALUES('rebuild')");
+    }
 
     public static MovieDatabase getInstance(Context context) {
         if (sInstance == null) {
             synchronized (LOCK) {
-                Log.d(TAG, "Creating new database instance");
-                sInstance = Room.databaseBuilder(context.getApplicationContext(),
-                        MovieDatabase.class, DATABASE_NAME)
-                        .build();
+                if (sInstance == null) {
+                    Log.d(TAG, "Creating new database instance");
+                    sInstance = databaseBuilder(context, AppExecutors.getInstance()).build();
+                }
             }
         }
         Log.d(TAG, "Getting the database instance");
         return sInstance;
     }
 
+    /**
+     * Returns a builder of the MovieDatabase with every migration, the WAL journal and the
+     * executors of the app. The WAL journal lets the queries read while a transaction on diskIO
+     * is writing, instead of waiting for it to commit.
+     *
+     * @param context The context used to open the database
+     * @param executors The executors Room runs its queries and transactions on
+     */
+    public static RoomDatabase.Builder<MovieDatabase> databaseBuilder(Context context,
+                                                                     AppExecutors executors) {
+        return Room.databaseBuilder(context.getApplicationContext(), MovieDatabase.class, DATABASE_NAME)
+                .addMigrations(MIGRATIONS)
+                .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                .setQueryExecutor(executors.databaseQuery())
+                // Transactions are serialized on the single disk thread, the only writer
+                .setTransactionExecutor(executors.diskIO());
+    }
+
     // The associated DAOs for the database
     public abstract MovieDao movieDao();
+
+    public abstract CachedMovieDao cachedMovieDao();
+
+    public abstract CachedDetailsDao cachedDetailsDao();
 }
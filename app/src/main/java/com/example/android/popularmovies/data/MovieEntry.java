@@ -19,11 +19,12 @@ package com.example.android.popularmovies.data;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import java.util.Date;
 
-@Entity(tableName = "movie")
+@Entity(tableName = "movie", indices = {@Index(value = "movie_id", unique = true)})
 public class MovieEntry {
 
     @PrimaryKey(autoGenerate = true)
@@ -58,8 +59,6 @@ public class MovieEntry {
     @ColumnInfo(name = "release_year")
     private String releaseYear;
 
-    private String genre;
-
     /**
      * Constructor
      *
@@ -70,7 +69,7 @@ public class MovieEntry {
     @Ignore
     public MovieEntry(int movieId, String originalTitle, String title, String posterPath, String overview,
                       double voteAverage, String releaseDate, String backdropPath, Date date,
-                      String runtime, String releaseYear, String genre) {
+                      String runtime, String releaseYear) {
         this.movieId = movieId;
         this.originalTitle = originalTitle;
         this.title = title;
@@ -82,7 +81,6 @@ public class MovieEntry {
         this.date = date;
         this.runtime = runtime;
         this.releaseYear = releaseYear;
-        this.genre = genre;
     }
 
     /**
@@ -90,7 +88,7 @@ public class MovieEntry {
      */
     public MovieEntry(int id, int movieId, String originalTitle, String title, String posterPath, String overview,
                       double voteAverage, String releaseDate, String backdropPath, Date date,
-                      String runtime, String releaseYear, String genre) {
+                      String runtime, String releaseYear) {
         this.id = id;
         this.movieId = movieId;
         this.originalTitle = originalTitle;
@@ -103,7 +101,6 @@ public class MovieEntry {
         this.date = date;
         this.runtime = runtime;
         this.releaseYear = releaseYear;
-        this.genre = genre;
     }
 
     public int getId() {
@@ -153,8 +150,4 @@ public class MovieEntry {
     public String getReleaseYear() {
         return releaseYear;
     }
-
-    public String getGenre() {
-        return genre;
-    }
 }
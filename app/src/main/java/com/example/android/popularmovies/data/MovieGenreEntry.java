@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+import static androidx.room.ForeignKey.CASCADE;
+
+/**
+ * A {@link MovieGenreEntry} links a favorite movie to one of its genres. The rows are removed
+ * together with the favorite movie, and the index on genre_id serves the favorites by genre.
+ */
+@Entity(tableName = "movie_genre",
+        primaryKeys = {"movie_id", "genre_id"},
+        foreignKeys = {
+                @ForeignKey(entity = MovieEntry.class, parentColumns = "movie_id",
+                        childColumns = "movie_id", onDelete = CASCADE),
+                @ForeignKey(entity = GenreEntry.class, parentColumns = "id",
+                        childColumns = "genre_id", onDelete = CASCADE)},
+        indices = {@Index(value = "genre_id")})
+public class MovieGenreEntry {
+
+    @ColumnInfo(name = "movie_id")
+    private int movieId;
+
+    @ColumnInfo(name = "genre_id")
+    private int genreId;
+
+    /**
+     * Constructor used by Room to create MovieGenreEntries
+     */
+    public MovieGenreEntry(int movieId, int genreId) {
+        this.movieId = movieId;
+        this.genreId = genreId;
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public int getGenreId() {
+        return genreId;
+    }
+}
@@ -42,4 +42,16 @@ public class MoviePreferences {
         return prefs.getString(keyForSortBy, defaultSortBy);
     }
 
+    /**
+     * Returns true when the user asked for smaller images to save mobile data
+     *
+     * @param context Context used to get the SharedPreferences
+     */
+    public static boolean isDataSaverEnabled(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String keyForDataSaver = context.getString(R.string.pref_data_saver_key);
+        boolean defaultDataSaver = context.getResources().getBoolean(R.bool.pref_data_saver_default);
+        return prefs.getBoolean(keyForDataSaver, defaultDataSaver);
+    }
+
 }
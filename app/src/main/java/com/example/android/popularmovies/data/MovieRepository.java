@@ -16,30 +16,36 @@
 
 package com.example.android.popularmovies.data;
 
+import androidx.arch.core.util.Function;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.paging.DataSource;
 import android.util.Log;
 
 import com.example.android.popularmovies.AppExecutors;
+import com.example.android.popularmovies.model.Movie;
 import com.example.android.popularmovies.model.MovieDetails;
-import com.example.android.popularmovies.model.ReviewResponse;
-import com.example.android.popularmovies.model.VideoResponse;
 import com.example.android.popularmovies.utilities.TheMovieApi;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
 import static com.example.android.popularmovies.utilities.Constant.API_KEY;
-import static com.example.android.popularmovies.utilities.Constant.CREDITS;
+import static com.example.android.popularmovies.utilities.Constant.APPEND_TO_RESPONSE_DETAILS;
 import static com.example.android.popularmovies.utilities.Constant.LANGUAGE;
-import static com.example.android.popularmovies.utilities.Constant.PAGE;
+import static com.example.android.popularmovies.utilities.Constant.MOVIE_DETAILS_CACHE_TTL_MILLIS;
+import static com.example.android.popularmovies.utilities.Constant.MOVIE_PAGE_CACHE_TTL_MILLIS;
 
 /**
  * MovieRepository is responsible for handling data operations in PopularMovies. Acts as a mediator
- * between {@link TheMovieApi} and {@link MovieDao}
+ * between {@link TheMovieApi}, {@link MovieDao}, {@link CachedMovieDao} and {@link CachedDetailsDao}
  */
 public class MovieRepository {
 
@@ -50,132 +56,356 @@ public class MovieRepository {
     private static final Object LOCK = new Object();
     private static MovieRepository sInstance;
     private final MovieDao mMovieDao;
+    private final CachedMovieDao mCachedMovieDao;
+    private final CachedDetailsDao mCachedDetailsDao;
     private final TheMovieApi mTheMovieApi;
     private final AppExecutors mExecutors;
 
-    private MovieRepository(MovieDao movieDao,
-                            TheMovieApi theMovieApi,
-                            AppExecutors executors) {
+    /** The indexed column of the FTS4 tables that holds the title */
+    private static final String FTS_TITLE = "title";
+
+    /** Keys of the in-flight requests, used to build the key together with the movie ID */
+    private static final String ENDPOINT_DETAILS = "details/";
+
+    /** LiveData of the requests in flight, keyed by endpoint and movie ID */
+    private final Map<String, LiveData<?>> mInFlightRequests = new HashMap<>();
+
+    /** The number of requests that joined a request already in flight */
+    private final AtomicInteger mDeduplicatedRequestCount = new AtomicInteger();
+
+    /**
+     * Constructor, used by getInstance and by the tests with their own database and client
+     */
+    MovieRepository(MovieDao movieDao,
+                    CachedMovieDao cachedMovieDao,
+                    CachedDetailsDao cachedDetailsDao,
+                    TheMovieApi theMovieApi,
+                    AppExecutors executors) {
         mMovieDao = movieDao;
+        mCachedMovieDao = cachedMovieDao;
+        mCachedDetailsDao = cachedDetailsDao;
         mTheMovieApi = theMovieApi;
         mExecutors = executors;
     }
 
     public synchronized static MovieRepository getInstance(
-            MovieDao movieDao, TheMovieApi theMovieApi, AppExecutors executors) {
+            MovieDao movieDao, CachedMovieDao cachedMovieDao, CachedDetailsDao cachedDetailsDao,
+            TheMovieApi theMovieApi, AppExecutors executors) {
         Log.d(TAG, "Getting the repository");
         if (sInstance == null) {
             synchronized (LOCK) {
                 Log.d(TAG, "Making new repository");
-                sInstance = new MovieRepository(movieDao, theMovieApi, executors);
+                sInstance = new MovieRepository(movieDao, cachedMovieDao, cachedDetailsDao,
+                        theMovieApi, executors);
             }
         }
         return sInstance;
     }
 
     /**
-     * Make a network request by calling enqueue and provide a LiveData object of MovieDetails for ViewModel
+     * Returns the list of movies of the cached page directly from the database, or null if the page
+     * has not been cached yet. This method does disk I/O, so it must not be called on the main thread.
+     *
+     * @param sortCriteria The sort order of the movies
+     * @param page The page number
+     * @param allowStale True to return the page even when it is older than the cache TTL
+     */
+    public List<Movie> getCachedMoviePage(String sortCriteria, int page, boolean allowStale) {
+        List<CachedMovieEntry> cachedMovieEntries = mCachedMovieDao.loadPage(sortCriteria, page);
+        if (cachedMovieEntries.isEmpty()) {
+            return null;
+        }
+
+        // Every row of a page is written at once, so the first row tells when the page was fetched
+        long age = System.currentTimeMillis() - cachedMovieEntries.get(0).getFetchedAt();
+        if (!allowStale && age > MOVIE_PAGE_CACHE_TTL_MILLIS) {
+            Log.d(TAG, "Cached page " + page + " of " + sortCriteria + " has expired");
+            return null;
+        }
+
+        List<Movie> movies = new ArrayList<>(cachedMovieEntries.size());
+        for (CachedMovieEntry cachedMovieEntry : cachedMovieEntries) {
+            movies.add(cachedMovieEntry.toMovie());
+        }
+        return movies;
+    }
+
+    /**
+     * Store the page of movies received from the network in the database
+     *
+     * @param sortCriteria The sort order of the movies
+     * @param page The page number
+     * @param movies The list of movies of the page
+     */
+    public void cacheMoviePage(final String sortCriteria, final int page, List<Movie> movies) {
+        long fetchedAt = System.currentTimeMillis();
+        final List<CachedMovieEntry> cachedMovieEntries = new ArrayList<>(movies.size());
+        for (int position = 0; position < movies.size(); position++) {
+            cachedMovieEntries.add(new CachedMovieEntry(
+                    sortCriteria, page, position, movies.get(position), fetchedAt));
+        }
+
+        mExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                mCachedMovieDao.replacePage(sortCriteria, page, cachedMovieEntries);
+            }
+        });
+    }
+
+    /**
+     * Returns TheMovieApi used by the repository, so that the data sources share its Retrofit client
+     */
+    TheMovieApi getTheMovieApi() {
+        return mTheMovieApi;
+    }
+
+    /**
+     * Provide a LiveData object of MovieDetails for ViewModel. The details are served from the disk
+     * cache when the movie has been opened before, and refreshed from the network in the background
+     * once they are older than MOVIE_DETAILS_CACHE_TTL_MILLIS. The credits, videos and reviews are
+     * appended to the response, so a single round trip serves every tab of the detail screen.
+     * Concurrent callers for the same movie share a single request.
      *
      * @param movieId The ID of the movie
      */
-    public LiveData<MovieDetails> getMovieDetails(int movieId) {
-        final MutableLiveData<MovieDetails> movieDetailsData = new MutableLiveData<>();
+    public LiveData<MovieDetails> getMovieDetails(final int movieId) {
+        final String key = ENDPOINT_DETAILS + movieId;
+        synchronized (mInFlightRequests) {
+            LiveData<MovieDetails> inFlight = getInFlightRequest(key);
+            if (inFlight != null) {
+                return inFlight;
+            }
 
-        // Make a HTTP request to the remote web server. Send Request:
-        // https://api.themoviedb.org/3/movie/{movie_id}?api_key={API_KEY}&language=en-US
-        // &append_to_response=credits
-        mTheMovieApi.getDetails(movieId, API_KEY, LANGUAGE, CREDITS)
-                // Calls are executed with asynchronously with enqueue and notify callback of its response
-                .enqueue(new Callback<MovieDetails>() {
-                    @Override
-                    public void onResponse(Call<MovieDetails> call, Response<MovieDetails> response) {
-                        if (response.isSuccessful()) {
-                            MovieDetails movieDetails = response.body();
-                            movieDetailsData.setValue(movieDetails);
+            final MutableLiveData<MovieDetails> detailsData = new MutableLiveData<>();
+            mInFlightRequests.put(key, detailsData);
+
+            mExecutors.diskIO().execute(new Runnable() {
+                @Override
+                public void run() {
+                    Long fetchedAt = mCachedDetailsDao.loadFetchedAt(movieId);
+                    MovieDetails cachedDetails = fetchedAt == null
+                            ? null : mCachedDetailsDao.loadMovieDetails(movieId);
+                    if (cachedDetails != null) {
+                        // Open the detail screen from disk
+                        detailsData.postValue(cachedDetails);
+                        // Keep the recently viewed movies when the CacheGovernor evicts the cache
+                        mCachedDetailsDao.updateLastViewedAt(movieId, System.currentTimeMillis());
+                        if (System.currentTimeMillis() - fetchedAt <= MOVIE_DETAILS_CACHE_TTL_MILLIS) {
+                            removeInFlightRequest(key);
+                            return;
                         }
+                        Log.d(TAG, "Cached details of movie " + movieId + " have expired, refreshing");
                     }
+                    fetchMovieDetails(key, movieId, detailsData, cachedDetails != null);
+                }
+            });
+            return detailsData;
+        }
+    }
 
-                    @Override
-                    public void onFailure(Call<MovieDetails> call, Throwable t) {
-                        movieDetailsData.setValue(null);
-                        Log.e(TAG, "Failed getting MovieDetails: " + t.getMessage());
-                    }
-                });
-        return movieDetailsData;
+    /**
+     * Returns the LiveData of the request that is still in flight for the given key, or null if there
+     * is none. Must be called while holding the lock on mInFlightRequests.
+     *
+     * @param key The endpoint and the movie ID of the request
+     */
+    private <T> LiveData<T> getInFlightRequest(String key) {
+        //noinspection unchecked
+        LiveData<T> inFlight = (LiveData<T>) mInFlightRequests.get(key);
+        if (inFlight != null) {
+            int count = mDeduplicatedRequestCount.incrementAndGet();
+            Log.d(TAG, "Joined the request in flight for " + key + ". Deduplicated: " + count);
+        }
+        return inFlight;
     }
 
     /**
-     * Make a network request by calling enqueue and provide a LiveData object of ReviewResponse for ViewModel
+     * Make a network request by calling enqueue, deliver the MovieDetails to the LiveData and store
+     * them in the disk cache. The request stays registered as in flight until the response arrives.
      *
+     * @param key The endpoint and the movie ID of the request
      * @param movieId The ID of the movie
+     * @param detailsData The LiveData shared by the callers
+     * @param hasCachedDetails True if cached details have already been delivered, in which case
+     *                         a failed refresh keeps them
      */
-    public LiveData<ReviewResponse> getReviewResponse(int movieId) {
-        final MutableLiveData<ReviewResponse> reviewResponseData = new MutableLiveData<>();
-
+    private void fetchMovieDetails(final String key, final int movieId,
+                                   final MutableLiveData<MovieDetails> detailsData,
+                                   final boolean hasCachedDetails) {
         // Make a HTTP request to the remote web server. Send Request:
-        // https://api.themoviedb.org/3/movie/{id}/reviews?api_key={API_KEY}&language=en-US&page=1
-        mTheMovieApi.getReviews(movieId, API_KEY, LANGUAGE, PAGE)
-                .enqueue(new Callback<ReviewResponse>() {
-                    /**
-                     * Invoked for a received HTTP response.
-                     */
-                    @Override
-                    public void onResponse(Call<ReviewResponse> call, Response<ReviewResponse> response) {
-                        if (response.isSuccessful()) {
-                            ReviewResponse reviewResponse = response.body();
-                            reviewResponseData.setValue(reviewResponse);
-                        }
-                    }
+        // https://api.themoviedb.org/3/movie/{movie_id}?api_key={API_KEY}&language=en-US
+        // &append_to_response=credits,videos,reviews
+        Call<MovieDetails> call = mTheMovieApi.getDetails(
+                movieId, API_KEY, LANGUAGE, APPEND_TO_RESPONSE_DETAILS);
 
-                    /**
-                     * Invoked when a network exception occurred talking to the server or when an unexpected exception
-                     * occurred creating the request or processing the response.
-                     */
-                    @Override
-                    public void onFailure(Call<ReviewResponse> call, Throwable t) {
-                        reviewResponseData.setValue(null);
-                        Log.e(TAG, "Failed getting ReviewResponse: " + t.getMessage());
-                    }
-                });
-        return reviewResponseData;
+        // Calls are executed with asynchronously with enqueue and notify callback of its response
+        call.enqueue(new Callback<MovieDetails>() {
+            /**
+             * Invoked for a received HTTP response.
+             */
+            @Override
+            public void onResponse(Call<MovieDetails> call, Response<MovieDetails> response) {
+                removeInFlightRequest(key);
+                MovieDetails movieDetails = response.isSuccessful() ? response.body() : null;
+                if (movieDetails != null) {
+                    detailsData.setValue(movieDetails);
+                    cacheMovieDetails(movieId, movieDetails);
+                    return;
+                }
+                // Stop the detail screen from waiting, as onFailure does
+                if (!hasCachedDetails) {
+                    detailsData.setValue(null);
+                }
+                Log.e(TAG, "Failed getting " + key + ": HTTP " + response.code());
+            }
+
+            /**
+             * Invoked when a network exception occurred talking to the server or when an unexpected exception
+             * occurred creating the request or processing the response.
+             */
+            @Override
+            public void onFailure(Call<MovieDetails> call, Throwable t) {
+                removeInFlightRequest(key);
+                if (!hasCachedDetails) {
+                    detailsData.setValue(null);
+                }
+                Log.e(TAG, "Failed getting " + key + ": " + t.getMessage());
+            }
+        });
     }
 
     /**
-     * Make a network request by calling enqueue and provide a LiveData object of VideoResponse for ViewModel
+     * Store the MovieDetails received from the network in the database
      *
      * @param movieId The ID of the movie
+     * @param movieDetails The details with the appended credits, videos and reviews
      */
-    public LiveData<VideoResponse> getVideoResponse(int movieId) {
-        final MutableLiveData<VideoResponse> videoResponseData = new MutableLiveData<>();
+    private void cacheMovieDetails(final int movieId, final MovieDetails movieDetails) {
+        final long fetchedAt = System.currentTimeMillis();
+        mExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                mCachedDetailsDao.replaceMovieDetails(movieId, movieDetails, fetchedAt);
+            }
+        });
+    }
 
-        // Make a HTTP request to the remote web server. Send Request:
-        // https://api.themoviedb.org/3/movie/{id}/videos?api_key={API_KEY}&language=en-US
-        mTheMovieApi.getVideos(movieId, API_KEY, LANGUAGE)
-                .enqueue(new Callback<VideoResponse>() {
+    /**
+     * Remove the request from the in-flight table once its response has been received
+     */
+    private void removeInFlightRequest(String key) {
+        synchronized (mInFlightRequests) {
+            mInFlightRequests.remove(key);
+        }
+    }
+
+    /**
+     * Returns how many requests have been served by joining a request that was already in flight
+     */
+    public int getDeduplicatedRequestCount() {
+        return mDeduplicatedRequestCount.get();
+    }
+
+    /**
+     * Return a DataSource.Factory of the movies matching the search query, searching the titles,
+     * original titles and overviews of the favorite movies and the cached pages of movies.
+     * Every word of the query is matched as a prefix, so the results update while the user types.
+     *
+     * @param query The text typed by the user
+     */
+    public DataSource.Factory<MovieSearchDataSource.Key, Movie> searchMovies(String query) {
+        return mMovieDao.searchMovies(toMatchQuery(query, null), toMatchQuery(query, FTS_TITLE))
+                .map(new Function<SearchResult, Movie>() {
                     @Override
-                    public void onResponse(Call<VideoResponse> call, Response<VideoResponse> response) {
-                        if (response.isSuccessful()) {
-                            VideoResponse videoResponse = response.body();
-                            if (videoResponse != null) {
-                                videoResponseData.setValue(videoResponse);
-                            }
-                        }
+                    public Movie apply(SearchResult searchResult) {
+                        return searchResult.toMovie();
                     }
+                });
+    }
+
+    /**
+     * Returns the FTS4 query that matches every word of the text as a prefix, e.g. "star* war*".
+     * Only letters and digits are kept, so that the text can't be parsed as FTS4 query syntax.
+     *
+     * @param text The text typed by the user
+     * @param column The indexed column each word is matched in, or null to match every column
+     */
+    static String toMatchQuery(String text, String column) {
+        StringBuilder matchQuery = new StringBuilder();
+        for (String token : text.split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (matchQuery.length() > 0) {
+                matchQuery.append(' ');
+            }
+            if (column != null) {
+                matchQuery.append(column).append(':');
+            }
+            matchQuery.append(token).append('*');
+        }
+        return matchQuery.toString();
+    }
+
+    /**
+     * Return a DataSource.Factory of the FavoriteThumbs directly from the database, so that the
+     * favorites are loaded page by page with only the columns shown in the grid
+     */
+    public DataSource.Factory<Integer, FavoriteThumb> getFavoriteMovies() {
+        return mMovieDao.loadFavoriteThumbs();
+    }
+
+    /**
+     * Return a DataSource.Factory of the FavoriteThumbs of the favorite movies in a genre
+     *
+     * @param genreId The TMDb genre ID
+     */
+    public DataSource.Factory<Integer, FavoriteThumb> getFavoriteMoviesByGenre(int genreId) {
+        return mMovieDao.loadFavoriteThumbsByGenre(genreId);
+    }
+
+    /**
+     * Delete the favorite movies with the given movie IDs in one transaction on the disk thread
+     *
+     * @param movieIds The movie IDs of the favorites to delete
+     */
+    public void deleteFavoriteMovies(final List<Integer> movieIds) {
+        mExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                mMovieDao.deleteMoviesByMovieIds(movieIds);
+            }
+        });
+    }
 
+    /**
+     * Load the full MovieEntry of a favorite movie on the disk thread and deliver it on the main
+     * thread. The MovieEntry is null if the movie has been removed from the favorites.
+     *
+     * @param movieId The movie ID
+     * @param callback Receives the MovieEntry
+     */
+    public void loadFavoriteMovie(final int movieId, final FavoriteMovieCallback callback) {
+        mExecutors.diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                final MovieEntry movieEntry = mMovieDao.loadMovieEntryByMovieId(movieId);
+                mExecutors.mainThread().execute(new Runnable() {
                     @Override
-                    public void onFailure(Call<VideoResponse> call, Throwable t) {
-                        videoResponseData.setValue(null);
-                        Log.e(TAG, "Failed getting VideoResponse: " + t.getMessage());
+                    public void run() {
+                        callback.onFavoriteMovieLoaded(movieEntry);
                     }
                 });
-        return videoResponseData;
+            }
+        });
     }
 
     /**
-     * Return a LiveData of the list of MovieEntries directly from the database
+     * Receives the MovieEntry loaded by loadFavoriteMovie
      */
-    public LiveData<List<MovieEntry>> getFavoriteMovies() {
-        return mMovieDao.loadAllMovies();
+    public interface FavoriteMovieCallback {
+        void onFavoriteMovieLoaded(MovieEntry movieEntry);
     }
 
     /**
@@ -186,4 +416,31 @@ public class MovieRepository {
     public LiveData<MovieEntry> getFavoriteMovieByMovieId(int movieId) {
         return mMovieDao.loadMovieByMovieId(movieId);
     }
+
+    /**
+     * Returns a LiveData of the genres of a favorite movie, sorted by name, directly from the
+     * database
+     *
+     * @param movieId The movie ID
+     */
+    public LiveData<List<GenreEntry>> getGenresByMovieId(int movieId) {
+        return mMovieDao.loadGenresByMovieId(movieId);
+    }
+
+    /**
+     * Returns a LiveData of the genres that at least one favorite movie belongs to
+     */
+    public LiveData<List<GenreEntry>> getFavoriteGenres() {
+        return mMovieDao.loadFavoriteGenres();
+    }
+
+    /**
+     * Returns a LiveData of whether the movie is in the favorites collection, without loading the
+     * MovieEntry
+     *
+     * @param movieId The movie ID
+     */
+    public LiveData<Boolean> isFavorite(int movieId) {
+        return mMovieDao.isFavorite(movieId);
+    }
 }
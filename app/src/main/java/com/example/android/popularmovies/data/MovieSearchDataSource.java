@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+import androidx.annotation.NonNull;
+import androidx.paging.ItemKeyedDataSource;
+import androidx.room.InvalidationTracker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static com.example.android.popularmovies.data.MovieDao.SEARCH_RANK_CACHED;
+import static com.example.android.popularmovies.data.MovieDao.SEARCH_RANK_CACHED_TITLE;
+import static com.example.android.popularmovies.data.MovieDao.SEARCH_RANK_COUNT;
+import static com.example.android.popularmovies.data.MovieDao.SEARCH_RANK_FAVORITE;
+import static com.example.android.popularmovies.data.MovieDao.SEARCH_RANK_FAVORITE_TITLE;
+
+/**
+ * The MovieSearchDataSource loads the results of the full-text search page by page, ordered by
+ * their rank and then by title.
+ *
+ * Each page continues after the key of the last result loaded, one rank after the other, so a
+ * page only sorts the matches of the rank it reads from, up to the page size. Room's
+ * LIMIT/OFFSET source counted and sorted every match of the query for each page instead.
+ * The initial load always starts from the first result, so there is nothing to load before it.
+ */
+public class MovieSearchDataSource
+        extends ItemKeyedDataSource<MovieSearchDataSource.Key, SearchResult> {
+
+    /** The key of the first result, which every title and movie ID comes after */
+    private static final Key FIRST_KEY = new Key(SEARCH_RANK_FAVORITE_TITLE, "", Integer.MIN_VALUE);
+
+    private final MovieDao mMovieDao;
+    private final String mQuery;
+    private final String mTitleQuery;
+
+    MovieSearchDataSource(MovieDao movieDao, final InvalidationTracker invalidationTracker,
+                          String query, String titleQuery) {
+        mMovieDao = movieDao;
+        mQuery = query;
+        mTitleQuery = titleQuery;
+
+        // Reload the results when a favorite or a cached movie changes
+        final InvalidationTracker.Observer observer =
+                new InvalidationTracker.Observer("movie", "cached_movie") {
+                    @Override
+                    public void onInvalidated(@NonNull Set<String> tables) {
+                        invalidate();
+                    }
+                };
+        invalidationTracker.addObserver(observer);
+        addInvalidatedCallback(new InvalidatedCallback() {
+            @Override
+            public void onInvalidated() {
+                invalidationTracker.removeObserver(observer);
+            }
+        });
+    }
+
+    @Override
+    public void loadInitial(@NonNull LoadInitialParams<Key> params,
+                            @NonNull LoadInitialCallback<SearchResult> callback) {
+        callback.onResult(loadAfterKey(FIRST_KEY, params.requestedLoadSize));
+    }
+
+    @Override
+    public void loadAfter(@NonNull LoadParams<Key> params,
+                          @NonNull LoadCallback<SearchResult> callback) {
+        callback.onResult(loadAfterKey(params.key, params.requestedLoadSize));
+    }
+
+    @Override
+    public void loadBefore(@NonNull LoadParams<Key> params,
+                           @NonNull LoadCallback<SearchResult> callback) {
+        callback.onResult(Collections.<SearchResult>emptyList());
+    }
+
+    @NonNull
+    @Override
+    public Key getKey(@NonNull SearchResult item) {
+        return new Key(item.getSearchRank(), item.getTitle(), item.getMovieId());
+    }
+
+    /**
+     * Returns up to loadSize results after the key, moving on to the next rank when the rank of
+     * the key has no more results
+     */
+    private List<SearchResult> loadAfterKey(Key key, int loadSize) {
+        List<SearchResult> results = new ArrayList<>(loadSize);
+        int rank = key.mRank;
+        String afterTitle = key.mTitle;
+        int afterMovieId = key.mMovieId;
+        while (rank < SEARCH_RANK_COUNT && results.size() < loadSize) {
+            results.addAll(loadRank(rank, afterTitle, afterMovieId, loadSize - results.size()));
+            rank++;
+            afterTitle = FIRST_KEY.mTitle;
+            afterMovieId = FIRST_KEY.mMovieId;
+        }
+        return results;
+    }
+
+    private List<SearchResult> loadRank(int rank, String afterTitle, int afterMovieId, int limit) {
+        switch (rank) {
+            case SEARCH_RANK_FAVORITE_TITLE:
+                return mMovieDao.searchFavoriteTitles(mTitleQuery, afterTitle, afterMovieId, limit);
+            case SEARCH_RANK_CACHED_TITLE:
+                return mMovieDao.searchCachedTitles(mTitleQuery, afterTitle, afterMovieId, limit);
+            case SEARCH_RANK_FAVORITE:
+                return mMovieDao.searchFavorites(mQuery, mTitleQuery, afterTitle, afterMovieId,
+                        limit);
+            case SEARCH_RANK_CACHED:
+                return mMovieDao.searchCachedMovies(mQuery, mTitleQuery, afterTitle, afterMovieId,
+                        limit);
+            default:
+                throw new IllegalArgumentException("Unknown search rank: " + rank);
+        }
+    }
+
+    /**
+     * The position of a search result: its rank, its title and its movie ID
+     */
+    public static final class Key {
+
+        private final int mRank;
+        private final String mTitle;
+        private final int mMovieId;
+
+        Key(int rank, String title, int movieId) {
+            mRank = rank;
+            // The queries sort a missing title as an empty one
+            mTitle = title == null ? "" : title;
+            mMovieId = movieId;
+        }
+    }
+}
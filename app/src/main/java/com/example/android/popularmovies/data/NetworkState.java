@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.data;
+
+/**
+ * The {@link NetworkState} describes the state of the page loads in the MovieDataSource.
+ */
+public class NetworkState {
+
+    public enum Status {
+        RUNNING,
+        SUCCESS,
+        FAILED
+    }
+
+    public static final NetworkState LOADED = new NetworkState(Status.SUCCESS, null);
+    public static final NetworkState LOADING = new NetworkState(Status.RUNNING, null);
+
+    private final Status mStatus;
+    private final String mMessage;
+
+    private NetworkState(Status status, String message) {
+        mStatus = status;
+        mMessage = message;
+    }
+
+    /**
+     * Returns a NetworkState for a failed page load
+     *
+     * @param message The reason the page load failed
+     */
+    public static NetworkState error(String message) {
+        return new NetworkState(Status.FAILED, message);
+    }
+
+    public Status getStatus() {
+        return mStatus;
+    }
+
+    public String getMessage() {
+        return mMessage;
+    }
+}
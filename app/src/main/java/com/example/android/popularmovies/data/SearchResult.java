@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import androidx.room.ColumnInfo;
+
+import com.example.android.popularmovies.model.Movie;
+
+/**
+ * A {@link SearchResult} is a movie found by the full-text search over the favorite movies and
+ * the cached pages of movies. It holds the columns needed to open the movie in the DetailActivity.
+ */
+public class SearchResult {
+
+    @ColumnInfo(name = "movie_id")
+    private int movieId;
+
+    @ColumnInfo(name = "original_title")
+    private String originalTitle;
+
+    private String title;
+
+    @ColumnInfo(name = "poster_path")
+    private String posterPath;
+
+    private String overview;
+
+    @ColumnInfo(name = "vote_average")
+    private double voteAverage;
+
+    @ColumnInfo(name = "release_date")
+    private String releaseDate;
+
+    @ColumnInfo(name = "backdrop_path")
+    private String backdropPath;
+
+    /** The rank of the result, one of the SEARCH_RANK constants of the MovieDao */
+    @ColumnInfo(name = "search_rank")
+    private int searchRank;
+
+    /**
+     * Constructor used by Room to create SearchResults
+     */
+    public SearchResult(int movieId, String originalTitle, String title, String posterPath,
+                        String overview, double voteAverage, String releaseDate, String backdropPath,
+                        int searchRank) {
+        this.movieId = movieId;
+        this.originalTitle = originalTitle;
+        this.title = title;
+        this.posterPath = posterPath;
+        this.overview = overview;
+        this.voteAverage = voteAverage;
+        this.releaseDate = releaseDate;
+        this.backdropPath = backdropPath;
+        this.searchRank = searchRank;
+    }
+
+    /**
+     * Returns a {@link Movie} object built from the search result
+     */
+    public Movie toMovie() {
+        return new Movie(movieId, originalTitle, title, posterPath, overview, voteAverage,
+                releaseDate, backdropPath);
+    }
+
+    public int getMovieId() {
+        return movieId;
+    }
+
+    public String getOriginalTitle() {
+        return originalTitle;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getPosterPath() {
+        return posterPath;
+    }
+
+    public String getOverview() {
+        return overview;
+    }
+
+    public double getVoteAverage() {
+        return voteAverage;
+    }
+
+    public String getReleaseDate() {
+        return releaseDate;
+    }
+
+    public String getBackdropPath() {
+        return backdropPath;
+    }
+
+    public int getSearchRank() {
+        return searchRank;
+    }
+}
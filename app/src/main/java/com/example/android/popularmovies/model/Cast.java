@@ -42,6 +42,12 @@ public class Cast implements Parcelable {
     @SerializedName("profile_path")
     private String mProfilePath;
 
+    /**
+     * Constructor used by the streaming TypeAdapter in {@link ModelTypeAdapterFactory}
+     */
+    public Cast() {
+    }
+
     private Cast(Parcel in) {
         mCastId = in.readInt();
         mCharacter = in.readString();
@@ -63,6 +69,14 @@ public class Cast implements Parcelable {
         }
     };
 
+    public void setCastId(int castId) {
+        mCastId = castId;
+    }
+
+    public int getCastId() {
+        return mCastId;
+    }
+
     public void setCharacter(String character) {
         mCharacter = character;
     }
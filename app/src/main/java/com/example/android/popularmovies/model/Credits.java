@@ -38,6 +38,12 @@ public class Credits implements Parcelable {
     @SerializedName("crew")
     private List<Crew> mCrew;
 
+    /**
+     * Constructor used by the streaming TypeAdapter in {@link ModelTypeAdapterFactory}
+     */
+    public Credits() {
+    }
+
     private Credits(Parcel in) {
         if (in.readByte() == BYTE) {
             mCast = new ArrayList<>();
@@ -33,6 +33,12 @@ public class Crew implements Parcelable {
     @SerializedName("name")
     private String mName;
 
+    /**
+     * Constructor used by the streaming TypeAdapter in {@link ModelTypeAdapterFactory}
+     */
+    public Crew() {
+    }
+
     private Crew(Parcel in) {
         mJob = in.readString();
         mName = in.readString();
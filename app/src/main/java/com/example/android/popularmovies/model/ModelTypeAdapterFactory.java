@@ -0,0 +1,686 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.model;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link TypeAdapterFactory} that provides hand-written streaming {@link TypeAdapter}s for the model
+ * package, so that TMDb responses are parsed without reflective field access.
+ * <p>
+ * The JSON names match the {@link com.google.gson.annotations.SerializedName} annotations on the
+ * model classes. Unknown names are skipped, and a JSON null leaves a primitive field at its default,
+ * which is how the reflective adapter behaves.
+ */
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        TypeAdapter<?> adapter;
+        if (rawType == Movie.class) {
+            adapter = MOVIE_ADAPTER;
+        } else if (rawType == MovieResponse.class) {
+            adapter = MOVIE_RESPONSE_ADAPTER;
+        } else if (rawType == MovieDetails.class) {
+            adapter = MOVIE_DETAILS_ADAPTER;
+        } else if (rawType == Genre.class) {
+            adapter = GENRE_ADAPTER;
+        } else if (rawType == Credits.class) {
+            adapter = CREDITS_ADAPTER;
+        } else if (rawType == Cast.class) {
+            adapter = CAST_ADAPTER;
+        } else if (rawType == Crew.class) {
+            adapter = CREW_ADAPTER;
+        } else if (rawType == Video.class) {
+            adapter = VIDEO_ADAPTER;
+        } else if (rawType == VideoResponse.class) {
+            adapter = VIDEO_RESPONSE_ADAPTER;
+        } else if (rawType == Review.class) {
+            adapter = REVIEW_ADAPTER;
+        } else if (rawType == ReviewResponse.class) {
+            adapter = REVIEW_RESPONSE_ADAPTER;
+        } else {
+            return null;
+        }
+        //noinspection unchecked
+        return (TypeAdapter<T>) adapter;
+    }
+
+    private static final TypeAdapter<Movie> MOVIE_ADAPTER = new TypeAdapter<Movie>() {
+        @Override
+        public void write(JsonWriter out, Movie movie) throws IOException {
+            if (movie == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(movie.getId());
+            out.name("original_title").value(movie.getOriginalTitle());
+            out.name("title").value(movie.getTitle());
+            out.name("poster_path").value(movie.getPosterPath());
+            out.name("overview").value(movie.getOverview());
+            out.name("vote_average").value(movie.getVoteAverage());
+            out.name("release_date").value(movie.getReleaseDate());
+            out.name("backdrop_path").value(movie.getBackdropPath());
+            out.endObject();
+        }
+
+        @Override
+        public Movie read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int id = 0;
+            String originalTitle = null;
+            String title = null;
+            String posterPath = null;
+            String overview = null;
+            double voteAverage = 0;
+            String releaseDate = null;
+            String backdropPath = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = nextInt(in);
+                        break;
+                    case "original_title":
+                        originalTitle = nextString(in);
+                        break;
+                    case "title":
+                        title = nextString(in);
+                        break;
+                    case "poster_path":
+                        posterPath = nextString(in);
+                        break;
+                    case "overview":
+                        overview = nextString(in);
+                        break;
+                    case "vote_average":
+                        voteAverage = nextDouble(in);
+                        break;
+                    case "release_date":
+                        releaseDate = nextString(in);
+                        break;
+                    case "backdrop_path":
+                        backdropPath = nextString(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Movie(id, originalTitle, title, posterPath, overview, voteAverage,
+                    releaseDate, backdropPath);
+        }
+    };
+
+    private static final TypeAdapter<MovieResponse> MOVIE_RESPONSE_ADAPTER = new TypeAdapter<MovieResponse>() {
+        @Override
+        public void write(JsonWriter out, MovieResponse movieResponse) throws IOException {
+            if (movieResponse == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("page").value(movieResponse.getPage());
+            out.name("total_results").value(movieResponse.getTotalResults());
+            out.name("total_pages").value(movieResponse.getTotalPages());
+            out.name("results");
+            writeList(out, movieResponse.getMovieResults(), MOVIE_ADAPTER);
+            out.endObject();
+        }
+
+        @Override
+        public MovieResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            MovieResponse movieResponse = new MovieResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "page":
+                        movieResponse.setPage(nextInt(in));
+                        break;
+                    case "total_results":
+                        movieResponse.setTotalResults(nextInt(in));
+                        break;
+                    case "total_pages":
+                        movieResponse.setTotalPages(nextInt(in));
+                        break;
+                    case "results":
+                        movieResponse.setMovieResults(readList(in, MOVIE_ADAPTER));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return movieResponse;
+        }
+    };
+
+    private static final TypeAdapter<Genre> GENRE_ADAPTER = new TypeAdapter<Genre>() {
+        @Override
+        public void write(JsonWriter out, Genre genre) throws IOException {
+            if (genre == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(genre.getGenreId());
+            out.name("name").value(genre.getGenreName());
+            out.endObject();
+        }
+
+        @Override
+        public Genre read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Genre genre = new Genre();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        genre.setGenreId(nextInt(in));
+                        break;
+                    case "name":
+                        genre.setGenreName(nextString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return genre;
+        }
+    };
+
+    private static final TypeAdapter<Cast> CAST_ADAPTER = new TypeAdapter<Cast>() {
+        @Override
+        public void write(JsonWriter out, Cast cast) throws IOException {
+            if (cast == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("cast_id").value(cast.getCastId());
+            out.name("character").value(cast.getCharacter());
+            out.name("id").value(cast.getPersonId());
+            out.name("name").value(cast.getName());
+            out.name("profile_path").value(cast.getProfilePath());
+            out.endObject();
+        }
+
+        @Override
+        public Cast read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Cast cast = new Cast();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "cast_id":
+                        cast.setCastId(nextInt(in));
+                        break;
+                    case "character":
+                        cast.setCharacter(nextString(in));
+                        break;
+                    case "id":
+                        cast.setPersonId(nextInt(in));
+                        break;
+                    case "name":
+                        cast.setName(nextString(in));
+                        break;
+                    case "profile_path":
+                        cast.setProfilePath(nextString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return cast;
+        }
+    };
+
+    private static final TypeAdapter<Crew> CREW_ADAPTER = new TypeAdapter<Crew>() {
+        @Override
+        public void write(JsonWriter out, Crew crew) throws IOException {
+            if (crew == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("job").value(crew.getJob());
+            out.name("name").value(crew.getName());
+            out.endObject();
+        }
+
+        @Override
+        public Crew read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Crew crew = new Crew();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "job":
+                        crew.setJob(nextString(in));
+                        break;
+                    case "name":
+                        crew.setName(nextString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return crew;
+        }
+    };
+
+    private static final TypeAdapter<Credits> CREDITS_ADAPTER = new TypeAdapter<Credits>() {
+        @Override
+        public void write(JsonWriter out, Credits credits) throws IOException {
+            if (credits == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("cast");
+            writeList(out, credits.getCast(), CAST_ADAPTER);
+            out.name("crew");
+            writeList(out, credits.getCrew(), CREW_ADAPTER);
+            out.endObject();
+        }
+
+        @Override
+        public Credits read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Credits credits = new Credits();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "cast":
+                        credits.setCast(readList(in, CAST_ADAPTER));
+                        break;
+                    case "crew":
+                        credits.setCrew(readList(in, CREW_ADAPTER));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return credits;
+        }
+    };
+
+    private static final TypeAdapter<Video> VIDEO_ADAPTER = new TypeAdapter<Video>() {
+        @Override
+        public void write(JsonWriter out, Video video) throws IOException {
+            if (video == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(video.getVideoId());
+            out.name("key").value(video.getKey());
+            out.name("name").value(video.getName());
+            out.name("site").value(video.getSite());
+            out.name("size").value(video.getSize());
+            out.name("type").value(video.getType());
+            out.endObject();
+        }
+
+        @Override
+        public Video read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Video video = new Video();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        video.setVideoId(nextString(in));
+                        break;
+                    case "key":
+                        video.setKey(nextString(in));
+                        break;
+                    case "name":
+                        video.setName(nextString(in));
+                        break;
+                    case "site":
+                        video.setSite(nextString(in));
+                        break;
+                    case "size":
+                        video.setSize(nextInt(in));
+                        break;
+                    case "type":
+                        video.setType(nextString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return video;
+        }
+    };
+
+    private static final TypeAdapter<VideoResponse> VIDEO_RESPONSE_ADAPTER = new TypeAdapter<VideoResponse>() {
+        @Override
+        public void write(JsonWriter out, VideoResponse videoResponse) throws IOException {
+            if (videoResponse == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(videoResponse.getId());
+            out.name("results");
+            writeList(out, videoResponse.getVideoResults(), VIDEO_ADAPTER);
+            out.endObject();
+        }
+
+        @Override
+        public VideoResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            VideoResponse videoResponse = new VideoResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        videoResponse.setId(nextInt(in));
+                        break;
+                    case "results":
+                        videoResponse.setVideoResults(readList(in, VIDEO_ADAPTER));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return videoResponse;
+        }
+    };
+
+    private static final TypeAdapter<Review> REVIEW_ADAPTER = new TypeAdapter<Review>() {
+        @Override
+        public void write(JsonWriter out, Review review) throws IOException {
+            if (review == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("author").value(review.getAuthor());
+            out.name("content").value(review.getContent());
+            out.name("id").value(review.getId());
+            out.name("url").value(review.getUrl());
+            out.endObject();
+        }
+
+        @Override
+        public Review read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Review review = new Review();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "author":
+                        review.setAuthor(nextString(in));
+                        break;
+                    case "content":
+                        review.setContent(nextString(in));
+                        break;
+                    case "id":
+                        review.setId(nextString(in));
+                        break;
+                    case "url":
+                        review.setUrl(nextString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return review;
+        }
+    };
+
+    private static final TypeAdapter<ReviewResponse> REVIEW_RESPONSE_ADAPTER = new TypeAdapter<ReviewResponse>() {
+        @Override
+        public void write(JsonWriter out, ReviewResponse reviewResponse) throws IOException {
+            if (reviewResponse == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(reviewResponse.getId());
+            out.name("page").value(reviewResponse.getPage());
+            out.name("results");
+            writeList(out, reviewResponse.getReviewResults(), REVIEW_ADAPTER);
+            out.endObject();
+        }
+
+        @Override
+        public ReviewResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ReviewResponse reviewResponse = new ReviewResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        reviewResponse.setId(nextInt(in));
+                        break;
+                    case "page":
+                        reviewResponse.setPage(nextInt(in));
+                        break;
+                    case "results":
+                        reviewResponse.setReviewResults(readList(in, REVIEW_ADAPTER));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return reviewResponse;
+        }
+    };
+
+    private static final TypeAdapter<MovieDetails> MOVIE_DETAILS_ADAPTER = new TypeAdapter<MovieDetails>() {
+        @Override
+        public void write(JsonWriter out, MovieDetails movieDetails) throws IOException {
+            if (movieDetails == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("budget").value(movieDetails.getBudget());
+            out.name("genres");
+            writeList(out, movieDetails.getGenres(), GENRE_ADAPTER);
+            out.name("runtime").value(movieDetails.getRuntime());
+            out.name("revenue").value(movieDetails.getRevenue());
+            out.name("status").value(movieDetails.getStatus());
+            out.name("vote_count").value(movieDetails.getVoteCount());
+            out.name("credits");
+            CREDITS_ADAPTER.write(out, movieDetails.getCredits());
+            out.name("videos");
+            VIDEO_RESPONSE_ADAPTER.write(out, movieDetails.getVideos());
+            out.name("reviews");
+            REVIEW_RESPONSE_ADAPTER.write(out, movieDetails.getReviews());
+            out.endObject();
+        }
+
+        @Override
+        public MovieDetails read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            MovieDetails movieDetails = new MovieDetails();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "budget":
+                        movieDetails.setBudget(nextLong(in));
+                        break;
+                    case "genres":
+                        movieDetails.setGenres(readList(in, GENRE_ADAPTER));
+                        break;
+                    case "runtime":
+                        movieDetails.setRuntime(nextInt(in));
+                        break;
+                    case "revenue":
+                        movieDetails.setRevenue(nextLong(in));
+                        break;
+                    case "status":
+                        movieDetails.setStatus(nextString(in));
+                        break;
+                    case "vote_count":
+                        movieDetails.setVoteCount(nextInt(in));
+                        break;
+                    case "credits":
+                        movieDetails.setCredits(CREDITS_ADAPTER.read(in));
+                        break;
+                    case "videos":
+                        movieDetails.setVideos(VIDEO_RESPONSE_ADAPTER.read(in));
+                        break;
+                    case "reviews":
+                        movieDetails.setReviews(REVIEW_RESPONSE_ADAPTER.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return movieDetails;
+        }
+    };
+
+    /**
+     * Returns the next string value, or null if the value is a JSON null
+     */
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Returns the next int value, or 0 if the value is a JSON null
+     */
+    private static int nextInt(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextInt();
+    }
+
+    /**
+     * Returns the next long value, or 0 if the value is a JSON null
+     */
+    private static long nextLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextLong();
+    }
+
+    /**
+     * Returns the next double value, or 0 if the value is a JSON null
+     */
+    private static double nextDouble(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextDouble();
+    }
+
+    /**
+     * Read a JSON array with the given element adapter. Returns null if the value is a JSON null.
+     */
+    private static <T> List<T> readList(JsonReader in, TypeAdapter<T> elementAdapter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<T> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(elementAdapter.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    /**
+     * Write the list as a JSON array with the given element adapter
+     */
+    private static <T> void writeList(JsonWriter out, List<T> list, TypeAdapter<T> elementAdapter)
+            throws IOException {
+        if (list == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (T element : list) {
+            elementAdapter.write(out, element);
+        }
+        out.endArray();
+    }
+}
@@ -25,7 +25,7 @@ import java.util.List;
 
 /**
  * A {@link MovieDetails} object includes information related to a movie details, for example,
- * budget, genres, runtime, revenue, status, vote count, credits.
+ * budget, genres, runtime, revenue, status, vote count, credits, videos and reviews.
  * This class implements Parcelable interface to allow {@link MovieDetails} object to be sent as a Parcel
  *
  * Reference: @see "https://stackoverflow.com/questions/7181526/how-can-i-make-my-custom-objects-parcelable"
@@ -53,6 +53,20 @@ public class MovieDetails implements Parcelable {
     @SerializedName("credits")
     private Credits mCredits;
 
+    /** The videos appended to the response. They are not written to the Parcel. */
+    @SerializedName("videos")
+    private VideoResponse mVideos;
+
+    /** The reviews appended to the response. They are not written to the Parcel. */
+    @SerializedName("reviews")
+    private ReviewResponse mReviews;
+
+    /**
+     * Constructor used by the streaming TypeAdapter in {@link ModelTypeAdapterFactory}
+     */
+    public MovieDetails() {
+    }
+
     private MovieDetails(Parcel in) {
         mBudget = in.readLong();
         mRuntime = in.readInt();
@@ -131,6 +145,22 @@ public class MovieDetails implements Parcelable {
         return mCredits;
     }
 
+    public void setVideos(VideoResponse videos) {
+        mVideos = videos;
+    }
+
+    public VideoResponse getVideos() {
+        return mVideos;
+    }
+
+    public void setReviews(ReviewResponse reviews) {
+        mReviews = reviews;
+    }
+
+    public ReviewResponse getReviews() {
+        return mReviews;
+    }
+
     @Override
     public int describeContents() {
         return 0;
@@ -42,6 +42,34 @@ public class MovieResponse {
     public MovieResponse() {
     }
 
+    public void setPage(int page) {
+        mPage = page;
+    }
+
+    public int getPage() {
+        return mPage;
+    }
+
+    public void setTotalResults(int totalResults) {
+        mTotalResults = totalResults;
+    }
+
+    public int getTotalResults() {
+        return mTotalResults;
+    }
+
+    public void setTotalPages(int totalPages) {
+        mTotalPages = totalPages;
+    }
+
+    public int getTotalPages() {
+        return mTotalPages;
+    }
+
+    public void setMovieResults(List<Movie> movieResults) {
+        mMovieResults = movieResults;
+    }
+
     public List<Movie> getMovieResults() {
         return mMovieResults;
     }
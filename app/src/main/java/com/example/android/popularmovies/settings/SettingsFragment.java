@@ -16,16 +16,36 @@
 
 package com.example.android.popularmovies.settings;
 
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
 import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.util.Log;
+import android.widget.Toast;
+
 import androidx.preference.ListPreference;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
 import androidx.preference.PreferenceScreen;
 
+import com.example.android.popularmovies.AppExecutors;
 import com.example.android.popularmovies.R;
+import com.example.android.popularmovies.data.FavoritesBackup;
+import com.example.android.popularmovies.data.MovieDatabase;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import static com.example.android.popularmovies.utilities.Constant.DEFAULT_VALUE;
+import static com.example.android.popularmovies.utilities.Constant.FAVORITES_BACKUP_FILE_NAME;
+import static com.example.android.popularmovies.utilities.Constant.FAVORITES_BACKUP_MIME_TYPE;
+import static com.example.android.popularmovies.utilities.Constant.REQUEST_CODE_EXPORT_FAVORITES;
+import static com.example.android.popularmovies.utilities.Constant.REQUEST_CODE_IMPORT_FAVORITES;
 
 /**
  * The SettingsFragment serves as the display for all of the user's settings.
@@ -33,6 +53,8 @@ import static com.example.android.popularmovies.utilities.Constant.DEFAULT_VALUE
 public class SettingsFragment extends PreferenceFragmentCompat implements
         SharedPreferences.OnSharedPreferenceChangeListener{
 
+    private static final String TAG = SettingsFragment.class.getSimpleName();
+
     @Override
     public void onCreatePreferences(Bundle savedInstanceState, String rootKey) {
 
@@ -46,13 +68,122 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
         // Get the number of preferences
         int count = prefScreen.getPreferenceCount();
 
-        // Go through all of the preferences, and set up their preference summary.
+        // Go through all of the list preferences, and set up their preference summary.
+        // The other preferences keep the summary set in the XML file.
         for (int i = 0; i < count; i++) {
             Preference p = prefScreen.getPreference(i);
+            if (p instanceof ListPreference) {
+                String value = sharedPreferences.getString(p.getKey(), DEFAULT_VALUE);
+                setPreferenceSummary(p, value);
+            }
+        }
+
+        // The backup file is picked with the Storage Access Framework, added in KitKat
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            findPreference(getString(R.string.pref_export_favorites_key)).setVisible(false);
+            findPreference(getString(R.string.pref_import_favorites_key)).setVisible(false);
+        }
+    }
 
-            String value = sharedPreferences.getString(p.getKey(), DEFAULT_VALUE);
-            setPreferenceSummary(p, value);
+    /**
+     * Let the user pick the file to export the favorites to or import them from
+     */
+    @Override
+    public boolean onPreferenceTreeClick(Preference preference) {
+        String key = preference.getKey();
+        if (getString(R.string.pref_export_favorites_key).equals(key)) {
+            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT)
+                    .addCategory(Intent.CATEGORY_OPENABLE)
+                    .setType(FAVORITES_BACKUP_MIME_TYPE)
+                    .putExtra(Intent.EXTRA_TITLE, FAVORITES_BACKUP_FILE_NAME);
+            startActivityForResult(intent, REQUEST_CODE_EXPORT_FAVORITES);
+            return true;
+        } else if (getString(R.string.pref_import_favorites_key).equals(key)) {
+            Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT)
+                    .addCategory(Intent.CATEGORY_OPENABLE)
+                    .setType(FAVORITES_BACKUP_MIME_TYPE);
+            startActivityForResult(intent, REQUEST_CODE_IMPORT_FAVORITES);
+            return true;
+        }
+        return super.onPreferenceTreeClick(preference);
+    }
+
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode != Activity.RESULT_OK || data == null || data.getData() == null) {
+            return;
         }
+        // The application context outlives the fragment while the file is written or read
+        Context context = requireContext().getApplicationContext();
+        if (requestCode == REQUEST_CODE_EXPORT_FAVORITES) {
+            exportFavorites(context, data.getData());
+        } else if (requestCode == REQUEST_CODE_IMPORT_FAVORITES) {
+            importFavorites(context, data.getData());
+        }
+    }
+
+    /**
+     * Write the favorites to the file on the disk thread, then show how many were exported
+     */
+    private static void exportFavorites(final Context context, final Uri uri) {
+        AppExecutors.getInstance().diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                String message;
+                try {
+                    OutputStream outputStream = context.getContentResolver().openOutputStream(uri);
+                    if (outputStream == null) {
+                        throw new FileNotFoundException(uri.toString());
+                    }
+                    int count = new FavoritesBackup(MovieDatabase.getInstance(context))
+                            .exportFavorites(outputStream);
+                    message = context.getResources()
+                            .getQuantityString(R.plurals.favorites_exported, count, count);
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to export the favorites", e);
+                    message = context.getString(R.string.favorites_export_failed);
+                }
+                showToast(context, message);
+            }
+        });
+    }
+
+    /**
+     * Read the favorites from the file on the disk thread, then show how many were imported
+     */
+    private static void importFavorites(final Context context, final Uri uri) {
+        AppExecutors.getInstance().diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                String message;
+                try {
+                    InputStream inputStream = context.getContentResolver().openInputStream(uri);
+                    if (inputStream == null) {
+                        throw new FileNotFoundException(uri.toString());
+                    }
+                    FavoritesBackup.ImportResult result =
+                            new FavoritesBackup(MovieDatabase.getInstance(context))
+                                    .importFavorites(inputStream);
+                    message = context.getResources().getQuantityString(
+                            R.plurals.favorites_imported, result.getImportedCount(),
+                            result.getImportedCount(), result.getSkippedCount());
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to import the favorites", e);
+                    message = context.getString(R.string.favorites_import_failed);
+                }
+                showToast(context, message);
+            }
+        });
+    }
+
+    private static void showToast(final Context context, final String message) {
+        AppExecutors.getInstance().mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     /**
@@ -65,7 +196,7 @@ public class SettingsFragment extends PreferenceFragmentCompat implements
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
         // Figure out which preference was changed
         Preference preference = findPreference(key);
-        if (null != preference) {
+        if (preference instanceof ListPreference) {
             // Updates the summary for the preference
             String value = sharedPreferences.getString(preference.getKey(), DEFAULT_VALUE);
             setPreferenceSummary(preference, value);
@@ -30,13 +30,11 @@ import com.example.android.popularmovies.R;
 import com.example.android.popularmovies.databinding.CastListItemBinding;
 import com.example.android.popularmovies.model.Cast;
 import com.squareup.picasso.Callback;
-import com.squareup.picasso.Picasso;
+import com.example.android.popularmovies.utilities.ImageLoader;
+import com.example.android.popularmovies.utilities.ImageUrlResolver;
 
 import java.util.List;
 
-import static com.example.android.popularmovies.utilities.Constant.IMAGE_BASE_URL;
-import static com.example.android.popularmovies.utilities.Constant.IMAGE_FILE_SIZE;
-
 /**
  * {@link CastAdapter} exposes a list of casts to a {@link RecyclerView}
  */
@@ -134,10 +132,12 @@ public class CastAdapter extends RecyclerView.Adapter<CastAdapter.CastViewHolder
          * @param cast The cast object
          */
          void bind(Cast cast) {
-            // The complete profile image url
-            String profile = IMAGE_BASE_URL + IMAGE_FILE_SIZE + cast.getProfilePath();
-            // Load image with Picasso library
-            Picasso.with(itemView.getContext())
+            // The complete profile image url, at the size that fits the ImageView
+            String profile = ImageUrlResolver.getInstance(itemView.getContext())
+                    .resolve(cast.getProfilePath(), itemView.getResources()
+                            .getDimensionPixelSize(R.dimen.width_cast_image));
+            // Load image with the shared ImageLoader
+            ImageLoader.getInstance(itemView.getContext())
                     .load(profile)
                     // Create circular avatars
                     // Reference: @see "https://stackoverflow.com/questions/26112150/android-create
@@ -39,8 +39,8 @@ import com.example.android.popularmovies.model.Credits;
 import com.example.android.popularmovies.model.Movie;
 import com.example.android.popularmovies.model.MovieDetails;
 import com.example.android.popularmovies.utilities.InjectorUtils;
-import com.example.android.popularmovies.ui.info.InfoViewModel;
-import com.example.android.popularmovies.ui.info.InfoViewModelFactory;
+import com.example.android.popularmovies.ui.detail.DetailViewModel;
+import com.example.android.popularmovies.ui.detail.DetailViewModelFactory;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -68,11 +68,11 @@ public class CastFragment extends Fragment {
     private Movie mMovie;
 
     /**
-     *  ViewModel for InformationFragment.
-     *  MovieDetails data contains the cast data of the movie, and get casts data from the getDetails
-     *  method in the InfoViewModel
+     *  ViewModel shared by the tabs of the DetailActivity.
+     *  MovieDetails data contains the cast data of the movie, and get casts data from the getMovieDetails
+     *  method in the DetailViewModel
      */
-    private InfoViewModel mInfoViewModel;
+    private DetailViewModel mDetailViewModel;
 
     /**
      * Mandatory empty constructor for the fragment manager to instantiate the fragment
@@ -120,11 +120,11 @@ public class CastFragment extends Fragment {
 
     private void setupViewModel(Context context, int movieId) {
         // Get the ViewModel from the factory
-        InfoViewModelFactory factory = InjectorUtils.provideInfoViewModelFactory(context, movieId);
-        mInfoViewModel = new ViewModelProvider(this, factory).get(InfoViewModel.class);
+        DetailViewModelFactory factory = InjectorUtils.provideDetailViewModelFactory(context, movieId);
+        mDetailViewModel = new ViewModelProvider(requireActivity(), factory).get(DetailViewModel.class);
 
         // Retrieve live data object using the getMovieDetails() method from the ViewModel
-        mInfoViewModel.getMovieDetails().observe(getViewLifecycleOwner(), new Observer<MovieDetails>() {
+        mDetailViewModel.getMovieDetails().observe(getViewLifecycleOwner(), new Observer<MovieDetails>() {
             @Override
             public void onChanged(@Nullable MovieDetails movieDetails) {
                 if (movieDetails != null) {
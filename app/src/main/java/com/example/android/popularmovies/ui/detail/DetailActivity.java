@@ -43,6 +43,7 @@ import android.widget.TextView;
 
 import com.example.android.popularmovies.AppExecutors;
 import com.example.android.popularmovies.R;
+import com.example.android.popularmovies.data.GenreEntry;
 import com.example.android.popularmovies.data.MovieDatabase;
 import com.example.android.popularmovies.data.MovieEntry;
 import com.example.android.popularmovies.databinding.ActivityDetailBinding;
@@ -53,19 +54,18 @@ import com.example.android.popularmovies.model.Movie;
 import com.example.android.popularmovies.model.MovieDetails;
 import com.example.android.popularmovies.model.Video;
 import com.example.android.popularmovies.utilities.FormatUtils;
+import com.example.android.popularmovies.utilities.ImageLoader;
+import com.example.android.popularmovies.utilities.ImageUrlResolver;
 import com.example.android.popularmovies.utilities.InjectorUtils;
 import com.example.android.popularmovies.ui.main.FavViewModel;
 import com.example.android.popularmovies.ui.main.FavViewModelFactory;
-import com.squareup.picasso.Picasso;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
-import static com.example.android.popularmovies.utilities.Constant.BACKDROP_FILE_SIZE;
 import static com.example.android.popularmovies.utilities.Constant.CAST;
 import static com.example.android.popularmovies.utilities.Constant.EXTRA_MOVIE;
-import static com.example.android.popularmovies.utilities.Constant.IMAGE_BASE_URL;
 import static com.example.android.popularmovies.utilities.Constant.RELEASE_YEAR_BEGIN_INDEX;
 import static com.example.android.popularmovies.utilities.Constant.RELEASE_YEAR_END_INDEX;
 import static com.example.android.popularmovies.utilities.Constant.RESULTS_GENRE;
@@ -106,6 +106,9 @@ public class DetailActivity extends AppCompatActivity implements
     /** The first trailer's YouTube URL */
     private String mFirstVideoUrl;
 
+    /** The genres of the movie, stored with the movie when it is added to the favorites */
+    private List<GenreEntry> mGenres = new ArrayList<>();
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -185,23 +188,24 @@ public class DetailActivity extends AppCompatActivity implements
         mMovieEntry = getMovieEntry();
 
         if (!mIsInFavorites) {
+            final List<GenreEntry> genreEntries = mGenres;
             AppExecutors.getInstance().diskIO().execute(new Runnable() {
                 @Override
                 public void run() {
-                    // Insert a movie to the MovieDatabase by using the movieDao
-                    mDb.movieDao().insertMovie(mMovieEntry);
+                    // Insert a movie and its genres to the MovieDatabase by using the movieDao
+                    mDb.movieDao().insertFavoriteMovie(mMovieEntry, genreEntries);
                 }
             });
 
             // Show snack bar message "Added to your favorites collection"
             showSnackbarAdded();
         } else {
-            mMovieEntry = mFavViewModel.getMovieEntry().getValue();
+            final int movieId = mMovie.getId();
             AppExecutors.getInstance().diskIO().execute(new Runnable() {
                 @Override
                 public void run() {
                     // Delete a movie from the MovieDatabase by using the movieDao
-                    mDb.movieDao().deleteMovie(mMovieEntry);
+                    mDb.movieDao().deleteMovieByMovieId(movieId);
                 }
             });
 
@@ -216,13 +220,12 @@ public class DetailActivity extends AppCompatActivity implements
     private MovieEntry getMovieEntry() {
         String runtime = mDetailBinding.tvRuntime.getText().toString();
         String releaseYear = mDetailBinding.tvReleaseYear.getText().toString();
-        String genre = mDetailBinding.tvGenre.getText().toString();
 
         // Create a MovieEntry
         mMovieEntry = new MovieEntry(mMovie.getId(), mMovie.getOriginalTitle(), mMovie.getTitle(),
                 mMovie.getPosterPath(), mMovie.getOverview(), mMovie.getVoteAverage(),
                 mMovie.getReleaseDate(), mMovie.getBackdropPath(), new Date(),
-                runtime, releaseYear, genre);
+                runtime, releaseYear);
 
         return mMovieEntry;
     }
@@ -241,10 +244,26 @@ public class DetailActivity extends AppCompatActivity implements
                 if (movieEntry != null) {
                     mDetailBinding.tvRuntime.setText(movieEntry.getRuntime());
                     mDetailBinding.tvReleaseYear.setText(movieEntry.getReleaseYear());
-                    mDetailBinding.tvGenre.setText(movieEntry.getGenre());
                 }
             }
         });
+        mFavViewModel.getGenres().observe(this, new Observer<List<GenreEntry>>() {
+            @Override
+            public void onChanged(@Nullable List<GenreEntry> genreEntries) {
+                // Removing the movie from the favorites deletes its genres. Keep the genres
+                // loaded before, so that adding the movie back offline stores them again.
+                if (genreEntries == null || genreEntries.isEmpty()) {
+                    return;
+                }
+                mGenres = genreEntries;
+                List<String> genreNames = new ArrayList<>(genreEntries.size());
+                for (GenreEntry genreEntry : genreEntries) {
+                    genreNames.add(genreEntry.getName());
+                }
+                mDetailBinding.tvGenre.setText(
+                        TextUtils.join(getString(R.string.delimiter_comma), genreNames));
+            }
+        });
     }
 
     /**
@@ -257,11 +276,12 @@ public class DetailActivity extends AppCompatActivity implements
                 DetailActivity.this, mMovie.getId());
         mFavViewModel = new ViewModelProvider(this, factory).get(FavViewModel.class);
 
-        // Changes the favoriteFab image based on whether or not the movie exists
-        mFavViewModel.getMovieEntry().observe(this, new Observer<MovieEntry>() {
+        // Changes the favoriteFab image based on whether or not the movie exists. Only observe
+        // whether the movie exists, so that the full MovieEntry isn't loaded for every movie opened.
+        mFavViewModel.isFavorite().observe(this, new Observer<Boolean>() {
             @Override
-            public void onChanged(@Nullable MovieEntry movieEntry) {
-                if (mFavViewModel.getMovieEntry().getValue() == null) {
+            public void onChanged(@Nullable Boolean isFavorite) {
+                if (isFavorite == null || !isFavorite) {
                     mDetailBinding.fab.setImageResource(R.drawable.favorite_border);
                     mIsInFavorites = false;
                 } else {
@@ -358,11 +378,12 @@ public class DetailActivity extends AppCompatActivity implements
     private void loadBackdropImage() {
         // Get the backdrop path
         String backdropPath = mMovie.getBackdropPath();
-        // The complete backdrop image url
-        String backdrop = IMAGE_BASE_URL + BACKDROP_FILE_SIZE + backdropPath;
-        // Load image with Picasso library
-        Picasso.with(this)
-                .load(backdrop)
+        // The complete backdrop image url, at the size that fits the width of the screen
+        ImageUrlResolver resolver = ImageUrlResolver.getInstance(this);
+        String backdrop = resolver.resolve(backdropPath, resolver.getScreenWidth());
+        // Load image with the shared ImageLoader
+        ImageLoader.getInstance(this)
+                .loadFitted(backdrop, false)
                 .error(R.drawable.photo)
                 .into(mDetailBinding.ivBackdrop);
     }
@@ -441,6 +462,12 @@ public class DetailActivity extends AppCompatActivity implements
 
         // Get the genre of the movie from MovieDetails
         List<Genre> genres = movieDetails.getGenres();
+        // Keep the genres to store them with the movie when it is added to the favorites
+        List<GenreEntry> genreEntries = new ArrayList<>(genres.size());
+        for (Genre genre : genres) {
+            genreEntries.add(new GenreEntry(genre));
+        }
+        mGenres = genreEntries;
         // Create an empty arrayList
         List<String> genresStrList = new ArrayList<>();
         // Iterate through the list of genres, and add genre name to the list of strings
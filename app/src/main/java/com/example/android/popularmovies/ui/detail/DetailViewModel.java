@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.ui.detail;
+
+import androidx.arch.core.util.Function;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModel;
+
+import com.example.android.popularmovies.data.MovieRepository;
+import com.example.android.popularmovies.model.MovieDetails;
+import com.example.android.popularmovies.model.ReviewResponse;
+import com.example.android.popularmovies.model.VideoResponse;
+
+/**
+ * {@link ViewModel} for DetailActivity. It is scoped to the activity, so that the information,
+ * trailer, cast and review tabs all observe the result of a single detail request.
+ */
+public class DetailViewModel extends ViewModel {
+
+    private final MovieRepository mRepository;
+    private final LiveData<MovieDetails> mMovieDetails;
+    private final LiveData<VideoResponse> mVideoResponse;
+    private final LiveData<ReviewResponse> mReviewResponse;
+
+    public DetailViewModel(MovieRepository repository, int movieId) {
+        mRepository = repository;
+        mMovieDetails = mRepository.getMovieDetails(movieId);
+
+        // The videos and reviews are appended to the MovieDetails response
+        mVideoResponse = Transformations.map(mMovieDetails, new Function<MovieDetails, VideoResponse>() {
+            @Override
+            public VideoResponse apply(MovieDetails movieDetails) {
+                return movieDetails == null ? null : movieDetails.getVideos();
+            }
+        });
+        mReviewResponse = Transformations.map(mMovieDetails, new Function<MovieDetails, ReviewResponse>() {
+            @Override
+            public ReviewResponse apply(MovieDetails movieDetails) {
+                return movieDetails == null ? null : movieDetails.getReviews();
+            }
+        });
+    }
+
+    public LiveData<MovieDetails> getMovieDetails() {
+        return mMovieDetails;
+    }
+
+    public LiveData<VideoResponse> getVideoResponse() {
+        return mVideoResponse;
+    }
+
+    public LiveData<ReviewResponse> getReviewResponse() {
+        return mReviewResponse;
+    }
+}
@@ -14,7 +14,7 @@
  *  limitations under the License.
  */
 
-package com.example.android.popularmovies.ui.review;
+package com.example.android.popularmovies.ui.detail;
 
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
@@ -25,12 +25,12 @@ import com.example.android.popularmovies.data.MovieRepository;
  * Factory method that allows us to create a ViewModel with a constructor that takes a
  * {@link MovieRepository} and the movie ID
  */
-public class ReviewViewModelFactory extends ViewModelProvider.NewInstanceFactory  {
+public class DetailViewModelFactory extends ViewModelProvider.NewInstanceFactory {
 
     private final MovieRepository mRepository;
     private final int mMovieId;
 
-    public ReviewViewModelFactory(MovieRepository repository, int movieId) {
+    public DetailViewModelFactory(MovieRepository repository, int movieId) {
         this.mRepository = repository;
         this.mMovieId = movieId;
     }
@@ -38,6 +38,6 @@ public class ReviewViewModelFactory extends ViewModelProvider.NewInstanceFactory
     @Override
     public <T extends ViewModel> T create(Class<T> modelClass) {
         //noinspection unchecked
-        return (T) new ReviewViewModel(mRepository, mMovieId);
+        return (T) new DetailViewModel(mRepository, mMovieId);
     }
 }
@@ -39,6 +39,8 @@ import com.example.android.popularmovies.model.Credits;
 import com.example.android.popularmovies.model.Crew;
 import com.example.android.popularmovies.model.Movie;
 import com.example.android.popularmovies.model.MovieDetails;
+import com.example.android.popularmovies.ui.detail.DetailViewModel;
+import com.example.android.popularmovies.ui.detail.DetailViewModelFactory;
 import com.example.android.popularmovies.utilities.FormatUtils;
 import com.example.android.popularmovies.utilities.InjectorUtils;
 
@@ -82,8 +84,8 @@ public class InformationFragment extends Fragment {
     /** Member variable for the Movie object */
     private Movie mMovie;
 
-    /** ViewModel for InformationFragment */
-    private InfoViewModel mInfoViewModel;
+    /** ViewModel shared by the tabs of the DetailActivity */
+    private DetailViewModel mDetailViewModel;
 
     /**
      * Mandatory empty constructor for the fragment manager to instantiate the fragment
@@ -109,11 +111,12 @@ public class InformationFragment extends Fragment {
      * Every time the user data is updated, the onChanged callback will be invoked and update the UI
      */
     private void setupViewModel(Context context, int movieId) {
-        InfoViewModelFactory factory = InjectorUtils.provideInfoViewModelFactory(context, movieId);
-        mInfoViewModel = new ViewModelProvider(this, factory).get(InfoViewModel.class);
+        DetailViewModelFactory factory = InjectorUtils.provideDetailViewModelFactory(context, movieId);
+        // Scope the ViewModel to the activity so that every tab shares a single detail request
+        mDetailViewModel = new ViewModelProvider(requireActivity(), factory).get(DetailViewModel.class);
 
         // Retrieve live data object using the getMovieDetails() method from the ViewModel
-        mInfoViewModel.getMovieDetails().observe(getViewLifecycleOwner(), new Observer<MovieDetails>() {
+        mDetailViewModel.getMovieDetails().observe(getViewLifecycleOwner(), new Observer<MovieDetails>() {
             @Override
             public void onChanged(@Nullable MovieDetails movieDetails) {
                 if (movieDetails != null) {
@@ -19,9 +19,12 @@ package com.example.android.popularmovies.ui.main;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.example.android.popularmovies.data.GenreEntry;
 import com.example.android.popularmovies.data.MovieEntry;
 import com.example.android.popularmovies.data.MovieRepository;
 
+import java.util.List;
+
 /**
  * {@link ViewModel} for Favorites
  */
@@ -29,13 +32,25 @@ public class FavViewModel extends ViewModel {
 
     private final MovieRepository mRepository;
     private LiveData<MovieEntry> mMovieEntry;
+    private LiveData<Boolean> mIsFavorite;
+    private LiveData<List<GenreEntry>> mGenres;
 
     public FavViewModel(MovieRepository repository, int movieId) {
         mRepository = repository;
         mMovieEntry = mRepository.getFavoriteMovieByMovieId(movieId);
+        mIsFavorite = mRepository.isFavorite(movieId);
+        mGenres = mRepository.getGenresByMovieId(movieId);
     }
 
     public LiveData<MovieEntry> getMovieEntry() {
         return mMovieEntry;
     }
+
+    public LiveData<Boolean> isFavorite() {
+        return mIsFavorite;
+    }
+
+    public LiveData<List<GenreEntry>> getGenres() {
+        return mGenres;
+    }
 }
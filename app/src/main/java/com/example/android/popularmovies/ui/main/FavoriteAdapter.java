@@ -17,8 +17,11 @@
 package com.example.android.popularmovies.ui.main;
 
 import android.content.Context;
+import android.text.TextUtils;
 import androidx.databinding.DataBindingUtil;
 import androidx.annotation.NonNull;
+import androidx.paging.PagedListAdapter;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import android.view.ContextMenu;
 import android.view.LayoutInflater;
@@ -29,25 +32,30 @@ import android.view.ViewGroup;
 import com.example.android.popularmovies.AppExecutors;
 import com.example.android.popularmovies.R;
 import com.example.android.popularmovies.data.MovieDatabase;
-import com.example.android.popularmovies.data.MovieEntry;
+import com.example.android.popularmovies.data.FavoriteThumb;
 import com.example.android.popularmovies.databinding.FavListItemBinding;
-import com.squareup.picasso.Picasso;
+import com.example.android.popularmovies.utilities.ImageLoader;
+import com.example.android.popularmovies.utilities.ImageUrlResolver;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import static com.example.android.popularmovies.utilities.Constant.DECODE_THUMBNAILS_RGB_565;
 import static com.example.android.popularmovies.utilities.Constant.DELETE;
 import static com.example.android.popularmovies.utilities.Constant.DELETE_GROUP_ID;
 import static com.example.android.popularmovies.utilities.Constant.DELETE_ORDER;
-import static com.example.android.popularmovies.utilities.Constant.IMAGE_BASE_URL;
-import static com.example.android.popularmovies.utilities.Constant.IMAGE_FILE_SIZE;
+import static com.example.android.popularmovies.utilities.Constant.GRID_IMAGE_TAG;
+import static com.example.android.popularmovies.utilities.Constant.SELECT;
+import static com.example.android.popularmovies.utilities.Constant.SELECT_ORDER;
 
 /**
- * Exposes a list of favorite movies from a list of {@link MovieEntry} to a {@link RecyclerView}
+ * Exposes a list of favorite movies from a PagedList of {@link FavoriteThumb} to a {@link RecyclerView}.
+ * Only the pages near the screen are loaded, and DiffUtil computes fine grain updates when
+ * a favorite is added or removed.
  */
-public class FavoriteAdapter extends RecyclerView.Adapter<FavoriteAdapter.FavoriteViewHolder> {
-
-    /** Member variable for the list of MovieEntries that holds movie data */
-    private List<MovieEntry> mMovieEntries;
+public class FavoriteAdapter extends PagedListAdapter<FavoriteThumb, FavoriteAdapter.FavoriteViewHolder> {
 
     /** Context we use to utility methods, app resources and layout inflaters */
     private Context mContext;
@@ -57,17 +65,48 @@ public class FavoriteAdapter extends RecyclerView.Adapter<FavoriteAdapter.Favori
      */
     private final FavoriteAdapterOnClickHandler mOnClickHandler;
 
+    /** The movie IDs of the favorites selected for a bulk delete */
+    private final Set<Integer> mSelectedMovieIds = new HashSet<>();
+
+    /** True while the user is selecting favorites, when a click toggles the selection */
+    private boolean mSelectionMode;
+
+    /** Payload of a change of the selection, which only updates the highlight of a cell */
+    private static final Object PAYLOAD_SELECTION = new Object();
+
     /**
      * The interface that receives onClick messages.
      */
     public interface FavoriteAdapterOnClickHandler {
-        void onFavItemClick(MovieEntry movieEntry);
+        void onFavItemClick(FavoriteThumb favoriteThumb);
+
+        void onFavSelectionChanged(int selectedCount);
     }
 
+    /**
+     * Tell FavoriteAdapter how to compute the differences between the two elements
+     */
+    private static DiffUtil.ItemCallback<FavoriteThumb> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<FavoriteThumb>() {
+                // The movie ID identifies when items are the same
+                @Override
+                public boolean areItemsTheSame(FavoriteThumb oldItem, FavoriteThumb newItem) {
+                    return oldItem.getMovieId() == newItem.getMovieId();
+                }
+
+                // Compare the data displayed in the grid
+                @Override
+                public boolean areContentsTheSame(FavoriteThumb oldItem, FavoriteThumb newItem) {
+                    return TextUtils.equals(oldItem.getTitle(), newItem.getTitle())
+                            && TextUtils.equals(oldItem.getPosterPath(), newItem.getPosterPath());
+                }
+            };
+
     /**
      * Constructor for the FavoriteAdapter
      */
     public FavoriteAdapter(Context context, FavoriteAdapterOnClickHandler onClickHandler) {
+        super(FavoriteAdapter.DIFF_CALLBACK);
         mContext = context;
         mOnClickHandler = onClickHandler;
     }
@@ -95,33 +134,87 @@ public class FavoriteAdapter extends RecyclerView.Adapter<FavoriteAdapter.Favori
      */
     @Override
     public void onBindViewHolder(@NonNull FavoriteViewHolder holder, int position) {
-        MovieEntry movieEntry = mMovieEntries.get(position);
-        holder.bind(movieEntry);
+        FavoriteThumb favoriteThumb = getItem(position);
+        holder.bind(favoriteThumb);
     }
 
     /**
-     * Returns the number of items to display.
+     * Called by the RecyclerView to update the item at the specified position. When only the
+     * selection changed, the highlight is updated without binding the poster and title again.
      */
     @Override
-    public int getItemCount() {
-        if (mMovieEntries == null) return 0;
-        return mMovieEntries.size();
+    public void onBindViewHolder(@NonNull FavoriteViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.bindSelection(getItem(position));
+        }
     }
 
     /**
-     * When data changes, updates the list of movieEntries
-     * and notifies the adapter to use the new values on it
+     * Cancel the poster request of a recycled view, which would otherwise still download and decode
+     * a poster that is no longer shown
      */
-    public void setMovies(List<MovieEntry> movieEntries) {
-        mMovieEntries = movieEntries;
-        notifyDataSetChanged();
+    @Override
+    public void onViewRecycled(@NonNull FavoriteViewHolder holder) {
+        super.onViewRecycled(holder);
+        ImageLoader.getInstance(holder.itemView.getContext())
+                .cancelRequest(holder.mFavItemBinding.ivThumbnail);
     }
 
     /**
-     * Returns the list of MovieEntries
+     * Start selecting favorites, with the given movie selected
+     *
+     * @param position The adapter position of the movie
+     * @param movieId The movie ID
      */
-    public List<MovieEntry> getMovies() {
-        return mMovieEntries;
+    private void startSelection(int position, int movieId) {
+        mSelectionMode = true;
+        toggleSelection(position, movieId);
+    }
+
+    /**
+     * Select the movie if it isn't selected, otherwise unselect it, and update its highlight
+     *
+     * @param position The adapter position of the movie
+     * @param movieId The movie ID
+     */
+    private void toggleSelection(int position, int movieId) {
+        if (!mSelectedMovieIds.remove(movieId)) {
+            mSelectedMovieIds.add(movieId);
+        }
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+        mOnClickHandler.onFavSelectionChanged(mSelectedMovieIds.size());
+    }
+
+    /**
+     * Returns the movie IDs of the selected favorites
+     */
+    public List<Integer> getSelectedMovieIds() {
+        return new ArrayList<>(mSelectedMovieIds);
+    }
+
+    /**
+     * Stop selecting favorites and clear the selection
+     */
+    public void clearSelection() {
+        mSelectionMode = false;
+        if (mSelectedMovieIds.isEmpty() || getCurrentList() == null) {
+            mSelectedMovieIds.clear();
+            return;
+        }
+
+        // Update the highlight of the selected favorites that are loaded. A snapshot doesn't load
+        // the pages that were dropped, whose cells are bound again when they are loaded.
+        List<FavoriteThumb> favoriteThumbs = getCurrentList().snapshot();
+        for (int position = 0; position < favoriteThumbs.size(); position++) {
+            FavoriteThumb favoriteThumb = favoriteThumbs.get(position);
+            if (favoriteThumb != null && mSelectedMovieIds.contains(favoriteThumb.getMovieId())) {
+                notifyItemChanged(position, PAYLOAD_SELECTION);
+            }
+        }
+        mSelectedMovieIds.clear();
     }
 
     /**
@@ -147,17 +240,39 @@ public class FavoriteAdapter extends RecyclerView.Adapter<FavoriteAdapter.Favori
             itemView.setOnCreateContextMenuListener(this);
         }
 
-        void bind(MovieEntry movieEntry) {
-            // Get the complete thumbnail path
-            String thumbnail = IMAGE_BASE_URL + IMAGE_FILE_SIZE + movieEntry.getPosterPath();
+        void bind(FavoriteThumb favoriteThumb) {
+            // The FavoriteThumb is null while its page is being loaded, so show an empty placeholder
+            if (favoriteThumb == null) {
+                itemView.setActivated(false);
+                ImageLoader.getInstance(itemView.getContext()).cancelRequest(mFavItemBinding.ivThumbnail);
+                mFavItemBinding.ivThumbnail.setImageDrawable(null);
+                mFavItemBinding.tvTitle.setText(null);
+                return;
+            }
+
+            // Get the complete thumbnail path, at the size that fits a cell of the grid
+            ImageUrlResolver resolver = ImageUrlResolver.getInstance(itemView.getContext());
+            String thumbnail = resolver.resolve(favoriteThumb.getPosterPath(),
+                    resolver.getGridCellWidth());
 
-            // Load thumbnail with Picasso library
-            Picasso.with(itemView.getContext())
-                    .load(thumbnail)
+            // Load thumbnail with the shared ImageLoader
+            ImageLoader.getInstance(itemView.getContext())
+                    .loadFitted(thumbnail, DECODE_THUMBNAILS_RGB_565)
+                    .tag(GRID_IMAGE_TAG)
                     .into(mFavItemBinding.ivThumbnail);
 
             // Set title of the movie to the TextView
-            mFavItemBinding.tvTitle.setText(movieEntry.getTitle());
+            mFavItemBinding.tvTitle.setText(favoriteThumb.getTitle());
+
+            bindSelection(favoriteThumb);
+        }
+
+        /**
+         * Highlight the selected favorites with the activated state of list_item_selector
+         */
+        void bindSelection(FavoriteThumb favoriteThumb) {
+            itemView.setActivated(favoriteThumb != null
+                    && mSelectedMovieIds.contains(favoriteThumb.getMovieId()));
         }
 
         /**
@@ -167,8 +282,16 @@ public class FavoriteAdapter extends RecyclerView.Adapter<FavoriteAdapter.Favori
         @Override
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
-            MovieEntry movieEntry = mMovieEntries.get(adapterPosition);
-            mOnClickHandler.onFavItemClick(movieEntry);
+            if (adapterPosition == RecyclerView.NO_POSITION) return;
+            FavoriteThumb favoriteThumb = getItem(adapterPosition);
+            if (favoriteThumb == null) return;
+
+            if (mSelectionMode) {
+                // While selecting favorites, a click selects or unselects the movie
+                toggleSelection(adapterPosition, favoriteThumb.getMovieId());
+            } else {
+                mOnClickHandler.onFavItemClick(favoriteThumb);
+            }
         }
 
         /**
@@ -183,6 +306,11 @@ public class FavoriteAdapter extends RecyclerView.Adapter<FavoriteAdapter.Favori
             // Set the itemId to adapterPosition to retrieve movieEntry later
             MenuItem item = menu.add(DELETE_GROUP_ID, adapterPosition, DELETE_ORDER, v.getContext().getString(R.string.action_delete));
             item.setOnMenuItemClickListener(this);
+            // Offer to select several favorites to delete them at once
+            if (!mSelectionMode) {
+                MenuItem selectItem = menu.add(DELETE_GROUP_ID, adapterPosition, SELECT_ORDER, v.getContext().getString(R.string.action_select));
+                selectItem.setOnMenuItemClickListener(this);
+            }
         }
 
         /**
@@ -193,9 +321,17 @@ public class FavoriteAdapter extends RecyclerView.Adapter<FavoriteAdapter.Favori
             switch (item.getTitle().toString()) {
                 case DELETE:
                     int adapterPosition = item.getItemId();
-                    MovieEntry movieEntry = mMovieEntries.get(adapterPosition);
+                    FavoriteThumb favoriteThumb = getItem(adapterPosition);
                     // Delete a favorite movie
-                    delete(movieEntry);
+                    if (favoriteThumb != null) {
+                        delete(favoriteThumb.getMovieId());
+                    }
+                    return true;
+                case SELECT:
+                    FavoriteThumb selectedThumb = getItem(item.getItemId());
+                    if (selectedThumb != null) {
+                        startSelection(item.getItemId(), selectedThumb.getMovieId());
+                    }
                     return true;
                 default:
                     return false;
@@ -205,14 +341,14 @@ public class FavoriteAdapter extends RecyclerView.Adapter<FavoriteAdapter.Favori
         /**
          * Delete a favorite movie when the user clicks "Delete" menu option.
          */
-        private void delete(final MovieEntry movieEntry) {
+        private void delete(final int movieId) {
             // Get the MovieDatabase instance
             final MovieDatabase db = MovieDatabase.getInstance(mContext);
             AppExecutors.getInstance().diskIO().execute(new Runnable() {
                 @Override
                 public void run() {
                     // Delete a favorite movie from the MovieDatabase by using the movieDao
-                    db.movieDao().deleteMovie(movieEntry);
+                    db.movieDao().deleteMovieByMovieId(movieId);
                 }
             });
         }
@@ -16,22 +16,34 @@
 
 package com.example.android.popularmovies.ui.main;
 
+import android.os.Parcelable;
+import android.util.LruCache;
+
+import androidx.arch.core.util.Function;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 import androidx.lifecycle.ViewModel;
+import androidx.paging.DataSource;
 import androidx.paging.LivePagedListBuilder;
 import androidx.paging.PagedList;
 
+import com.example.android.popularmovies.AppExecutors;
+import com.example.android.popularmovies.data.FavoriteThumb;
+import com.example.android.popularmovies.data.GenreEntry;
+import com.example.android.popularmovies.data.MovieDataSource;
 import com.example.android.popularmovies.data.MovieDataSourceFactory;
-import com.example.android.popularmovies.data.MovieEntry;
 import com.example.android.popularmovies.data.MovieRepository;
+import com.example.android.popularmovies.data.NetworkState;
 import com.example.android.popularmovies.model.Movie;
 
 import java.util.List;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
+import static com.example.android.popularmovies.utilities.Constant.FAVORITES_MAX_SIZE;
+import static com.example.android.popularmovies.utilities.Constant.FAVORITES_PAGE_SIZE;
 import static com.example.android.popularmovies.utilities.Constant.INITIAL_LOAD_SIZE_HINT;
-import static com.example.android.popularmovies.utilities.Constant.NUMBER_OF_FIXED_THREADS_FIVE;
+import static com.example.android.popularmovies.utilities.Constant.MAX_CACHED_SORT_CRITERIA;
+import static com.example.android.popularmovies.utilities.Constant.NO_GENRE_FILTER;
 import static com.example.android.popularmovies.utilities.Constant.PAGE_SIZE;
 import static com.example.android.popularmovies.utilities.Constant.PREFETCH_DISTANCE;
 
@@ -43,23 +55,106 @@ public class MainActivityViewModel extends ViewModel {
     private final MovieRepository mRepository;
 
     private LiveData<PagedList<Movie>> mMoviePagedList;
-    private LiveData<List<MovieEntry>> mFavoriteMovies;
+    /** The SortedMovieList of the current sort criteria */
+    private SortedMovieList mSortedMovieList;
+    /**
+     * The paged lists of the recently viewed sort criteria, so that switching back to a sort
+     * criteria shows the movies already loaded at the same scroll position
+     */
+    private final LruCache<String, SortedMovieList> mSortedMovieLists =
+            new LruCache<String, SortedMovieList>(MAX_CACHED_SORT_CRITERIA) {
+                @Override
+                protected void entryRemoved(boolean evicted, String sortCriteria,
+                                            SortedMovieList oldValue, SortedMovieList newValue) {
+                    // Stop the pending loads and retries of the evicted list
+                    MovieDataSource dataSource = oldValue.mMovieDataFactory.getPostLiveData().getValue();
+                    if (dataSource != null) {
+                        dataSource.invalidate();
+                    }
+                }
+            };
+    /** The value of the sort criteria of the favorites, which are paged from the database */
+    private final String mFavoritesSortCriteria;
+    /**
+     * Holds the scroll position of the favorites. The favorites have no paged list of TMDb movies,
+     * so its paged list is never set.
+     */
+    private final SortedMovieList mFavoritesList =
+            new SortedMovieList(null, new MutableLiveData<PagedList<Movie>>());
+    private LiveData<PagedList<FavoriteThumb>> mFavoriteMovies;
+    /** The TMDb genre ID the favorites are filtered by, or NO_GENRE_FILTER */
+    private final MutableLiveData<Integer> mFavoriteGenreId = new MutableLiveData<>();
+    /** The genres of the favorite movies */
+    private final LiveData<List<GenreEntry>> mFavoriteGenres;
     private String mSortCriteria;
 
-    public MainActivityViewModel(MovieRepository repository, String sortCriteria) {
+    /** The MovieDataSourceFactory of the current paged list */
+    private final MutableLiveData<MovieDataSourceFactory> mMovieDataFactory = new MutableLiveData<>();
+    /** The NetworkState of the current paged list, which survives changes of the sort criteria */
+    private final LiveData<NetworkState> mNetworkState;
+
+    /** The text typed in the SearchView */
+    private final MutableLiveData<String> mSearchQuery = new MutableLiveData<>();
+    /** The paged list of the movies matching the search query, rebuilt when the query changes */
+    private final LiveData<PagedList<Movie>> mSearchResults;
+
+    public MainActivityViewModel(MovieRepository repository, String sortCriteria,
+                                 String favoritesSortCriteria) {
         mRepository = repository;
         mSortCriteria = sortCriteria;
+        mFavoritesSortCriteria = favoritesSortCriteria;
+        mFavoriteGenres = mRepository.getFavoriteGenres();
+        mNetworkState = Transformations.switchMap(mMovieDataFactory,
+                new Function<MovieDataSourceFactory, LiveData<NetworkState>>() {
+                    @Override
+                    public LiveData<NetworkState> apply(MovieDataSourceFactory factory) {
+                        return factory.getNetworkState();
+                    }
+                });
+        mSearchResults = Transformations.switchMap(mSearchQuery,
+                new Function<String, LiveData<PagedList<Movie>>>() {
+                    @Override
+                    public LiveData<PagedList<Movie>> apply(String query) {
+                        PagedList.Config config = (new PagedList.Config.Builder())
+                                .setEnablePlaceholders(false)
+                                .setPageSize(PAGE_SIZE)
+                                .build();
+                        return new LivePagedListBuilder<>(mRepository.searchMovies(query), config)
+                                .build();
+                    }
+                });
         init(sortCriteria);
     }
 
     /**
-     * Initialize the paged list
+     * Initialize the paged list, reusing the paged list of the sort criteria if it is still cached
      */
     private void init(String sortCriteria) {
-        Executor executor = Executors.newFixedThreadPool(NUMBER_OF_FIXED_THREADS_FIVE);
+        mSortCriteria = sortCriteria;
+        // The favorites are shown from getFavoriteMovies(), so they don't take a place in the cache
+        // of paged lists, which would evict the list of a sort criteria loaded from TMDb. The
+        // NetworkState keeps following the last TMDb list, which MainActivity ignores for favorites.
+        if (sortCriteria.equals(mFavoritesSortCriteria)) {
+            mSortedMovieList = mFavoritesList;
+            mMoviePagedList = mFavoritesList.mMoviePagedList;
+            return;
+        }
+
+        mSortedMovieList = mSortedMovieLists.get(sortCriteria);
+        if (mSortedMovieList == null) {
+            mSortedMovieList = createSortedMovieList(sortCriteria);
+            mSortedMovieLists.put(sortCriteria, mSortedMovieList);
+        }
+        mMoviePagedList = mSortedMovieList.mMoviePagedList;
+        mMovieDataFactory.setValue(mSortedMovieList.mMovieDataFactory);
+    }
 
+    /**
+     * Create the paged list of the movies sorted by the sort criteria
+     */
+    private SortedMovieList createSortedMovieList(String sortCriteria) {
         // Create a MovieDataSourceFactory providing DataSource generations
-        MovieDataSourceFactory movieDataFactory = new MovieDataSourceFactory(sortCriteria);
+        MovieDataSourceFactory movieDataFactory = new MovieDataSourceFactory(mRepository, sortCriteria);
 
         // Configures how a PagedList loads content from the MovieDataSource
         PagedList.Config config = (new PagedList.Config.Builder())
@@ -73,9 +168,11 @@ public class MainActivityViewModel extends ViewModel {
                 .build();
 
         // The LivePagedListBuilder class is used to get a LiveData object of type PagedList
-        mMoviePagedList = new LivePagedListBuilder<>(movieDataFactory, config)
-                .setFetchExecutor(executor)
+        LiveData<PagedList<Movie>> moviePagedList = new LivePagedListBuilder<>(movieDataFactory, config)
+                // Share the application-wide paging pool instead of creating a pool per list
+                .setFetchExecutor(AppExecutors.getInstance().pagingIO())
                 .build();
+        return new SortedMovieList(movieDataFactory, moviePagedList);
     }
 
     /**
@@ -86,7 +183,8 @@ public class MainActivityViewModel extends ViewModel {
     }
 
     /**
-     * Set the LiveData of PagedList of movie to clear the old list and reload
+     * Set the LiveData of PagedList of movie to the list of the sort criteria. The list is only
+     * created and loaded when it isn't cached.
      *
      * @param sortCriteria The sort order of the movies by popular, top rated, now playing,
      *                     upcoming, and favorites
@@ -96,16 +194,156 @@ public class MainActivityViewModel extends ViewModel {
     }
 
     /**
-     * Returns LiveData of the List of MovieEntries
+     * Save the scroll position of the current sort criteria
+     *
+     * @param layoutState The state of the LayoutManager of the RecyclerView
+     */
+    public void saveLayoutState(Parcelable layoutState) {
+        mSortedMovieList.mLayoutState = layoutState;
+    }
+
+    /**
+     * Returns the saved scroll position of the current sort criteria, or null if there is none
+     */
+    public Parcelable getLayoutState() {
+        return mSortedMovieList.mLayoutState;
+    }
+
+    /**
+     * Returns LiveData of the NetworkState of the page loads
+     */
+    public LiveData<NetworkState> getNetworkState() {
+        return mNetworkState;
+    }
+
+    /**
+     * Re-issue the page load that failed
+     */
+    public void retry() {
+        MovieDataSourceFactory factory = mMovieDataFactory.getValue();
+        if (factory != null) {
+            factory.retry();
+        }
+    }
+
+    /**
+     * Returns LiveData of the PagedList of the movies matching the search query
+     */
+    public LiveData<PagedList<Movie>> getSearchResults() {
+        return mSearchResults;
+    }
+
+    /**
+     * Search the favorite movies and the cached movies for the query
+     *
+     * @param query The text typed in the SearchView
+     */
+    public void setSearchQuery(String query) {
+        if (!query.equals(mSearchQuery.getValue())) {
+            mSearchQuery.setValue(query);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        // Stop the pending loads of every cached list
+        mSortedMovieLists.evictAll();
+    }
+
+    /**
+     * Returns LiveData of the PagedList of FavoriteThumbs
      */
-    public LiveData<List<MovieEntry>> getFavoriteMovies() {
+    public LiveData<PagedList<FavoriteThumb>> getFavoriteMovies() {
         return mFavoriteMovies;
     }
 
     /**
-     *  Set a new value for the list of MovieEntries
+     *  Set up the paged list of FavoriteThumbs. Room invalidates the list whenever the movie table
+     *  changes, so it only needs to be created once.
      */
     public void setFavoriteMovies() {
-        mFavoriteMovies = mRepository.getFavoriteMovies();
+        if (mFavoriteMovies != null) {
+            return;
+        }
+
+        // Placeholders let the PagedList drop the pages far from the screen beyond the max size
+        final PagedList.Config config = (new PagedList.Config.Builder())
+                .setEnablePlaceholders(true)
+                .setPageSize(FAVORITES_PAGE_SIZE)
+                .setMaxSize(FAVORITES_MAX_SIZE)
+                .build();
+        mFavoriteMovies = Transformations.switchMap(mFavoriteGenreId,
+                new Function<Integer, LiveData<PagedList<FavoriteThumb>>>() {
+                    @Override
+                    public LiveData<PagedList<FavoriteThumb>> apply(Integer genreId) {
+                        DataSource.Factory<Integer, FavoriteThumb> factory =
+                                genreId == NO_GENRE_FILTER
+                                        ? mRepository.getFavoriteMovies()
+                                        : mRepository.getFavoriteMoviesByGenre(genreId);
+                        return new LivePagedListBuilder<>(factory, config).build();
+                    }
+                });
+        mFavoriteGenreId.setValue(NO_GENRE_FILTER);
+    }
+
+    /**
+     * Returns LiveData of the genres of the favorite movies, shown as filter chips
+     */
+    public LiveData<List<GenreEntry>> getFavoriteGenres() {
+        return mFavoriteGenres;
+    }
+
+    /**
+     * Returns the TMDb genre ID the favorites are filtered by, or NO_GENRE_FILTER
+     */
+    public int getFavoriteGenreId() {
+        Integer genreId = mFavoriteGenreId.getValue();
+        return genreId == null ? NO_GENRE_FILTER : genreId;
+    }
+
+    /**
+     * Show only the favorites of the genre
+     *
+     * @param genreId The TMDb genre ID, or NO_GENRE_FILTER to show every favorite
+     */
+    public void setFavoriteGenreId(int genreId) {
+        if (genreId != getFavoriteGenreId()) {
+            mFavoriteGenreId.setValue(genreId);
+        }
+    }
+
+    /**
+     * Delete the selected favorite movies in one transaction
+     *
+     * @param movieIds The movie IDs of the favorites to delete
+     */
+    public void deleteFavoriteMovies(List<Integer> movieIds) {
+        mRepository.deleteFavoriteMovies(movieIds);
+    }
+
+    /**
+     * Load the full MovieEntry of a favorite movie when it is opened
+     *
+     * @param movieId The movie ID
+     * @param callback Receives the MovieEntry on the main thread
+     */
+    public void loadFavoriteMovie(int movieId, MovieRepository.FavoriteMovieCallback callback) {
+        mRepository.loadFavoriteMovie(movieId, callback);
+    }
+
+    /**
+     * The paged list of a sort criteria, with its factory and scroll position
+     */
+    private static class SortedMovieList {
+        private final MovieDataSourceFactory mMovieDataFactory;
+        private final LiveData<PagedList<Movie>> mMoviePagedList;
+        private Parcelable mLayoutState;
+
+        SortedMovieList(MovieDataSourceFactory movieDataFactory,
+                        LiveData<PagedList<Movie>> moviePagedList) {
+            mMovieDataFactory = movieDataFactory;
+            mMoviePagedList = moviePagedList;
+        }
     }
 }
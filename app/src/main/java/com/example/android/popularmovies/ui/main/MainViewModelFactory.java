@@ -23,21 +23,24 @@ import com.example.android.popularmovies.data.MovieRepository;
 
 /**
  * Factory method that allows us to create a ViewModel with a constructor that takes a
- * {@link MovieRepository} and String sortCriteria
+ * {@link MovieRepository}, String sortCriteria and the String value of the favorites sort criteria
  */
 public class MainViewModelFactory extends ViewModelProvider.NewInstanceFactory {
 
     private final MovieRepository mRepository;
     private final String mSortCriteria;
+    private final String mFavoritesSortCriteria;
 
-    public MainViewModelFactory (MovieRepository repository, String sortCriteria) {
+    public MainViewModelFactory (MovieRepository repository, String sortCriteria,
+                                 String favoritesSortCriteria) {
         this.mRepository = repository;
         this.mSortCriteria = sortCriteria;
+        this.mFavoritesSortCriteria = favoritesSortCriteria;
     }
 
     @Override
     public <T extends ViewModel> T create(Class<T> modelClass) {
         //noinspection unchecked
-        return (T) new MainActivityViewModel(mRepository, mSortCriteria);
+        return (T) new MainActivityViewModel(mRepository, mSortCriteria, mFavoritesSortCriteria);
     }
 }
@@ -16,6 +16,7 @@
 
 package com.example.android.popularmovies.ui.main;
 
+import android.content.Context;
 import androidx.paging.PagedListAdapter;
 import androidx.databinding.DataBindingUtil;
 import androidx.annotation.NonNull;
@@ -28,10 +29,11 @@ import android.view.ViewGroup;
 import com.example.android.popularmovies.R;
 import com.example.android.popularmovies.databinding.MovieListItemBinding;
 import com.example.android.popularmovies.model.Movie;
-import com.squareup.picasso.Picasso;
+import com.example.android.popularmovies.utilities.ImageLoader;
+import com.example.android.popularmovies.utilities.ImageUrlResolver;
 
-import static com.example.android.popularmovies.utilities.Constant.IMAGE_BASE_URL;
-import static com.example.android.popularmovies.utilities.Constant.IMAGE_FILE_SIZE;
+import static com.example.android.popularmovies.utilities.Constant.DECODE_THUMBNAILS_RGB_565;
+import static com.example.android.popularmovies.utilities.Constant.GRID_IMAGE_TAG;
 
 /**
  * {@link MoviePagedListAdapter} is responsible for presenting movie data from PagedList in a RecyclerView.
@@ -111,6 +113,26 @@ public class MoviePagedListAdapter extends PagedListAdapter<Movie, MoviePagedLis
         holder.bind(getItem(position));
     }
 
+    /**
+     * Cancel the poster request of a recycled view, which would otherwise still download and decode
+     * a poster that is no longer shown
+     */
+    @Override
+    public void onViewRecycled(@NonNull MoviePagedViewHolder holder) {
+        super.onViewRecycled(holder);
+        ImageLoader.getInstance(holder.itemView.getContext())
+                .cancelRequest(holder.mMovieItemBinding.ivThumbnail);
+    }
+
+    /**
+     * Returns the complete URL of the poster of the movie, at the size that fits a cell of the
+     * grid. The PosterPreloader uses the same URL, so that a preloaded poster is found in the caches.
+     */
+    static String getThumbnailUrl(Context context, Movie movie) {
+        ImageUrlResolver resolver = ImageUrlResolver.getInstance(context);
+        return resolver.resolve(movie.getPosterPath(), resolver.getGridCellWidth());
+    }
+
     /**
      * Cache of the children views for a list item.
      */
@@ -137,12 +159,13 @@ public class MoviePagedListAdapter extends PagedListAdapter<Movie, MoviePagedLis
          * @param movie The movie object
          */
         void bind(Movie movie) {
-            // Get the complete thumbnail path
-            String thumbnail = IMAGE_BASE_URL + IMAGE_FILE_SIZE + movie.getPosterPath();
+            // Get the complete thumbnail path, at the size that fits a cell of the grid
+            String thumbnail = getThumbnailUrl(itemView.getContext(), movie);
 
-            // Load thumbnail with Picasso library
-            Picasso.with(itemView.getContext())
-                    .load(thumbnail)
+            // Load thumbnail with the shared ImageLoader
+            ImageLoader.getInstance(itemView.getContext())
+                    .loadFitted(thumbnail, DECODE_THUMBNAILS_RGB_565)
+                    .tag(GRID_IMAGE_TAG)
                     .error(R.drawable.image)
                     .into(mMovieItemBinding.ivThumbnail);
 
@@ -0,0 +1,259 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.ui.main;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.paging.PagedList;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.android.popularmovies.R;
+import com.example.android.popularmovies.model.Movie;
+import com.example.android.popularmovies.utilities.ImageLoader;
+import com.squareup.picasso.Callback;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.example.android.popularmovies.utilities.Constant.DECODE_THUMBNAILS_RGB_565;
+import static com.example.android.popularmovies.utilities.Constant.POSTER_PRELOAD_MAX_TRACKED_URLS;
+
+/**
+ * {@link PosterPreloader} warms the image caches with the posters of the next rows of the grid
+ * while it is scrolled, so that the cells coming into view are bound to a poster already in memory.
+ * Only the movies already loaded in the PagedList of the {@link MoviePagedListAdapter} are
+ * preloaded, at low priority, and the preloads are cancelled when the scroll changes direction.
+ * Nothing is preloaded during a fling, while the requests of the grid are paused.
+ * <p>
+ * The hit rate is the share of the posters coming into view while scrolling that were preloaded.
+ */
+public class PosterPreloader extends RecyclerView.OnScrollListener
+        implements RecyclerView.OnChildAttachStateChangeListener {
+
+    private static final int DIRECTION_NONE = 0;
+    private static final int DIRECTION_DOWN = 1;
+    private static final int DIRECTION_UP = -1;
+
+    private final RecyclerView mRecyclerView;
+    private final Context mContext;
+    private final int mLookaheadRows;
+    /** The tag of the preload requests, so that they are cancelled together */
+    private final Object mRequestTag = new Object();
+
+    /** The PagedList the positions below refer to */
+    private PagedList<Movie> mMovies;
+    private int mDirection = DIRECTION_NONE;
+    /** The furthest adapter position preloaded in the current direction */
+    private int mPreloadedPosition = RecyclerView.NO_POSITION;
+
+    /** The URLs of the running preloads, and of the recent preloads that completed */
+    private final Set<String> mPendingUrls = new HashSet<>();
+    private final Set<String> mPreloadedUrls = Collections.newSetFromMap(
+            new LinkedHashMap<String, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > POSTER_PRELOAD_MAX_TRACKED_URLS;
+                }
+            });
+    private int mHitCount;
+    private int mMissCount;
+
+    /**
+     * @param recyclerView The RecyclerView of the grid, laid out by a GridLayoutManager
+     * @param lookaheadRows The number of rows preloaded ahead of the visible rows
+     */
+    public PosterPreloader(RecyclerView recyclerView, int lookaheadRows) {
+        mRecyclerView = recyclerView;
+        mContext = recyclerView.getContext().getApplicationContext();
+        mLookaheadRows = lookaheadRows;
+    }
+
+    /**
+     * Start preloading when the RecyclerView is scrolled
+     */
+    public void attach() {
+        mRecyclerView.addOnScrollListener(this);
+        mRecyclerView.addOnChildAttachStateChangeListener(this);
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        MoviePagedListAdapter adapter = getMovieAdapter();
+        if (dy == 0 || adapter == null || adapter.getCurrentList() == null) {
+            return;
+        }
+
+        // Positions in another list, after a new sort criteria or search, aren't preloaded yet
+        if (adapter.getCurrentList() != mMovies) {
+            mMovies = adapter.getCurrentList();
+            mPreloadedPosition = RecyclerView.NO_POSITION;
+        }
+
+        int direction = dy > 0 ? DIRECTION_DOWN : DIRECTION_UP;
+        if (direction != mDirection) {
+            // The posters preloaded for the other direction won't be shown soon
+            cancel();
+            mDirection = direction;
+            mPreloadedPosition = RecyclerView.NO_POSITION;
+        }
+        // The poster requests are paused during a fling, so catch up once it settles
+        if (recyclerView.getScrollState() != RecyclerView.SCROLL_STATE_SETTLING) {
+            preload();
+        }
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE && mDirection != DIRECTION_NONE
+                && mMovies != null && getMovieAdapter() != null
+                && getMovieAdapter().getCurrentList() == mMovies) {
+            preload();
+        }
+    }
+
+    /**
+     * Preload the posters of the loaded movies in the lookahead rows that aren't preloaded yet
+     */
+    private void preload() {
+        GridLayoutManager layoutManager = (GridLayoutManager) mRecyclerView.getLayoutManager();
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        View child = layoutManager.getChildAt(0);
+        if (firstVisible == RecyclerView.NO_POSITION || child == null) {
+            return;
+        }
+
+        int lookahead = mLookaheadRows * layoutManager.getSpanCount();
+        int start;
+        int end;
+        if (mDirection == DIRECTION_DOWN) {
+            start = Math.max(lastVisible, mPreloadedPosition) + 1;
+            end = Math.min(lastVisible + lookahead, mMovies.size() - 1);
+        } else {
+            start = (mPreloadedPosition == RecyclerView.NO_POSITION
+                    ? firstVisible : Math.min(firstVisible, mPreloadedPosition)) - 1;
+            end = Math.max(firstVisible - lookahead, 0);
+        }
+        if ((end - start) * mDirection < 0) {
+            return;
+        }
+
+        // Decode at the size of the posters already laid out, so that the bound views find them
+        ImageView thumbnail = child.findViewById(R.id.iv_thumbnail);
+        int width = thumbnail.getWidth();
+        int height = thumbnail.getHeight();
+        if (width == 0 || height == 0) {
+            return;
+        }
+
+        // A snapshot reads the loaded movies without triggering the load of more pages
+        List<Movie> movies = mMovies.snapshot();
+        ImageLoader imageLoader = ImageLoader.getInstance(mContext);
+        for (int position = start; position != end + mDirection; position += mDirection) {
+            mPreloadedPosition = position;
+            Movie movie = movies.get(position);
+            if (movie == null || movie.getPosterPath() == null) {
+                continue;
+            }
+            final String url = MoviePagedListAdapter.getThumbnailUrl(mContext, movie);
+            if (mPreloadedUrls.contains(url) || !mPendingUrls.add(url)) {
+                continue;
+            }
+            imageLoader.prefetch(url, width, height, DECODE_THUMBNAILS_RGB_565, mRequestTag,
+                    new Callback() {
+                        @Override
+                        public void onSuccess() {
+                            mPendingUrls.remove(url);
+                            mPreloadedUrls.add(url);
+                        }
+
+                        @Override
+                        public void onError() {
+                            mPendingUrls.remove(url);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Cancel the running preloads
+     */
+    public void cancel() {
+        ImageLoader.getInstance(mContext).cancelTag(mRequestTag);
+        mPendingUrls.clear();
+    }
+
+    /**
+     * Count a poster coming into view while scrolling as a hit when its preload completed
+     */
+    @Override
+    public void onChildViewAttachedToWindow(@NonNull View view) {
+        MoviePagedListAdapter adapter = getMovieAdapter();
+        int position = mRecyclerView.getChildAdapterPosition(view);
+        // The cells laid out before the first scroll aren't preloaded
+        if (mDirection == DIRECTION_NONE || adapter == null || adapter.getCurrentList() == null
+                || position == RecyclerView.NO_POSITION
+                || position >= adapter.getCurrentList().size()) {
+            return;
+        }
+        Movie movie = adapter.getCurrentList().get(position);
+        if (movie == null || movie.getPosterPath() == null) {
+            return;
+        }
+        if (mPreloadedUrls.contains(MoviePagedListAdapter.getThumbnailUrl(mContext, movie))) {
+            mHitCount++;
+        } else {
+            mMissCount++;
+        }
+    }
+
+    @Override
+    public void onChildViewDetachedFromWindow(@NonNull View view) {
+    }
+
+    /**
+     * Returns the MoviePagedListAdapter of the RecyclerView, or null while it shows the favorites
+     */
+    private MoviePagedListAdapter getMovieAdapter() {
+        RecyclerView.Adapter adapter = mRecyclerView.getAdapter();
+        return adapter instanceof MoviePagedListAdapter ? (MoviePagedListAdapter) adapter : null;
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Returns the share of the posters shown while scrolling that were preloaded, from 0 to 1
+     */
+    public float getHitRate() {
+        int count = mHitCount + mMissCount;
+        return count == 0 ? 0 : (float) mHitCount / count;
+    }
+}
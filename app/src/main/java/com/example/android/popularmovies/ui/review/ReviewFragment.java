@@ -38,6 +38,8 @@ import com.example.android.popularmovies.databinding.FragmentReviewBinding;
 import com.example.android.popularmovies.model.Movie;
 import com.example.android.popularmovies.model.Review;
 import com.example.android.popularmovies.model.ReviewResponse;
+import com.example.android.popularmovies.ui.detail.DetailViewModel;
+import com.example.android.popularmovies.ui.detail.DetailViewModelFactory;
 import com.example.android.popularmovies.utilities.InjectorUtils;
 
 import java.util.ArrayList;
@@ -62,8 +64,8 @@ public class ReviewFragment extends Fragment implements ReviewAdapter.ReviewAdap
     /** Member variable for the Movie object */
     private Movie mMovie;
 
-    /** ViewModel for ReviewFragment */
-    private ReviewViewModel mReviewViewModel;
+    /** ViewModel shared by the tabs of the DetailActivity */
+    private DetailViewModel mDetailViewModel;
 
     /**
      * Mandatory empty constructor for the fragment manager to instantiate the fragment
@@ -95,10 +97,10 @@ public class ReviewFragment extends Fragment implements ReviewAdapter.ReviewAdap
      * Every time the user data is updated, the onChanged callback will be invoked and update the UI
      */
     private void setupViewModel(Context context) {
-        ReviewViewModelFactory factory = InjectorUtils.provideReviewViewModelFactory(context, mMovie.getId());
-        mReviewViewModel = new ViewModelProvider(this, factory).get(ReviewViewModel.class);
+        DetailViewModelFactory factory = InjectorUtils.provideDetailViewModelFactory(context, mMovie.getId());
+        mDetailViewModel = new ViewModelProvider(requireActivity(), factory).get(DetailViewModel.class);
 
-        mReviewViewModel.getReviewResponse().observe(getViewLifecycleOwner(), new Observer<ReviewResponse>() {
+        mDetailViewModel.getReviewResponse().observe(getViewLifecycleOwner(), new Observer<ReviewResponse>() {
             @Override
             public void onChanged(@Nullable ReviewResponse reviewResponse) {
                 if (reviewResponse != null) {
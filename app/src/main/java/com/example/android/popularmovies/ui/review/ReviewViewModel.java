@@ -1,40 +0,0 @@
-/*
- *  Copyright 2018 Soojeong Shin
- *
- *  Licensed under the Apache License, Version 2.0 (the "License");
- *  you may not use this file except in compliance with the License.
- *  You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- *  Unless required by applicable law or agreed to in writing, software
- *  distributed under the License is distributed on an "AS IS" BASIS,
- *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- *  See the License for the specific language governing permissions and
- *  limitations under the License.
- */
-
-package com.example.android.popularmovies.ui.review;
-
-import androidx.lifecycle.LiveData;
-import androidx.lifecycle.ViewModel;
-
-import com.example.android.popularmovies.data.MovieRepository;
-import com.example.android.popularmovies.model.ReviewResponse;
-
-/**
- * {@link ViewModel} for ReviewFragment
- */
-public class ReviewViewModel extends ViewModel {
-    private final MovieRepository mRepository;
-    private final LiveData<ReviewResponse> mReviewResponse;
-
-    public ReviewViewModel (MovieRepository repository, int movieId) {
-        mRepository = repository;
-        mReviewResponse = mRepository.getReviewResponse(movieId);
-    }
-
-    public LiveData<ReviewResponse> getReviewResponse() {
-        return mReviewResponse;
-    }
-}
@@ -26,7 +26,7 @@ import android.view.ViewGroup;
 import com.example.android.popularmovies.R;
 import com.example.android.popularmovies.databinding.TrailerListItemBinding;
 import com.example.android.popularmovies.model.Video;
-import com.squareup.picasso.Picasso;
+import com.example.android.popularmovies.utilities.ImageLoader;
 
 import java.util.List;
 
@@ -148,8 +148,8 @@ public class TrailerAdapter extends RecyclerView.Adapter<TrailerAdapter.TrailerV
             String trailerThumbnailUrl = YOUTUBE_THUMBNAIL_BASE_URL + videoKey +
                     YOUTUBE_THUMBNAIL_URL_JPG;
 
-            // Load trailer thumbnail with Picasso library
-            Picasso.with(itemView.getContext())
+            // Load trailer thumbnail with the shared ImageLoader
+            ImageLoader.getInstance(itemView.getContext())
                     .load(trailerThumbnailUrl)
                     .into(mTrailerItemBinding.ivTrailerThumbnail);
 
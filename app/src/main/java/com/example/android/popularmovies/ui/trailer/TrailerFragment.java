@@ -38,6 +38,8 @@ import com.example.android.popularmovies.databinding.FragmentTrailerBinding;
 import com.example.android.popularmovies.model.Movie;
 import com.example.android.popularmovies.model.Video;
 import com.example.android.popularmovies.model.VideoResponse;
+import com.example.android.popularmovies.ui.detail.DetailViewModel;
+import com.example.android.popularmovies.ui.detail.DetailViewModelFactory;
 import com.example.android.popularmovies.utilities.InjectorUtils;
 
 import java.util.ArrayList;
@@ -70,8 +72,8 @@ public class TrailerFragment extends Fragment implements TrailerAdapter.TrailerA
     /** This field is used for data binding */
     private FragmentTrailerBinding mTrailerBinding;
 
-    /** ViewModel for TrailerFragment */
-    private TrailerViewModel mTrailerViewModel;
+    /** ViewModel shared by the tabs of the DetailActivity */
+    private DetailViewModel mDetailViewModel;
 
     /**
      * Mandatory empty constructor for the fragment manager to instantiate the fragment
@@ -94,11 +96,11 @@ public class TrailerFragment extends Fragment implements TrailerAdapter.TrailerA
      * Every time the user data is updated, the onChanged callback will be invoked and update the UI
      */
     private void setupViewModel(Context context, int movieId) {
-        TrailerViewModelFactory factory = InjectorUtils.provideTrailerViewModelFactory(context, movieId);
-        mTrailerViewModel = new ViewModelProvider(this, factory).get(TrailerViewModel.class);
+        DetailViewModelFactory factory = InjectorUtils.provideDetailViewModelFactory(context, movieId);
+        mDetailViewModel = new ViewModelProvider(requireActivity(), factory).get(DetailViewModel.class);
 
         // Retrieve live data object using the getVideoResponse() method from the ViewModel
-        mTrailerViewModel.getVideoResponse().observe(getViewLifecycleOwner(), new Observer<VideoResponse>() {
+        mDetailViewModel.getVideoResponse().observe(getViewLifecycleOwner(), new Observer<VideoResponse>() {
             @Override
             public void onChanged(@Nullable VideoResponse videoResponse) {
                 if (videoResponse != null) {
@@ -1,43 +0,0 @@
-/*
- *  Copyright 2018 Soojeong Shin
- *
- *  Licensed under the Apache License, Version 2.0 (the "License");
- *  you may not use this file except in compliance with the License.
- *  You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- *  Unless required by applicable law or agreed to in writing, software
- *  distributed under the License is distributed on an "AS IS" BASIS,
- *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- *  See the License for the specific language governing permissions and
- *  limitations under the License.
- */
-
-package com.example.android.popularmovies.ui.trailer;
-
-import androidx.lifecycle.ViewModel;
-import androidx.lifecycle.ViewModelProvider;
-
-import com.example.android.popularmovies.data.MovieRepository;
-
-/**
- * Factory method that allows us to create a ViewModel with a constructor that takes a
- * {@link MovieRepository} and the movie ID
- */
-public class TrailerViewModelFactory extends ViewModelProvider.NewInstanceFactory{
-
-    private final MovieRepository mRepository;
-    private final int mMovieId;
-
-    public TrailerViewModelFactory (MovieRepository repository, int movieId) {
-        this.mRepository = repository;
-        this.mMovieId = movieId;
-    }
-
-    @Override
-    public <T extends ViewModel> T create(Class<T> modelClass) {
-        //noinspection unchecked
-        return (T) new TrailerViewModel(mRepository, mMovieId);
-    }
-}
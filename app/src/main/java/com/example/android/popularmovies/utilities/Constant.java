@@ -27,6 +27,27 @@ public final class Constant {
     /** The base movie URL from TMDb */
     static final String MOVIE_BASE_URL = "https://api.themoviedb.org/3/";
 
+    /** Constants for the HTTP cache used in Controller */
+    public static final String HTTP_CACHE_DIR = "http_cache";
+    /** Size of the HTTP disk cache (10 MiB) */
+    static final long HTTP_CACHE_SIZE_BYTES = 10 * 1024 * 1024;
+    /** Time in seconds a TMDb JSON response is fresh */
+    static final int HTTP_CACHE_MAX_AGE_SECONDS = 10 * 60;
+    /** Time in days a stale response can be served when offline */
+    static final int HTTP_CACHE_MAX_STALE_DAYS = 7;
+
+    // Constants for the RateLimitInterceptor used in Controller
+    /** The largest burst of requests sent to TMDb */
+    static final int RATE_LIMIT_BUCKET_CAPACITY = 20;
+    /** The sustained number of requests per second sent to TMDb */
+    static final double RATE_LIMIT_REQUESTS_PER_SECOND = 4;
+    /** The number of times a request answered with 429 is sent again */
+    static final int RATE_LIMIT_MAX_RETRIES = 2;
+    /** Delay in seconds used when a 429 response has no usable Retry-After header */
+    static final long RATE_LIMIT_DEFAULT_RETRY_AFTER_SECONDS = 1;
+    /** Response code of TMDb when the request budget is exceeded */
+    static final int RESPONSE_CODE_TOO_MANY_REQUESTS = 429;
+
     // Constants for MainActivity
 
     /** Constants that are used to request the network call */
@@ -34,6 +55,8 @@ public final class Constant {
     public static final String LANGUAGE = "en-US";
     public static final int PAGE = 1;
     public static final String CREDITS = "credits";
+    /** Responses appended to the movie details so that the detail screen needs a single request */
+    public static final String APPEND_TO_RESPONSE_DETAILS = "credits,videos,reviews";
 
     /** API Status code for invalid API key or Authentication failed */
     public static final int RESPONSE_CODE_API_STATUS = 401;
@@ -56,8 +79,26 @@ public final class Constant {
     /** The base image URL to build the complete url that is necessary for fetching the image */
     public static final String IMAGE_BASE_URL = "https://image.tmdb.org/t/p/";
 
-    /** The image file size to build the complete url that is necessary for fetching the image*/
-    public static final String BACKDROP_FILE_SIZE ="w500";
+    // Constants for ImageUrlResolver
+    /** The image sizes TMDb serves, from the smallest, and their widths in pixels */
+    static final String[] IMAGE_SIZES = {"w92", "w154", "w185", "w342", "w500", "w780"};
+    static final int[] IMAGE_SIZE_WIDTHS = {92, 154, 185, 342, 500, 780};
+    /** The size of the image as it was uploaded, used above w780 on a fast network */
+    static final String IMAGE_SIZE_ORIGINAL = "original";
+    /** An image can be this percentage of the width of its view, then it is scaled up when drawn */
+    static final int IMAGE_SIZE_TOLERANCE_PERCENT = 85;
+    /** The screen density above which the images aren't fetched any sharper (xxhdpi) */
+    static final float IMAGE_MAX_DENSITY = 3f;
+    /** The image download throughput below which the sizes are lowered by one and two steps */
+    static final long THROUGHPUT_SLOW_BYTES_PER_SECOND = 100 * 1024;
+    static final long THROUGHPUT_VERY_SLOW_BYTES_PER_SECOND = 30 * 1024;
+    /** The image download throughput from which the original size can be fetched */
+    static final long THROUGHPUT_FAST_BYTES_PER_SECOND = 1024 * 1024;
+    /** How far past a threshold the throughput estimate goes before the sizes change */
+    static final int THROUGHPUT_HYSTERESIS_PERCENT = 50;
+    /** Constants for the ThroughputEstimator */
+    static final long THROUGHPUT_MIN_SAMPLE_BYTES = 8 * 1024;
+    static final double THROUGHPUT_SAMPLE_WEIGHT = 0.3;
 
     /** The YouTube base URL that is necessary for displaying trailers */
     public static final String YOUTUBE_BASE_URL = "https://www.youtube.com/watch?v=";
@@ -76,10 +117,14 @@ public final class Constant {
     /** Type of the share intent data */
     public static final String SHARE_INTENT_TYPE_TEXT = "text/plain";
 
-    // Constant for CastAdapter and MoviePagedListAdapter
-
-    /** The image file size to build the complete url that is necessary for fetching the image */
-    public static final String IMAGE_FILE_SIZE = "w185";
+    // Constant for FavoriteAdapter and MoviePagedListAdapter
+    /**
+     * True to decode the posters of the grids in RGB_565, which takes half the memory of ARGB_8888.
+     * The posters are JPEGs, so they have no alpha channel to lose.
+     */
+    public static final boolean DECODE_THUMBNAILS_RGB_565 = true;
+    /** The tag of the poster requests of the grids, paused while the main grid is flung */
+    public static final String GRID_IMAGE_TAG = "grid_image";
 
     // Constants for DetailPagerAdapter
 
@@ -134,8 +179,19 @@ public final class Constant {
     public static final int NEXT_PAGE_KEY_TWO = 2;
     public static final int PAGE_ONE = 1;
 
-    /** The number of fixed thread pools used in the MainActivityViewModel */
+    /** The number of threads in the paging pool used in AppExecutors */
     public static final int NUMBER_OF_FIXED_THREADS_FIVE = 5;
+    /** Time in seconds an idle paging thread is kept alive */
+    public static final long PAGING_THREAD_KEEP_ALIVE_SECONDS = 30;
+    /** Name prefix of the threads in the paging pool */
+    public static final String PAGING_THREAD_NAME_PREFIX = "paging-io-";
+    /**
+     * The number of threads in the pool running Room's queries, matching the four connections of
+     * the WAL connection pool on Android
+     */
+    public static final int NUMBER_OF_DATABASE_QUERY_THREADS = 4;
+    /** Name prefix of the threads in the database query pool */
+    public static final String DATABASE_QUERY_THREAD_NAME_PREFIX = "database-query-";
 
     // Constants used in MainActivityViewModel
     /** Size hint for initial load of PagedList */
@@ -144,11 +200,68 @@ public final class Constant {
     public static final int PAGE_SIZE = 20;
     /** Prefetch distance which defines how far ahead to load */
     public static final int PREFETCH_DISTANCE = 50;
+    /** The number of TMDb sort criteria whose paged lists are kept in memory, besides the favorites */
+    public static final int MAX_CACHED_SORT_CRITERIA = 3;
+    /** Size of each page of favorite movies loaded from the database */
+    public static final int FAVORITES_PAGE_SIZE = 30;
+    /** The maximum number of favorite movies kept in memory, the rest are dropped as placeholders */
+    public static final int FAVORITES_MAX_SIZE = 200;
+    /** The number of rows of posters preloaded ahead of the scroll in the main grid */
+    public static final int POSTER_PRELOAD_ROWS = 3;
+    /** The number of preloaded poster URLs remembered to measure the preload hit rate */
+    public static final int POSTER_PRELOAD_MAX_TRACKED_URLS = 200;
+    /** The genre ID used when the favorites are not filtered by genre */
+    public static final int NO_GENRE_FILTER = -1;
+
+    /** Time in milliseconds a cached page of movies is served before it is fetched again (6 hours) */
+    public static final long MOVIE_PAGE_CACHE_TTL_MILLIS = 6 * 60 * 60 * 1000L;
+    /** Time in milliseconds cached movie details are served before they are refreshed (24 hours) */
+    public static final long MOVIE_DETAILS_CACHE_TTL_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /** The directory of the image disk cache, inside the cache directory of the app */
+    public static final String IMAGE_CACHE_DIR = "picasso-cache";
+    /** Size of the image disk cache used in ImageLoader (20 MiB) */
+    static final long IMAGE_CACHE_SIZE_BYTES = 20 * 1024 * 1024;
+    /** The share of the memory class of the device used by the image memory cache, in percent */
+    static final int IMAGE_MEMORY_CACHE_PERCENT = 15;
+    /** The on-disk footprint the CacheGovernor keeps the database, HTTP and image caches under (50 MiB) */
+    public static final long CACHE_BUDGET_BYTES = 50 * 1024 * 1024L;
+    /** Time in milliseconds after which the CacheGovernor deletes a cached page of movies (7 days) */
+    public static final long CACHED_PAGE_MAX_AGE_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    /** The minimum time in milliseconds between two VACUUMs of the database (7 days) */
+    public static final long VACUUM_INTERVAL_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    /** Time in hours between two runs of the CacheGovernorWorker */
+    public static final long CACHE_GOVERNOR_INTERVAL_HOURS = 24;
+    /** Unique name of the periodic work running the CacheGovernor */
+    public static final String CACHE_GOVERNOR_WORK_NAME = "cache_governor";
+    /** Name of the SharedPreferences file of the CacheGovernor */
+    public static final String CACHE_GOVERNOR_PREFERENCES = "cache_governor";
+    /** Key for the time in milliseconds of the last VACUUM */
+    public static final String PREF_LAST_VACUUM_AT = "last_vacuum_at";
+
+    /** The version of the favorites backup file written by FavoritesBackup */
+    public static final int FAVORITES_BACKUP_VERSION = 1;
+    /** The MIME type and default name of the favorites backup file */
+    public static final String FAVORITES_BACKUP_MIME_TYPE = "application/json";
+    public static final String FAVORITES_BACKUP_FILE_NAME = "favorites.json";
+    /** Request codes for picking the favorites backup file in SettingsFragment */
+    public static final int REQUEST_CODE_EXPORT_FAVORITES = 1;
+    public static final int REQUEST_CODE_IMPORT_FAVORITES = 2;
+
+    /** Constants for retrying a failed page load in MovieDataSource */
+    public static final int MAX_RETRY_ATTEMPTS = 3;
+    public static final long RETRY_BASE_DELAY_MILLIS = 1000L;
+    public static final long RETRY_MAX_DELAY_MILLIS = 8000L;
 
     /** Constants for menu option in FavoriteAdapter */
     public static final String DELETE = "Delete";
     public static final int DELETE_GROUP_ID = 0;
     public static final int DELETE_ORDER = 0;
+    public static final String SELECT = "Select";
+    public static final int SELECT_ORDER = 1;
+
+    /** The maximum number of movie IDs bound in one query, below the SQLite limit of 999 variables */
+    public static final int MAX_MOVIE_IDS_PER_QUERY = 500;
 
     /** Constant for formatting runtime */
     public static final int ZERO = 0;
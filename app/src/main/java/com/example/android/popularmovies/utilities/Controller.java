@@ -16,30 +16,193 @@
 
 package com.example.android.popularmovies.utilities;
 
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.android.popularmovies.model.ModelTypeAdapterFactory;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
+import static com.example.android.popularmovies.utilities.Constant.HTTP_CACHE_DIR;
+import static com.example.android.popularmovies.utilities.Constant.HTTP_CACHE_MAX_AGE_SECONDS;
+import static com.example.android.popularmovies.utilities.Constant.HTTP_CACHE_MAX_STALE_DAYS;
+import static com.example.android.popularmovies.utilities.Constant.HTTP_CACHE_SIZE_BYTES;
 import static com.example.android.popularmovies.utilities.Constant.MOVIE_BASE_URL;
+import static com.example.android.popularmovies.utilities.Constant.RATE_LIMIT_BUCKET_CAPACITY;
+import static com.example.android.popularmovies.utilities.Constant.RATE_LIMIT_REQUESTS_PER_SECOND;
 
 /**
- *  Create a singleton of Retrofit.
+ *  Create a singleton of Retrofit, backed by a shared OkHttpClient with a disk cache.
  */
 public class Controller {
 
+    /** Tag for logging */
+    private static final String TAG = Controller.class.getSimpleName();
+
+    /** Sub type of the JSON responses from TMDb */
+    private static final String MEDIA_SUB_TYPE_JSON = "json";
+
+    /** Header names used to rewrite the cache policy of the responses */
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String HEADER_PRAGMA = "Pragma";
+
     /** Static variable for Retrofit */
     private static Retrofit sRetrofit = null;
 
-    public static Retrofit getClient() {
+    /** Static variable for the OkHttpClient shared by every request to TMDb */
+    private static OkHttpClient sOkHttpClient = null;
+
+    public static synchronized Retrofit getClient(Context context) {
         if (sRetrofit == null) {
             // Create the Retrofit instance using the builder
             sRetrofit = new Retrofit.Builder()
                     // Set the API base URL
                     .baseUrl(MOVIE_BASE_URL)
+                    // Use the shared OkHttpClient so that every TheMovieApi endpoint goes through the cache
+                    .client(getOkHttpClient(context))
                     // Use GsonConverterFactory class to generate an implementation of the TheMovieApi interface
                     // which uses Gson for its deserialization
-                    .addConverterFactory(GsonConverterFactory.create())
+                    .addConverterFactory(GsonConverterFactory.create(createGson()))
                     .build();
         }
         return sRetrofit;
     }
+
+    /**
+     * Returns the Gson used to parse TMDb responses. The model classes are parsed by the streaming
+     * TypeAdapters in {@link ModelTypeAdapterFactory} instead of reflection.
+     */
+    public static Gson createGson() {
+        return new GsonBuilder()
+                .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+                .create();
+    }
+
+    /**
+     * Returns the OkHttpClient with a sized disk cache. TMDb JSON responses are stored for
+     * HTTP_CACHE_MAX_AGE_SECONDS, and stale responses are served when the device is offline or
+     * the network request fails. Requests that reach the network are throttled by the
+     * {@link RateLimitInterceptor}.
+     */
+    public static synchronized OkHttpClient getOkHttpClient(Context context) {
+        if (sOkHttpClient == null) {
+            Context appContext = context.getApplicationContext();
+            File cacheDir = new File(appContext.getCacheDir(), HTTP_CACHE_DIR);
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                    .cache(new Cache(cacheDir, HTTP_CACHE_SIZE_BYTES))
+                    .addInterceptor(new OfflineCacheInterceptor(appContext));
+            // Installed after the OfflineCacheInterceptor, so that a request is retried after a 429
+            // before the OfflineCacheInterceptor falls back to the cache
+            sOkHttpClient = new RateLimitInterceptor(
+                    RATE_LIMIT_BUCKET_CAPACITY, RATE_LIMIT_REQUESTS_PER_SECOND).install(builder)
+                    .addNetworkInterceptor(new ResponseCacheInterceptor())
+                    .build();
+        }
+        return sOkHttpClient;
+    }
+
+    /**
+     * TMDb doesn't send a usable Cache-Control header, so rewrite the successful JSON responses
+     * to be cacheable for HTTP_CACHE_MAX_AGE_SECONDS.
+     */
+    private static class ResponseCacheInterceptor implements Interceptor {
+        @NonNull
+        @Override
+        public Response intercept(@NonNull Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            MediaType contentType = response.body() == null ? null : response.body().contentType();
+            if (!response.isSuccessful() || contentType == null
+                    || !MEDIA_SUB_TYPE_JSON.equals(contentType.subtype())) {
+                return response;
+            }
+
+            CacheControl cacheControl = new CacheControl.Builder()
+                    .maxAge(HTTP_CACHE_MAX_AGE_SECONDS, TimeUnit.SECONDS)
+                    .build();
+            return response.newBuilder()
+                    .removeHeader(HEADER_PRAGMA)
+                    .header(HEADER_CACHE_CONTROL, cacheControl.toString())
+                    .build();
+        }
+    }
+
+    /**
+     * Serve the cached response, even if it is stale, when the device is offline. When online,
+     * go to the network and fall back to the stale cached response if the request fails.
+     */
+    private static class OfflineCacheInterceptor implements Interceptor {
+        private final Context mContext;
+
+        OfflineCacheInterceptor(Context context) {
+            mContext = context;
+        }
+
+        @NonNull
+        @Override
+        public Response intercept(@NonNull Chain chain) throws IOException {
+            Request request = chain.request();
+            if (!isOnline()) {
+                return chain.proceed(forceStaleCache(request));
+            }
+
+            try {
+                return chain.proceed(request);
+            } catch (IOException e) {
+                Log.e(TAG, "Request failed, trying the cache: " + e.getMessage());
+                Response cachedResponse = chain.proceed(forceStaleCache(request));
+                if (cachedResponse.isSuccessful()) {
+                    return cachedResponse;
+                }
+                // Nothing in the cache (OkHttp answers 504), report the original failure
+                cachedResponse.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Returns a copy of the request that is only answered from the cache, accepting stale responses
+         */
+        private Request forceStaleCache(Request request) {
+            CacheControl cacheControl = new CacheControl.Builder()
+                    .onlyIfCached()
+                    .maxStale(HTTP_CACHE_MAX_STALE_DAYS, TimeUnit.DAYS)
+                    .build();
+            return request.newBuilder()
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        /**
+         * Check if there is the network connectivity
+         *
+         * @return true if connected to the network
+         */
+        private boolean isOnline() {
+            ConnectivityManager connectivityManager = (ConnectivityManager)
+                    mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (connectivityManager == null) {
+                return true;
+            }
+            NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+            return networkInfo != null && networkInfo.isConnected();
+        }
+    }
 }
@@ -0,0 +1,357 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.utilities;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.widget.ImageView;
+
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.Downloader;
+import com.squareup.picasso.LruCache;
+import com.squareup.picasso.NetworkPolicy;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+import com.squareup.picasso.StatsSnapshot;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+import static com.example.android.popularmovies.utilities.Constant.IMAGE_CACHE_DIR;
+import static com.example.android.popularmovies.utilities.Constant.IMAGE_CACHE_SIZE_BYTES;
+import static com.example.android.popularmovies.utilities.Constant.IMAGE_MEMORY_CACHE_PERCENT;
+
+/**
+ * Create a singleton of Picasso shared by every screen, so that the posters, backdrops, profile
+ * pictures and trailer thumbnails share one memory cache and one disk cache. The memory cache is
+ * sized from the memory class of the device, and the images are downloaded by an OkHttpClient with
+ * its own disk cache, separate from the TMDb JSON responses cached by {@link Controller}. The
+ * downloads feed the {@link ThroughputEstimator} used by {@link ImageUrlResolver} to pick the sizes.
+ */
+public class ImageLoader {
+
+    /** Static variable for the ImageLoader */
+    private static ImageLoader sInstance;
+
+    private final Picasso mPicasso;
+    private final LruCache mMemoryCache;
+    private final Cache mDiskCache;
+    private final ThroughputEstimator mThroughputEstimator = new ThroughputEstimator();
+
+    private ImageLoader(Context context) {
+        int memoryClassMiB = ((ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE))
+                .getMemoryClass();
+        mMemoryCache = new LruCache((int) (memoryClassMiB * 1024L * 1024L
+                * IMAGE_MEMORY_CACHE_PERCENT / 100));
+        mDiskCache = new Cache(new File(context.getCacheDir(), IMAGE_CACHE_DIR), IMAGE_CACHE_SIZE_BYTES);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .cache(mDiskCache)
+                .build();
+        mPicasso = new Picasso.Builder(context)
+                .memoryCache(mMemoryCache)
+                .downloader(new OkHttpDownloader(client, mThroughputEstimator))
+                .build();
+    }
+
+    public static synchronized ImageLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ImageLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Start an image request for the URL
+     *
+     * @param url The complete image URL
+     */
+    public RequestCreator load(String url) {
+        return mPicasso.load(url);
+    }
+
+    /**
+     * Start an image request decoded at the size of the target ImageView, such as a
+     * TwoThreeImageView or a ThreeTwoImageView. The request waits until the view is measured, then
+     * the image is scaled down and center-cropped to the measured bounds, so that the bitmap kept
+     * in memory is never larger than the view. An image smaller than the view is kept at its own
+     * size instead of being scaled up, and the view scales it when it is drawn.
+     *
+     * @param url The complete image URL
+     * @param rgb565 True to decode the image in RGB_565, for the small thumbnails of the grids
+     */
+    public RequestCreator loadFitted(String url, boolean rgb565) {
+        RequestCreator request = mPicasso.load(url)
+                .fit()
+                .centerCrop()
+                .onlyScaleDown();
+        if (rgb565) {
+            request.config(Bitmap.Config.RGB_565);
+        }
+        return request;
+    }
+
+    /**
+     * Download and decode an image into the memory cache at low priority, as loadFitted would for
+     * a view of the given size, so that the view finds it in the cache when it is bound
+     *
+     * @param url The complete image URL
+     * @param widthPx The width of the view the image will be shown in
+     * @param heightPx The height of the view the image will be shown in
+     * @param rgb565 True to decode the image in RGB_565, as in loadFitted
+     * @param tag The tag used to cancel the request with cancelTag
+     * @param callback Called on the main thread when the image is in the memory cache
+     */
+    public void prefetch(String url, int widthPx, int heightPx, boolean rgb565, Object tag,
+                         Callback callback) {
+        RequestCreator request = mPicasso.load(url)
+                .resize(widthPx, heightPx)
+                .centerCrop()
+                .onlyScaleDown()
+                .priority(Picasso.Priority.LOW)
+                .tag(tag);
+        if (rgb565) {
+            request.config(Bitmap.Config.RGB_565);
+        }
+        request.fetch(callback);
+    }
+
+    /**
+     * Cancel every request started with the tag
+     */
+    public void cancelTag(Object tag) {
+        mPicasso.cancelTag(tag);
+    }
+
+    /**
+     * Hold the requests started with the tag, e.g. while a list is flung, until resumeTag is called.
+     * The images already in the memory cache are still shown.
+     */
+    public void pauseTag(Object tag) {
+        mPicasso.pauseTag(tag);
+    }
+
+    /**
+     * Start the requests held by pauseTag
+     */
+    public void resumeTag(Object tag) {
+        mPicasso.resumeTag(tag);
+    }
+
+    /**
+     * Cancel the request loading into the ImageView, e.g. when it is bound to a placeholder
+     */
+    public void cancelRequest(ImageView imageView) {
+        mPicasso.cancelRequest(imageView);
+    }
+
+    /**
+     * Returns the estimate of the image download throughput
+     */
+    public ThroughputEstimator getThroughputEstimator() {
+        return mThroughputEstimator;
+    }
+
+    /**
+     * Returns the hit and miss counts of the memory cache and the disk cache
+     */
+    public Stats getStats() {
+        StatsSnapshot snapshot = mPicasso.getSnapshot();
+        return new Stats(snapshot.cacheHits, snapshot.cacheMisses, snapshot.size, snapshot.maxSize,
+                mDiskCache.hitCount(), mDiskCache.networkCount());
+    }
+
+    /**
+     * The hit and miss counts of the image caches since the app started
+     */
+    public static class Stats {
+        private final long mMemoryHits;
+        private final long mMemoryMisses;
+        private final int mMemorySizeBytes;
+        private final int mMemoryMaxSizeBytes;
+        private final int mDiskHits;
+        private final int mNetworkCount;
+
+        Stats(long memoryHits, long memoryMisses, int memorySizeBytes, int memoryMaxSizeBytes,
+              int diskHits, int networkCount) {
+            mMemoryHits = memoryHits;
+            mMemoryMisses = memoryMisses;
+            mMemorySizeBytes = memorySizeBytes;
+            mMemoryMaxSizeBytes = memoryMaxSizeBytes;
+            mDiskHits = diskHits;
+            mNetworkCount = networkCount;
+        }
+
+        public long getMemoryHits() {
+            return mMemoryHits;
+        }
+
+        /** The requests that missed the memory cache, and went to the disk cache or the network */
+        public long getMemoryMisses() {
+            return mMemoryMisses;
+        }
+
+        public int getMemorySizeBytes() {
+            return mMemorySizeBytes;
+        }
+
+        public int getMemoryMaxSizeBytes() {
+            return mMemoryMaxSizeBytes;
+        }
+
+        public int getDiskHits() {
+            return mDiskHits;
+        }
+
+        /** The requests that missed the disk cache and were downloaded */
+        public int getNetworkCount() {
+            return mNetworkCount;
+        }
+
+        @Override
+        public String toString() {
+            return "memory " + mMemoryHits + " hits, " + mMemoryMisses + " misses, "
+                    + mMemorySizeBytes + " of " + mMemoryMaxSizeBytes + " bytes; disk "
+                    + mDiskHits + " hits, " + mNetworkCount + " downloads";
+        }
+    }
+
+    /**
+     * Picasso 2.5.2 only ships a Downloader for OkHttp 2, so download the images with the OkHttp 3
+     * client, mapping Picasso's NetworkPolicy to the Cache-Control of the request. The time and size
+     * of every download from the network are added to the ThroughputEstimator.
+     */
+    private static class OkHttpDownloader implements Downloader {
+        private final OkHttpClient mClient;
+        private final ThroughputEstimator mThroughputEstimator;
+
+        OkHttpDownloader(OkHttpClient client, ThroughputEstimator throughputEstimator) {
+            mClient = client;
+            mThroughputEstimator = throughputEstimator;
+        }
+
+        @Override
+        public Response load(Uri uri, int networkPolicy) throws IOException {
+            Request.Builder builder = new Request.Builder().url(uri.toString());
+            if (networkPolicy != 0) {
+                if (NetworkPolicy.isOfflineOnly(networkPolicy)) {
+                    builder.cacheControl(CacheControl.FORCE_CACHE);
+                } else {
+                    CacheControl.Builder cacheControl = new CacheControl.Builder();
+                    if (!NetworkPolicy.shouldReadFromDiskCache(networkPolicy)) {
+                        cacheControl.noCache();
+                    }
+                    if (!NetworkPolicy.shouldWriteToDiskCache(networkPolicy)) {
+                        cacheControl.noStore();
+                    }
+                    builder.cacheControl(cacheControl.build());
+                }
+            }
+
+            long startNanos = System.nanoTime();
+            okhttp3.Response response = mClient.newCall(builder.build()).execute();
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                response.close();
+                throw new ResponseException(response.code() + " " + response.message(),
+                        networkPolicy, response.code());
+            }
+            boolean fromCache = response.cacheResponse() != null;
+            InputStream stream = fromCache ? body.byteStream()
+                    : new MeasuredInputStream(body.byteStream(), startNanos, mThroughputEstimator);
+            return new Response(stream, fromCache, body.contentLength());
+        }
+
+        @Override
+        public void shutdown() {
+            try {
+                mClient.cache().close();
+            } catch (IOException ignored) {
+                // The cache is closed when the process ends anyway
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes read from a download, and adds the download to the ThroughputEstimator once
+     * the body is read to the end or closed. The decoder may stop before the end of the body, after
+     * the last bytes of the image.
+     */
+    private static class MeasuredInputStream extends FilterInputStream {
+        private final long mStartNanos;
+        private final ThroughputEstimator mThroughputEstimator;
+        private long mBytes;
+        private boolean mMeasured;
+
+        MeasuredInputStream(InputStream in, long startNanos, ThroughputEstimator throughputEstimator) {
+            super(in);
+            mStartNanos = startNanos;
+            mThroughputEstimator = throughputEstimator;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            count(b == -1 ? -1 : 1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            count(read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            mBytes += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            measure();
+            super.close();
+        }
+
+        private void count(int read) {
+            if (read == -1) {
+                measure();
+            } else {
+                mBytes += read;
+            }
+        }
+
+        private void measure() {
+            if (!mMeasured) {
+                mMeasured = true;
+                mThroughputEstimator.addSample(mBytes, System.nanoTime() - mStartNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.utilities;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.DisplayMetrics;
+
+import androidx.preference.PreferenceManager;
+
+import com.example.android.popularmovies.R;
+import com.example.android.popularmovies.data.MoviePreferences;
+
+import static com.example.android.popularmovies.utilities.Constant.GRID_SPAN_COUNT;
+import static com.example.android.popularmovies.utilities.Constant.IMAGE_BASE_URL;
+import static com.example.android.popularmovies.utilities.Constant.IMAGE_MAX_DENSITY;
+import static com.example.android.popularmovies.utilities.Constant.IMAGE_SIZES;
+import static com.example.android.popularmovies.utilities.Constant.IMAGE_SIZE_ORIGINAL;
+import static com.example.android.popularmovies.utilities.Constant.IMAGE_SIZE_TOLERANCE_PERCENT;
+import static com.example.android.popularmovies.utilities.Constant.IMAGE_SIZE_WIDTHS;
+import static com.example.android.popularmovies.utilities.Constant.THROUGHPUT_FAST_BYTES_PER_SECOND;
+import static com.example.android.popularmovies.utilities.Constant.THROUGHPUT_HYSTERESIS_PERCENT;
+import static com.example.android.popularmovies.utilities.Constant.THROUGHPUT_SLOW_BYTES_PER_SECOND;
+import static com.example.android.popularmovies.utilities.Constant.THROUGHPUT_VERY_SLOW_BYTES_PER_SECOND;
+
+/**
+ * {@link ImageUrlResolver} builds the TMDb image URLs, picking the size from TMDb's ladder
+ * (w92, w154, w185, w342, w500, w780, original) that fits the width of the target view:
+ * <ul>
+ * <li>The width is capped at IMAGE_MAX_DENSITY pixels per dp, beyond which the extra detail
+ * isn't visible.</li>
+ * <li>The smallest size at least IMAGE_SIZE_TOLERANCE_PERCENT of that width is picked, so an
+ * image is scaled up by a few percent at most.</li>
+ * <li>On a slow network the size is lowered by one step, on a very slow network by two, using
+ * the throughput measured by ImageLoader from the recent downloads. The original size is only
+ * used on a fast network.</li>
+ * <li>The data saver preference lowers the size by two steps whatever the network.</li>
+ * </ul>
+ * The network only moves to another tier once the throughput estimate is
+ * THROUGHPUT_HYSTERESIS_PERCENT past the bounds of the current tier. Otherwise an estimate
+ * wavering around a threshold would resolve the same image to another URL from one bind to the
+ * next, missing the image caches and the posters preloaded by PosterPreloader.
+ */
+public class ImageUrlResolver implements SharedPreferences.OnSharedPreferenceChangeListener {
+
+    /** The number of steps down the ladder on a slow network and with the data saver */
+    private static final int SLOW_NETWORK_STEPS = 1;
+    private static final int VERY_SLOW_NETWORK_STEPS = 2;
+    private static final int DATA_SAVER_STEPS = 2;
+
+    /** The network tiers, from the slowest, before the first download is measured */
+    static final int TIER_UNKNOWN = -1;
+    static final int TIER_VERY_SLOW = 0;
+    static final int TIER_SLOW = 1;
+    static final int TIER_MEDIUM = 2;
+    static final int TIER_FAST = 3;
+    /** The lowest throughput of each tier in bytes per second, indexed by tier */
+    private static final long[] TIER_MIN_BYTES_PER_SECOND = {0,
+            THROUGHPUT_VERY_SLOW_BYTES_PER_SECOND, THROUGHPUT_SLOW_BYTES_PER_SECOND,
+            THROUGHPUT_FAST_BYTES_PER_SECOND};
+
+    /** Static variable for the ImageUrlResolver */
+    private static ImageUrlResolver sInstance;
+
+    private final Context mContext;
+    private final DisplayMetrics mDisplayMetrics;
+    private final ThroughputEstimator mThroughputEstimator;
+    private final String mDataSaverKey;
+
+    /** The tier of the network the sizes are currently picked for */
+    private int mNetworkTier = TIER_UNKNOWN;
+    /** The data saver preference, kept up to date by the preference listener */
+    private volatile boolean mDataSaver;
+
+    private ImageUrlResolver(Context context, ThroughputEstimator throughputEstimator) {
+        mContext = context;
+        mDisplayMetrics = context.getResources().getDisplayMetrics();
+        mThroughputEstimator = throughputEstimator;
+        mDataSaverKey = context.getString(R.string.pref_data_saver_key);
+        mDataSaver = MoviePreferences.isDataSaverEnabled(context);
+        // The preferences only keep a weak reference to the listener, which the singleton holds
+        PreferenceManager.getDefaultSharedPreferences(context)
+                .registerOnSharedPreferenceChangeListener(this);
+    }
+
+    public static synchronized ImageUrlResolver getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ImageUrlResolver(context.getApplicationContext(),
+                    ImageLoader.getInstance(context).getThroughputEstimator());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the complete URL of the image at the size that fits the target width
+     *
+     * @param imagePath The path of the image returned by TMDb, e.g. "/kqjL17yufvn9OVLyXYpvtyrFfak.jpg"
+     * @param targetWidthPx The width of the view showing the image, in pixels
+     */
+    public String resolve(String imagePath, int targetWidthPx) {
+        return IMAGE_BASE_URL + selectSize(targetWidthPx) + imagePath;
+    }
+
+    /**
+     * Returns the width in pixels of a cell of the movie grids, known before the cells are measured
+     */
+    public int getGridCellWidth() {
+        return mDisplayMetrics.widthPixels / GRID_SPAN_COUNT;
+    }
+
+    /**
+     * Returns the width of the screen in pixels, for the images as wide as the screen
+     */
+    public int getScreenWidth() {
+        return mDisplayMetrics.widthPixels;
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        if (mDataSaverKey.equals(key)) {
+            mDataSaver = MoviePreferences.isDataSaverEnabled(mContext);
+        }
+    }
+
+    /**
+     * Returns the TMDb size of the image for the target width
+     */
+    private String selectSize(int targetWidthPx) {
+        float density = mDisplayMetrics.density;
+        float widthPx = density > IMAGE_MAX_DENSITY
+                ? targetWidthPx * IMAGE_MAX_DENSITY / density : targetWidthPx;
+        int minWidthPx = (int) (widthPx * IMAGE_SIZE_TOLERANCE_PERCENT / 100);
+
+        // The index of IMAGE_SIZES.length stands for the original size
+        int index = 0;
+        while (index < IMAGE_SIZE_WIDTHS.length && IMAGE_SIZE_WIDTHS[index] < minWidthPx) {
+            index++;
+        }
+
+        int networkTier = updateNetworkTier();
+        if (mDataSaver) {
+            index -= DATA_SAVER_STEPS;
+        } else if (networkTier == TIER_VERY_SLOW) {
+            index -= VERY_SLOW_NETWORK_STEPS;
+        } else if (networkTier == TIER_SLOW) {
+            index -= SLOW_NETWORK_STEPS;
+        } else if (networkTier != TIER_FAST) {
+            // An original image is only fetched once a fast download is measured
+            index = Math.min(index, IMAGE_SIZES.length - 1);
+        }
+        index = Math.max(0, Math.min(index, IMAGE_SIZES.length));
+        return index == IMAGE_SIZES.length ? IMAGE_SIZE_ORIGINAL : IMAGE_SIZES[index];
+    }
+
+    /**
+     * Move the network to the tier of the latest throughput estimate, past the hysteresis, and
+     * returns the tier
+     */
+    private synchronized int updateNetworkTier() {
+        mNetworkTier = getNetworkTier(mNetworkTier, mThroughputEstimator.getBytesPerSecond());
+        return mNetworkTier;
+    }
+
+    /**
+     * Returns the tier of the network for the throughput estimate. The first estimate picks the
+     * tier it falls in, then the tier only changes once the estimate is
+     * THROUGHPUT_HYSTERESIS_PERCENT below its lowest throughput or above the lowest throughput of
+     * the next tier.
+     *
+     * @param currentTier The current tier, or TIER_UNKNOWN
+     * @param bytesPerSecond The throughput estimate, or ThroughputEstimator.UNKNOWN
+     */
+    static int getNetworkTier(int currentTier, long bytesPerSecond) {
+        if (bytesPerSecond == ThroughputEstimator.UNKNOWN) {
+            return currentTier;
+        }
+        int tier = currentTier;
+        if (tier == TIER_UNKNOWN) {
+            tier = TIER_VERY_SLOW;
+            while (tier < TIER_FAST && bytesPerSecond >= TIER_MIN_BYTES_PER_SECOND[tier + 1]) {
+                tier++;
+            }
+            return tier;
+        }
+        while (tier > TIER_VERY_SLOW && bytesPerSecond
+                < TIER_MIN_BYTES_PER_SECOND[tier] * (100 - THROUGHPUT_HYSTERESIS_PERCENT) / 100) {
+            tier--;
+        }
+        while (tier < TIER_FAST && bytesPerSecond
+                >= TIER_MIN_BYTES_PER_SECOND[tier + 1] * (100 + THROUGHPUT_HYSTERESIS_PERCENT) / 100) {
+            tier++;
+        }
+        return tier;
+    }
+}
@@ -19,13 +19,12 @@ package com.example.android.popularmovies.utilities;
 import android.content.Context;
 
 import com.example.android.popularmovies.AppExecutors;
+import com.example.android.popularmovies.R;
 import com.example.android.popularmovies.data.MovieDatabase;
 import com.example.android.popularmovies.data.MovieRepository;
 import com.example.android.popularmovies.ui.main.FavViewModelFactory;
-import com.example.android.popularmovies.ui.info.InfoViewModelFactory;
+import com.example.android.popularmovies.ui.detail.DetailViewModelFactory;
 import com.example.android.popularmovies.ui.main.MainViewModelFactory;
-import com.example.android.popularmovies.ui.review.ReviewViewModelFactory;
-import com.example.android.popularmovies.ui.trailer.TrailerViewModelFactory;
 
 /**
  * Provides static methods to inject the various classes needed for PopularMovies
@@ -36,28 +35,20 @@ public class InjectorUtils {
         MovieDatabase database = MovieDatabase.getInstance(context.getApplicationContext());
         AppExecutors executors = AppExecutors.getInstance();
         // The Retrofit class generates an implementation of the TheMovieApi interface
-        TheMovieApi theMovieApi = Controller.getClient().create(TheMovieApi.class);
-        return MovieRepository.getInstance(database.movieDao(), theMovieApi, executors);
+        TheMovieApi theMovieApi = Controller.getClient(context).create(TheMovieApi.class);
+        return MovieRepository.getInstance(database.movieDao(), database.cachedMovieDao(),
+                database.cachedDetailsDao(), theMovieApi, executors);
     }
 
     public static MainViewModelFactory provideMainActivityViewModelFactory(Context context, String sortCriteria) {
         MovieRepository repository = provideRepository(context.getApplicationContext());
-        return new MainViewModelFactory(repository, sortCriteria);
+        return new MainViewModelFactory(repository, sortCriteria,
+                context.getString(R.string.pref_sort_by_favorites));
     }
 
-    public static InfoViewModelFactory provideInfoViewModelFactory(Context context, int movieId) {
+    public static DetailViewModelFactory provideDetailViewModelFactory(Context context, int movieId) {
         MovieRepository repository = provideRepository(context.getApplicationContext());
-        return new InfoViewModelFactory(repository, movieId);
-    }
-
-    public static ReviewViewModelFactory provideReviewViewModelFactory(Context context, int movieId) {
-        MovieRepository repository = provideRepository(context.getApplicationContext());
-        return new ReviewViewModelFactory(repository, movieId);
-    }
-
-    public static TrailerViewModelFactory provideTrailerViewModelFactory(Context context, int movieId) {
-        MovieRepository repository = provideRepository(context.getApplicationContext());
-        return new TrailerViewModelFactory(repository, movieId);
+        return new DetailViewModelFactory(repository, movieId);
     }
 
     public static FavViewModelFactory provideFavViewModelFactory(Context context, int movieId) {
@@ -0,0 +1,224 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.utilities;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static com.example.android.popularmovies.utilities.Constant.RATE_LIMIT_DEFAULT_RETRY_AFTER_SECONDS;
+import static com.example.android.popularmovies.utilities.Constant.RATE_LIMIT_MAX_RETRIES;
+import static com.example.android.popularmovies.utilities.Constant.RESPONSE_CODE_TOO_MANY_REQUESTS;
+
+/**
+ * A token bucket that throttles the requests to TMDb so that fast scrolling and prefetching
+ * don't burst past the request budget of the API.
+ *
+ * Each request sent to the network takes a token, and tokens are refilled at a fixed rate up to
+ * the capacity of the bucket. When there are no tokens, the request waits, and requests tagged with
+ * {@link RequestPriority#INTERACTIVE} are served before requests tagged with
+ * {@link RequestPriority#PREFETCH}. Requests without a tag are treated as interactive.
+ *
+ * When TMDb answers 429 Too Many Requests, no token is handed out until the Retry-After delay has
+ * passed, and the request is sent again up to RATE_LIMIT_MAX_RETRIES times.
+ *
+ * The bucket is installed in an OkHttpClient with {@link #install(OkHttpClient.Builder)}, as a
+ * network interceptor so that the responses served from the HTTP cache don't take a token.
+ */
+public class RateLimitInterceptor implements Interceptor {
+
+    /** Tag for logging */
+    private static final String TAG = RateLimitInterceptor.class.getSimpleName();
+
+    /** Header name of the delay in seconds sent with a 429 response */
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+
+    /** The maximum number of tokens, which is the largest burst of requests allowed */
+    private final double mCapacity;
+    /** The number of tokens added per nanosecond */
+    private final double mTokensPerNano;
+
+    /** The number of tokens currently in the bucket */
+    private double mTokens;
+    /** Time in nanoseconds when the tokens were last refilled */
+    private long mLastRefillNanos;
+    /** Time in nanoseconds until which no token is handed out, set from Retry-After */
+    private long mBlockedUntilNanos;
+    /** The number of interactive requests waiting for a token */
+    private int mWaitingInteractive;
+
+    /**
+     * Constructor
+     *
+     * @param capacity The maximum number of tokens in the bucket
+     * @param requestsPerSecond The number of tokens added per second
+     */
+    public RateLimitInterceptor(int capacity, double requestsPerSecond) {
+        mCapacity = capacity;
+        mTokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        mTokens = capacity;
+        mLastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Install the bucket in the client: as a network interceptor, so that only the requests
+     * reaching TMDb take a token, and with an application interceptor that retries the requests
+     * answered with 429 Too Many Requests.
+     * <p>
+     * The calls waiting for a token hold a slot of the Dispatcher, which runs 5 calls per host by
+     * default. The per-host limit is raised to the overall limit, so that an interactive call
+     * enqueued behind waiting prefetch calls reaches the bucket and takes the next token, instead
+     * of waiting in the Dispatcher until the prefetch calls are sent.
+     *
+     * @param builder The builder of the OkHttpClient sending the requests to TMDb
+     */
+    public OkHttpClient.Builder install(OkHttpClient.Builder builder) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(dispatcher.getMaxRequests());
+        return builder.dispatcher(dispatcher)
+                .addInterceptor(new RetryAfterInterceptor())
+                .addNetworkInterceptor(this);
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        acquire(request.tag(RequestPriority.class) != RequestPriority.PREFETCH);
+        Response response = chain.proceed(request);
+        if (response.code() == RESPONSE_CODE_TOO_MANY_REQUESTS) {
+            long retryAfterSeconds = parseRetryAfter(response.header(HEADER_RETRY_AFTER));
+            Log.w(TAG, "Rate limited by TMDb, retry after " + retryAfterSeconds + " s");
+            blockFor(TimeUnit.SECONDS.toNanos(retryAfterSeconds));
+        }
+        return response;
+    }
+
+    /**
+     * Wait until a token is available and take it. Prefetch requests also wait while any
+     * interactive request is waiting.
+     */
+    private synchronized void acquire(boolean interactive) throws InterruptedIOException {
+        if (interactive) {
+            mWaitingInteractive++;
+        }
+        try {
+            while (true) {
+                if (!interactive && mWaitingInteractive > 0) {
+                    // Every interactive request calls notifyAll() when it stops waiting
+                    wait();
+                    continue;
+                }
+                long now = System.nanoTime();
+                refill(now);
+
+                long waitNanos;
+                if (now < mBlockedUntilNanos) {
+                    waitNanos = mBlockedUntilNanos - now;
+                } else if (mTokens >= 1) {
+                    mTokens--;
+                    return;
+                } else {
+                    waitNanos = getNanosUntilNextToken();
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, Math.max(waitNanos, 1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limiter");
+        } finally {
+            if (interactive) {
+                mWaitingInteractive--;
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Add the tokens earned since the last refill, up to the capacity of the bucket
+     */
+    private void refill(long now) {
+        // The refill time is in the future while TMDb has blocked the requests
+        if (now <= mLastRefillNanos) {
+            return;
+        }
+        mTokens = Math.min(mCapacity, mTokens + (now - mLastRefillNanos) * mTokensPerNano);
+        mLastRefillNanos = now;
+    }
+
+    /**
+     * Returns the time in nanoseconds until the bucket holds one token
+     */
+    private long getNanosUntilNextToken() {
+        return (long) Math.ceil((1 - mTokens) / mTokensPerNano);
+    }
+
+    /**
+     * Don't hand out tokens for the given time, and drop the tokens left in the bucket
+     */
+    private synchronized void blockFor(long nanos) {
+        long now = System.nanoTime();
+        mBlockedUntilNanos = Math.max(mBlockedUntilNanos, now + nanos);
+        mTokens = 0;
+        mLastRefillNanos = mBlockedUntilNanos;
+    }
+
+    /**
+     * Returns the delay in seconds of the Retry-After header. TMDb sends the delay in seconds,
+     * so the HTTP-date form falls back to RATE_LIMIT_DEFAULT_RETRY_AFTER_SECONDS.
+     */
+    private static long parseRetryAfter(String retryAfter) {
+        if (retryAfter != null) {
+            try {
+                return Math.max(0, Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Unparsable Retry-After header: " + retryAfter);
+            }
+        }
+        return RATE_LIMIT_DEFAULT_RETRY_AFTER_SECONDS;
+    }
+
+    /**
+     * Send a request answered with 429 Too Many Requests again, up to RATE_LIMIT_MAX_RETRIES
+     * times. A network interceptor can only send a request once, so the retries are made from
+     * this application interceptor, and each one waits in the bucket for the Retry-After delay.
+     */
+    private static class RetryAfterInterceptor implements Interceptor {
+        @NonNull
+        @Override
+        public Response intercept(@NonNull Chain chain) throws IOException {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            for (int retries = 0; retries < RATE_LIMIT_MAX_RETRIES
+                    && response.code() == RESPONSE_CODE_TOO_MANY_REQUESTS; retries++) {
+                response.close();
+                response = chain.proceed(request);
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.utilities;
+
+/**
+ * The priority of a request to TMDb, set as a tag on the request and used by
+ * {@link RateLimitInterceptor} to decide which request gets the next token.
+ */
+public enum RequestPriority {
+    /** Requests the user is waiting for, such as the first page and the movie details */
+    INTERACTIVE,
+    /** Pages loaded ahead of the scroll position */
+    PREFETCH
+}
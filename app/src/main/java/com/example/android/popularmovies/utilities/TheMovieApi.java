@@ -25,6 +25,7 @@ import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Tag;
 
 /**
  * The movie database api interface. Retrofit turns HTTP API into a Java interface.
@@ -36,7 +37,8 @@ public interface TheMovieApi {
             @Path("sort_criteria") String sortCriteria,
             @Query("api_key") String apiKey,
             @Query("language") String language,
-            @Query("page") int page
+            @Query("page") int page,
+            @Tag RequestPriority priority
     );
 
     @GET("movie/{id}")
@@ -44,7 +46,7 @@ public interface TheMovieApi {
             @Path("id") int id,
             @Query("api_key") String apiKey,
             @Query("language") String language,
-            @Query("append_to_response") String credits
+            @Query("append_to_response") String appendToResponse
     );
 
     @GET("movie/{id}/reviews")
@@ -0,0 +1,62 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.utilities;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.example.android.popularmovies.utilities.Constant.THROUGHPUT_MIN_SAMPLE_BYTES;
+import static com.example.android.popularmovies.utilities.Constant.THROUGHPUT_SAMPLE_WEIGHT;
+
+/**
+ * {@link ThroughputEstimator} keeps a rolling estimate of the download throughput from the images
+ * downloaded recently. Each download is weighted by THROUGHPUT_SAMPLE_WEIGHT in an exponentially
+ * weighted moving average, so the estimate follows a change of network within a few images.
+ * Downloads smaller than THROUGHPUT_MIN_SAMPLE_BYTES are ignored, because their time is mostly
+ * the latency of the request rather than the transfer.
+ */
+public class ThroughputEstimator {
+
+    /** The value of getBytesPerSecond() before any download is measured */
+    public static final long UNKNOWN = -1;
+
+    private double mBytesPerSecond = UNKNOWN;
+
+    /**
+     * Add a download to the estimate
+     *
+     * @param bytes The size of the response body
+     * @param elapsedNanos The time from sending the request to reading the last byte
+     */
+    public synchronized void addSample(long bytes, long elapsedNanos) {
+        if (bytes < THROUGHPUT_MIN_SAMPLE_BYTES || elapsedNanos <= 0) {
+            return;
+        }
+        double bytesPerSecond = bytes * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        if (mBytesPerSecond == UNKNOWN) {
+            mBytesPerSecond = bytesPerSecond;
+        } else {
+            mBytesPerSecond += THROUGHPUT_SAMPLE_WEIGHT * (bytesPerSecond - mBytesPerSecond);
+        }
+    }
+
+    /**
+     * Returns the estimated throughput in bytes per second, or UNKNOWN
+     */
+    public synchronized long getBytesPerSecond() {
+        return (long) mBytesPerSecond;
+    }
+}
@@ -29,14 +29,22 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Bundle;
 import android.os.Parcelable;
+import android.util.Log;
 import android.provider.Settings;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import com.google.android.material.chip.Chip;
+import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.snackbar.Snackbar;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
+import androidx.appcompat.widget.SearchView;
 import androidx.preference.PreferenceManager;
 import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -46,20 +54,29 @@ import com.example.android.popularmovies.GridSpacingItemDecoration;
 import com.example.android.popularmovies.R;
 import com.example.android.popularmovies.ui.detail.DetailActivity;
 import com.example.android.popularmovies.settings.SettingsActivity;
+import com.example.android.popularmovies.data.CacheGovernorWorker;
+import com.example.android.popularmovies.data.FavoriteThumb;
+import com.example.android.popularmovies.data.GenreEntry;
 import com.example.android.popularmovies.data.MovieEntry;
 import com.example.android.popularmovies.data.MoviePreferences;
+import com.example.android.popularmovies.data.MovieRepository;
+import com.example.android.popularmovies.data.NetworkState;
 import com.example.android.popularmovies.databinding.ActivityMainBinding;
 import com.example.android.popularmovies.model.Movie;
+import com.example.android.popularmovies.utilities.ImageLoader;
 import com.example.android.popularmovies.utilities.InjectorUtils;
 
 import java.util.List;
 
 import static com.example.android.popularmovies.utilities.Constant.DRAWABLES_ZERO;
 import static com.example.android.popularmovies.utilities.Constant.EXTRA_MOVIE;
+import static com.example.android.popularmovies.utilities.Constant.GRID_IMAGE_TAG;
 import static com.example.android.popularmovies.utilities.Constant.GRID_INCLUDE_EDGE;
 import static com.example.android.popularmovies.utilities.Constant.GRID_SPACING;
 import static com.example.android.popularmovies.utilities.Constant.GRID_SPAN_COUNT;
 import static com.example.android.popularmovies.utilities.Constant.LAYOUT_MANAGER_STATE;
+import static com.example.android.popularmovies.utilities.Constant.NO_GENRE_FILTER;
+import static com.example.android.popularmovies.utilities.Constant.POSTER_PRELOAD_ROWS;
 import static com.example.android.popularmovies.utilities.Constant.REQUEST_CODE_DIALOG;
 
 /**
@@ -91,6 +108,15 @@ public class MainActivity extends AppCompatActivity implements
     /** This field is used for data binding */
     private ActivityMainBinding mMainBinding;
 
+    /** The contextual action bar shown while selecting favorites to delete */
+    private ActionMode mActionMode;
+
+    /** Shows the movies matching the search query while the SearchView is expanded */
+    private MoviePagedListAdapter mSearchAdapter;
+
+    /** Preloads the posters of the next rows of the grid while it is scrolled */
+    private PosterPreloader mPosterPreloader;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -112,6 +138,12 @@ public class MainActivity extends AppCompatActivity implements
         setupViewModel(mSortCriteria);
         // Update the UI depending on the sort order
         updateUI(mSortCriteria);
+        // Show a snackbar with a retry action when a page of movies fails to load
+        observeNetworkState();
+        // Display the movies matching the search query
+        observeSearchResults();
+        // Display a filter chip for each genre of the favorite movies
+        observeFavoriteGenres();
 
         // Register MainActivity as an OnPreferenceChangedListener to receive a callback when a
         // SharedPreference has changed. Please note that we must unregister MainActivity as an
@@ -125,6 +157,9 @@ public class MainActivity extends AppCompatActivity implements
         // Set column spacing to make each column have the same spacing
         setColumnSpacing();
 
+        // Keep the caches under their disk budget while the device is idle
+        CacheGovernorWorker.schedule(this);
+
         if (savedInstanceState != null) {
             // Get the scroll position
             mSavedLayoutState = savedInstanceState.getParcelable(LAYOUT_MANAGER_STATE);
@@ -151,6 +186,26 @@ public class MainActivity extends AppCompatActivity implements
         mMoviePagedListAdapter = new MoviePagedListAdapter(this);
         // Create FavoriteAdapter that is responsible for linking favorite movies with the Views
         mFavoriteAdapter = new FavoriteAdapter(this, this);
+        // Create the adapter of the search results, so that searching keeps the loaded movies
+        mSearchAdapter = new MoviePagedListAdapter(this);
+
+        // Preload the posters a few rows ahead of the scroll, so that they are bound from memory
+        mPosterPreloader = new PosterPreloader(mMainBinding.rvMovie, POSTER_PRELOAD_ROWS);
+        mPosterPreloader.attach();
+
+        // Hold the poster requests while the grid is flung, since the cells bound along the way
+        // are recycled before their posters arrive, and start them once the grid is touched or stops
+        mMainBinding.rvMovie.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                ImageLoader imageLoader = ImageLoader.getInstance(MainActivity.this);
+                if (newState == RecyclerView.SCROLL_STATE_SETTLING) {
+                    imageLoader.pauseTag(GRID_IMAGE_TAG);
+                } else {
+                    imageLoader.resumeTag(GRID_IMAGE_TAG);
+                }
+            }
+        });
     }
 
     /**
@@ -180,12 +235,15 @@ public class MainActivity extends AppCompatActivity implements
             mMainBinding.rvMovie.setAdapter(mMoviePagedListAdapter);
             observeMoviePagedList();
         }
+        updateGenreChipsVisibility();
     }
 
     /**
      * Update the MoviePagedList from LiveData in MainActivityViewModel
      */
     private void observeMoviePagedList() {
+        // A refresh calls updateUI again, so replace the observer instead of adding one
+        mMainViewModel.getMoviePagedList().removeObservers(this);
         mMainViewModel.getMoviePagedList().observe(this, new Observer<PagedList<Movie>>() {
             @Override
             public void onChanged(@Nullable PagedList<Movie> pagedList) {
@@ -207,19 +265,116 @@ public class MainActivity extends AppCompatActivity implements
     }
 
     /**
-     * Update the list of MovieEntries from LiveData in MainActivityViewModel
+     * Observe the NetworkState of the page loads. When a page fails to load after its retries,
+     * show a snackbar that re-issues only the failed page.
+     */
+    private void observeNetworkState() {
+        mMainViewModel.getNetworkState().observe(this, new Observer<NetworkState>() {
+            @Override
+            public void onChanged(@Nullable NetworkState networkState) {
+                if (networkState != null && networkState.getStatus() == NetworkState.Status.FAILED
+                        && !mSortCriteria.equals(getString(R.string.pref_sort_by_favorites))) {
+                    showSnackbarRetry();
+                }
+            }
+        });
+    }
+
+    /**
+     * Update the PagedList of search results from LiveData in MainActivityViewModel
+     */
+    private void observeSearchResults() {
+        mMainViewModel.getSearchResults().observe(this, new Observer<PagedList<Movie>>() {
+            @Override
+            public void onChanged(@Nullable PagedList<Movie> pagedList) {
+                showMovieDataView();
+                mSearchAdapter.submitList(pagedList);
+            }
+        });
+    }
+
+    /**
+     * Update the genre filter chips from LiveData in MainActivityViewModel
+     */
+    private void observeFavoriteGenres() {
+        mMainViewModel.getFavoriteGenres().observe(this, new Observer<List<GenreEntry>>() {
+            @Override
+            public void onChanged(@Nullable List<GenreEntry> genreEntries) {
+                setGenreChips(genreEntries);
+            }
+        });
+    }
+
+    /**
+     * Replace the genre filter chips, keeping the selected genre checked. When the last favorite
+     * of the selected genre is removed, every favorite is shown again.
+     *
+     * @param genreEntries The genres of the favorite movies
+     */
+    private void setGenreChips(@Nullable List<GenreEntry> genreEntries) {
+        ChipGroup chipGroup = mMainBinding.cgGenres;
+        chipGroup.setOnCheckedChangeListener(null);
+        chipGroup.clearCheck();
+        chipGroup.removeAllViews();
+
+        int selectedGenreId = mMainViewModel.getFavoriteGenreId();
+        boolean isSelectedGenreShown = false;
+        if (genreEntries != null) {
+            // Inflate from the ChipGroup's context, which has the MaterialComponents theme Chip needs
+            LayoutInflater inflater = LayoutInflater.from(chipGroup.getContext());
+            for (GenreEntry genreEntry : genreEntries) {
+                Chip chip = (Chip) inflater.inflate(R.layout.item_genre_chip, chipGroup, false);
+                // The genre ID is the view ID, so that the checked ID is the genre to filter by
+                chip.setId(genreEntry.getId());
+                chip.setText(genreEntry.getName());
+                chipGroup.addView(chip);
+                if (genreEntry.getId() == selectedGenreId) {
+                    isSelectedGenreShown = true;
+                }
+            }
+        }
+        if (isSelectedGenreShown) {
+            chipGroup.check(selectedGenreId);
+        } else {
+            mMainViewModel.setFavoriteGenreId(NO_GENRE_FILTER);
+        }
+
+        chipGroup.setOnCheckedChangeListener(new ChipGroup.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(ChipGroup group, int checkedId) {
+                // Unchecking the selected chip shows every favorite again
+                mMainViewModel.setFavoriteGenreId(
+                        checkedId == View.NO_ID ? NO_GENRE_FILTER : checkedId);
+            }
+        });
+        updateGenreChipsVisibility();
+    }
+
+    /**
+     * Show the genre filter chips only on the favorites screen, when there is a genre to filter by
+     */
+    private void updateGenreChipsVisibility() {
+        boolean isFavorites = mSortCriteria.equals(getString(R.string.pref_sort_by_favorites));
+        mMainBinding.hsvGenres.setVisibility(isFavorites && mMainBinding.cgGenres.getChildCount() > 0
+                ? View.VISIBLE : View.GONE);
+    }
+
+    /**
+     * Update the PagedList of FavoriteThumbs from LiveData in MainActivityViewModel
      */
     private void observeFavoriteMovies() {
-        mMainViewModel.getFavoriteMovies().observe(this, new Observer<List<MovieEntry>>() {
+        // The LiveData outlives the calls of updateUI, so replace the observer instead of adding one
+        mMainViewModel.getFavoriteMovies().removeObservers(this);
+        mMainViewModel.getFavoriteMovies().observe(this, new Observer<PagedList<FavoriteThumb>>() {
             @Override
-            public void onChanged(@Nullable List<MovieEntry> movieEntries) {
-                // Set the list of MovieEntries to display favorite movies
-                mFavoriteAdapter.setMovies(movieEntries);
+            public void onChanged(@Nullable PagedList<FavoriteThumb> favoriteThumbs) {
+                // Set the PagedList of FavoriteThumbs to display favorite movies
+                mFavoriteAdapter.submitList(favoriteThumbs);
 
                 // Restore the scroll position after setting up the adapter with the list of favorite movies
                 mMainBinding.rvMovie.getLayoutManager().onRestoreInstanceState(mSavedLayoutState);
 
-                if (movieEntries == null || movieEntries.size() == 0) {
+                if (favoriteThumbs == null || favoriteThumbs.size() == 0) {
                     // When there are no favorite movies, display an empty view
                     showEmptyView();
                 } else if(!isOnline()) {
@@ -235,15 +390,36 @@ public class MainActivity extends AppCompatActivity implements
      */
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-        // If the key is equal to sort_by, update the sort by preference
-        if (key.equals(getString(R.string.pref_sort_by_key))) {
-            mSortCriteria = sharedPreferences.getString(key, getString(R.string.pref_sort_by_default));
+        // Only the sort_by preference changes the movies shown. The other preferences, such as the
+        // data saver, are read when they are used.
+        if (!key.equals(getString(R.string.pref_sort_by_key))) {
+            return;
+        }
+
+        // Stop selecting favorites when leaving the favorites
+        if (mActionMode != null) {
+            mActionMode.finish();
         }
 
+        // Remember the scroll position of the sort criteria we are leaving, and stop observing
+        // its paged list, which stays cached in the ViewModel. The favorites are observed again
+        // by updateUI when they are shown, so that their observer doesn't update the other grids.
+        mMainViewModel.saveLayoutState(
+                mMainBinding.rvMovie.getLayoutManager().onSaveInstanceState());
+        mMainViewModel.getMoviePagedList().removeObservers(this);
+        mMainViewModel.getFavoriteMovies().removeObservers(this);
+
+        mSortCriteria = sharedPreferences.getString(key, getString(R.string.pref_sort_by_default));
+
         // When SharedPreference changes, observe the data and update the UI
-        // Set a new value for the PagedList of movies to clear old list and reload. Needs to call it
-        // when the SharedPreferences is changed because at that time it's okay to overwrite everything.
+        // Set the PagedList of movies of the sort criteria. A recently viewed sort criteria reuses
+        // the movies already loaded, otherwise a new list is loaded.
         mMainViewModel.setMoviePagedList(mSortCriteria);
+        // Restore the scroll position of the sort criteria, or start from the top
+        mSavedLayoutState = mMainViewModel.getLayoutState();
+        if (mSavedLayoutState == null) {
+            mMainBinding.rvMovie.scrollToPosition(0);
+        }
         updateUI(mSortCriteria);
     }
 
@@ -253,6 +429,13 @@ public class MainActivity extends AppCompatActivity implements
         // Unregister MainActivity as an OnPreferenceChangedListener to avoid any memory leaks
         PreferenceManager.getDefaultSharedPreferences(this)
                 .unregisterOnSharedPreferenceChangeListener(this);
+        Log.d(TAG, "Image caches: " + ImageLoader.getInstance(this).getStats());
+        Log.d(TAG, "Poster preload: " + mPosterPreloader.getHitCount() + " hits, "
+                + mPosterPreloader.getMissCount() + " misses, hit rate "
+                + mPosterPreloader.getHitRate());
+        mPosterPreloader.cancel();
+        // The ImageLoader outlives the activity, so don't leave the grid requests paused
+        ImageLoader.getInstance(this).resumeTag(GRID_IMAGE_TAG);
     }
 
     /**
@@ -276,8 +459,30 @@ public class MainActivity extends AppCompatActivity implements
         startActivity(intent);
     }
 
+    /**
+     * The favorites grid only holds the poster and title, so load the full MovieEntry of the
+     * movie that was clicked before opening the DetailActivity.
+     *
+     * @param favoriteThumb The favorite movie that was clicked
+     */
     @Override
-    public void onFavItemClick(MovieEntry movieEntry) {
+    public void onFavItemClick(FavoriteThumb favoriteThumb) {
+        mMainViewModel.loadFavoriteMovie(favoriteThumb.getMovieId(),
+                new MovieRepository.FavoriteMovieCallback() {
+                    @Override
+                    public void onFavoriteMovieLoaded(MovieEntry movieEntry) {
+                        // The movie may have been removed from the favorites in the meantime
+                        if (movieEntry != null && !isFinishing()) {
+                            openFavoriteMovie(movieEntry);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Create a movie object based on the MovieEntry and start the DetailActivity
+     */
+    private void openFavoriteMovie(MovieEntry movieEntry) {
         // Get the movie data from the MovieEntry
         int movieId = movieEntry.getMovieId();
         String originalTitle = movieEntry.getOriginalTitle();
@@ -304,6 +509,62 @@ public class MainActivity extends AppCompatActivity implements
         startActivity(intent);
     }
 
+    /**
+     * Start the contextual action bar when the first favorite is selected, update its title with
+     * the number of selected favorites, and finish it when nothing is selected.
+     *
+     * @param selectedCount The number of selected favorites
+     */
+    @Override
+    public void onFavSelectionChanged(int selectedCount) {
+        if (selectedCount == 0) {
+            if (mActionMode != null) {
+                mActionMode.finish();
+            }
+            return;
+        }
+
+        if (mActionMode == null) {
+            mActionMode = startSupportActionMode(mSelectionActionModeCallback);
+        }
+        if (mActionMode != null) {
+            mActionMode.setTitle(getResources().getQuantityString(
+                    R.plurals.favorites_selected, selectedCount, selectedCount));
+        }
+    }
+
+    /**
+     * Callback of the contextual action bar which deletes the selected favorites in one transaction
+     */
+    private final ActionMode.Callback mSelectionActionModeCallback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            mode.getMenuInflater().inflate(R.menu.favorites_selection, menu);
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            if (item.getItemId() == R.id.action_delete_selected) {
+                mMainViewModel.deleteFavoriteMovies(mFavoriteAdapter.getSelectedMovieIds());
+                mode.finish();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode mode) {
+            mFavoriteAdapter.clearSelection();
+            mActionMode = null;
+        }
+    };
+
     /**
      *  Set the SwipeRefreshLayout triggered by a swipe gesture.
      */
@@ -425,6 +686,21 @@ public class MainActivity extends AppCompatActivity implements
         snackbar.show();
     }
 
+    /**
+     * When a page of movies fails to load, show a snackbar message with a retry action
+     */
+    private void showSnackbarRetry() {
+        Snackbar snackbar = Snackbar.make(
+                mMainBinding.frameMain, R.string.snackbar_load_failed, Snackbar.LENGTH_INDEFINITE);
+        snackbar.setAction(R.string.retry, new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mMainViewModel.retry();
+            }
+        });
+        snackbar.show();
+    }
+
     /**
      * Set column spacing to make each column have the same spacing.
      */
@@ -440,6 +716,52 @@ public class MainActivity extends AppCompatActivity implements
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
+
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                mMainViewModel.setSearchQuery(query);
+                return false;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                // Search as the user types, since every word is matched as a prefix
+                mMainViewModel.setSearchQuery(newText);
+                return true;
+            }
+        });
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                // Stop selecting favorites and show the search results in place of the sort criteria
+                if (mActionMode != null) {
+                    mActionMode.finish();
+                }
+                mMainViewModel.saveLayoutState(
+                        mMainBinding.rvMovie.getLayoutManager().onSaveInstanceState());
+                mMainBinding.rvMovie.setAdapter(mSearchAdapter);
+                mMainBinding.hsvGenres.setVisibility(View.GONE);
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                // Show the movies of the sort criteria again at the position they were left
+                if (mSortCriteria.equals(getString(R.string.pref_sort_by_favorites))) {
+                    mMainBinding.rvMovie.setAdapter(mFavoriteAdapter);
+                } else {
+                    mMainBinding.rvMovie.setAdapter(mMoviePagedListAdapter);
+                }
+                mMainBinding.rvMovie.getLayoutManager().onRestoreInstanceState(
+                        mMainViewModel.getLayoutState());
+                updateGenreChipsVisibility();
+                return true;
+            }
+        });
         return true;
     }
 
@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.paging.PagedList;
+
+import com.example.android.popularmovies.data.FakeMovieRepository;
+import com.example.android.popularmovies.model.Movie;
+import com.example.android.popularmovies.ui.main.MainActivityViewModel;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.android.popularmovies.utilities.Constant.NUMBER_OF_FIXED_THREADS_FIVE;
+import static com.example.android.popularmovies.utilities.Constant.PAGING_THREAD_NAME_PREFIX;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the paging pool of {@link AppExecutors}.
+ */
+public class AppExecutorsTest {
+
+    private static final int SORT_SWITCHES = 100;
+    private static final String SORT_CRITERIA_PREFIX = "sort";
+    private static final String FAVORITES_SORT_CRITERIA = "favorites";
+    /** The page loads run on the pool by the metrics test */
+    private static final int PAGE_LOADS = 3;
+    private static final long PAGE_LOAD_MILLIS = 2;
+
+    @Rule
+    public final InstantTaskExecutorRule mInstantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private AppExecutors mExecutors;
+    /** The paging threads left by the pools of the other tests */
+    private int mPagingThreadsBefore;
+
+    @Before
+    public void setUp() {
+        mPagingThreadsBefore = countPagingThreads();
+        mExecutors = AppExecutors.create(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @Test
+    public void sortSwitches_keepPagingThreadCountFlat() throws InterruptedException {
+        FakeMovieRepository repository = new FakeMovieRepository(PAGE_LOAD_MILLIS);
+        MainActivityViewModel viewModel = new MainActivityViewModel(repository,
+                SORT_CRITERIA_PREFIX + 0, FAVORITES_SORT_CRITERIA);
+        AppExecutors executors = AppExecutors.getInstance();
+        // Scroll to the end of each list as soon as it is loaded, so that it loads the next pages
+        Observer<PagedList<Movie>> scrollToEnd = new Observer<PagedList<Movie>>() {
+            @Override
+            public void onChanged(PagedList<Movie> movies) {
+                if (!movies.isEmpty()) {
+                    movies.loadAround(movies.size() - 1);
+                }
+            }
+        };
+
+        LiveData<PagedList<Movie>> moviePagedList = null;
+        for (int i = 0; i < SORT_SWITCHES; i++) {
+            // Each sort switch builds a new PagedList, as MainActivity observes it, whose loads
+            // run on the shared pool while the loads of the previous lists may still be running
+            if (moviePagedList != null) {
+                moviePagedList.removeObserver(scrollToEnd);
+            }
+            viewModel.setMoviePagedList(SORT_CRITERIA_PREFIX + i);
+            moviePagedList = viewModel.getMoviePagedList();
+            moviePagedList.observeForever(scrollToEnd);
+
+            assertTrue(executors.getPagingPoolSize() <= NUMBER_OF_FIXED_THREADS_FIVE);
+            assertTrue(countPagingThreads() - mPagingThreadsBefore <= NUMBER_OF_FIXED_THREADS_FIVE);
+        }
+
+        // Wait until every list has loaded and the pool has no page left to load
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while ((repository.getFirstPageLoads() < SORT_SWITCHES
+                || executors.getPagingActiveCount() > 0 || executors.getPagingQueueSize() > 0)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(PAGE_LOAD_MILLIS);
+        }
+        assertEquals(SORT_SWITCHES, repository.getFirstPageLoads());
+        assertTrue(executors.getPagingPoolSize() <= NUMBER_OF_FIXED_THREADS_FIVE);
+        assertTrue(countPagingThreads() - mPagingThreadsBefore <= NUMBER_OF_FIXED_THREADS_FIVE);
+    }
+
+    @Test
+    public void pageLoads_areCountedByMetrics() throws InterruptedException {
+        final CountDownLatch pageLoads = new CountDownLatch(PAGE_LOADS);
+        for (int page = 0; page < PAGE_LOADS; page++) {
+            mExecutors.pagingIO().execute(new Runnable() {
+                @Override
+                public void run() {
+                    pageLoads.countDown();
+                }
+            });
+        }
+        assertTrue(pageLoads.await(30, TimeUnit.SECONDS));
+
+        // The completed count is updated after the task returns, so wait for the pool to settle
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (mExecutors.getPagingCompletedTaskCount() < PAGE_LOADS
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(PAGE_LOADS, mExecutors.getPagingCompletedTaskCount());
+        assertEquals(0, mExecutors.getPagingQueueSize());
+    }
+
+    /**
+     * Returns the number of live threads of every paging pool in the process, so that a pool
+     * created per sort switch would be counted too
+     */
+    private static int countPagingThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith(PAGING_THREAD_NAME_PREFIX)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
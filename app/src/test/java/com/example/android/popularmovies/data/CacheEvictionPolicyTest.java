@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the eviction order of {@link CacheEvictionPolicy}.
+ */
+public class CacheEvictionPolicyTest {
+
+    private static final long BUDGET_BYTES = 1000;
+    private static final long BYTES_PER_MOVIE = 100;
+
+    private final CacheEvictionPolicy mPolicy = new CacheEvictionPolicy(BUDGET_BYTES);
+
+    @Test
+    public void underBudget_evictsNothing() {
+        List<CachedMovieUsage> usages = Arrays.asList(
+                new CachedMovieUsage(1, 10), new CachedMovieUsage(2, 20));
+
+        assertTrue(mPolicy.selectMoviesToEvict(usages, BUDGET_BYTES, BYTES_PER_MOVIE).isEmpty());
+    }
+
+    @Test
+    public void overBudget_evictsLeastRecentlyViewedFirst() {
+        List<CachedMovieUsage> usages = Arrays.asList(
+                new CachedMovieUsage(1, 300),
+                new CachedMovieUsage(2, 100),
+                new CachedMovieUsage(3, 400),
+                new CachedMovieUsage(4, 200));
+
+        List<Integer> movieIds = mPolicy.selectMoviesToEvict(
+                usages, BUDGET_BYTES + 2 * BYTES_PER_MOVIE, BYTES_PER_MOVIE);
+
+        assertEquals(Arrays.asList(2, 4), movieIds);
+    }
+
+    @Test
+    public void sameViewTime_evictsInMovieIdOrder() {
+        List<CachedMovieUsage> usages = Arrays.asList(
+                new CachedMovieUsage(30, 100),
+                new CachedMovieUsage(10, 100),
+                new CachedMovieUsage(20, 100));
+
+        List<Integer> movieIds = mPolicy.selectMoviesToEvict(
+                usages, BUDGET_BYTES + 3 * BYTES_PER_MOVIE, BYTES_PER_MOVIE);
+
+        assertEquals(Arrays.asList(10, 20, 30), movieIds);
+    }
+
+    @Test
+    public void partialMovieOverBudget_evictsWholeMovie() {
+        List<CachedMovieUsage> usages = Arrays.asList(
+                new CachedMovieUsage(1, 100), new CachedMovieUsage(2, 200));
+
+        List<Integer> movieIds = mPolicy.selectMoviesToEvict(
+                usages, BUDGET_BYTES + 1, BYTES_PER_MOVIE);
+
+        assertEquals(Collections.singletonList(1), movieIds);
+    }
+
+    @Test
+    public void excessAboveCache_evictsEveryMovie() {
+        List<CachedMovieUsage> usages = Arrays.asList(
+                new CachedMovieUsage(1, 200), new CachedMovieUsage(2, 100));
+
+        List<Integer> movieIds = mPolicy.selectMoviesToEvict(
+                usages, BUDGET_BYTES * 10, BYTES_PER_MOVIE);
+
+        assertEquals(Arrays.asList(2, 1), movieIds);
+    }
+
+    @Test
+    public void inputOrder_doesNotChangeResult() {
+        List<CachedMovieUsage> usages = Arrays.asList(
+                new CachedMovieUsage(5, 500), new CachedMovieUsage(6, 50),
+                new CachedMovieUsage(7, 50), new CachedMovieUsage(8, 5));
+        List<CachedMovieUsage> reversed = Arrays.asList(
+                usages.get(3), usages.get(2), usages.get(1), usages.get(0));
+        long footprintBytes = BUDGET_BYTES + 3 * BYTES_PER_MOVIE;
+
+        assertEquals(mPolicy.selectMoviesToEvict(usages, footprintBytes, BYTES_PER_MOVIE),
+                mPolicy.selectMoviesToEvict(reversed, footprintBytes, BYTES_PER_MOVIE));
+        assertEquals(Arrays.asList(8, 6, 7),
+                mPolicy.selectMoviesToEvict(usages, footprintBytes, BYTES_PER_MOVIE));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.android.popularmovies.AppExecutors;
+import com.example.android.popularmovies.model.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.android.popularmovies.utilities.Constant.PAGE_SIZE;
+
+/**
+ * A {@link MovieRepository} for the local unit tests outside of this package, without a database
+ * or a network. Every page of every sort criteria is served from the cache after a delay, which
+ * stands for the disk read, and the pages received from the network are dropped.
+ */
+public class FakeMovieRepository extends MovieRepository {
+
+    private final long mPageLoadMillis;
+    private final AtomicInteger mFirstPageLoads = new AtomicInteger();
+
+    public FakeMovieRepository(long pageLoadMillis) {
+        super(null, null, null, null, AppExecutors.getInstance());
+        mPageLoadMillis = pageLoadMillis;
+    }
+
+    @Override
+    public List<Movie> getCachedMoviePage(String sortCriteria, int page, boolean allowStale) {
+        try {
+            Thread.sleep(mPageLoadMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Movie> movies = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            int movieId = (page - 1) * PAGE_SIZE + i + 1;
+            movies.add(new Movie(movieId, null, "Movie " + movieId, null, null, 0, null, null));
+        }
+        if (page == 1) {
+            mFirstPageLoads.incrementAndGet();
+        }
+        return movies;
+    }
+
+    @Override
+    public void cacheMoviePage(String sortCriteria, int page, List<Movie> movies) {
+    }
+
+    @Override
+    public LiveData<List<GenreEntry>> getFavoriteGenres() {
+        return new MutableLiveData<>();
+    }
+
+    /**
+     * Returns the number of initial loads, one for each paged list that was loaded
+     */
+    public int getFirstPageLoads() {
+        return mFirstPageLoads.get();
+    }
+}
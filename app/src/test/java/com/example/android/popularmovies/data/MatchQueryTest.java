@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests of the FTS4 queries {@link MovieRepository} builds from the search text.
+ */
+public class MatchQueryTest {
+
+    @Test
+    public void everyWord_isMatchedAsPrefix() {
+        assertEquals("star* war*", MovieRepository.toMatchQuery("star war", null));
+        assertEquals("title:star* title:war*", MovieRepository.toMatchQuery("star war", "title"));
+    }
+
+    @Test
+    public void longQuery_keepsEveryWord() {
+        assertEquals("the* lord* of* the* rings*",
+                MovieRepository.toMatchQuery("the lord of the rings", null));
+    }
+
+    @Test
+    public void punctuationAndQuerySyntax_areDropped() {
+        // A keyword followed by * is a prefix term, not an operator
+        assertEquals("Spider* Man* home* OR* NEAR* 3*",
+                MovieRepository.toMatchQuery("  Spider-Man: \"home\" OR (NEAR/3)*", null));
+        assertEquals("title:wall* title:e*", MovieRepository.toMatchQuery("wall·e", "title"));
+    }
+
+    @Test
+    public void lettersAndDigitsOfAnyScript_areKept() {
+        assertEquals("Amélie* 2046* 千と千尋の神隠し*",
+                MovieRepository.toMatchQuery("Amélie, 2046; 千と千尋の神隠し", null));
+    }
+
+    @Test
+    public void textWithoutWords_matchesNothing() {
+        assertEquals("", MovieRepository.toMatchQuery("", null));
+        assertEquals("", MovieRepository.toMatchQuery(" -*\" ", "title"));
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.data;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.Observer;
+import androidx.paging.PageKeyedDataSource;
+
+import com.example.android.popularmovies.AppExecutors;
+import com.example.android.popularmovies.model.Movie;
+import com.example.android.popularmovies.utilities.Controller;
+import com.example.android.popularmovies.utilities.TheMovieApi;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static com.example.android.popularmovies.utilities.Constant.MAX_RETRY_ATTEMPTS;
+import static com.example.android.popularmovies.utilities.Constant.RESPONSE_CODE_API_STATUS;
+import static com.example.android.popularmovies.utilities.Constant.RETRY_BASE_DELAY_MILLIS;
+import static com.example.android.popularmovies.utilities.Constant.RETRY_MAX_DELAY_MILLIS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of the retries of {@link MovieDataSource} against a MockWebServer. The retries
+ * run as soon as they are scheduled, and the delays they were scheduled with are recorded.
+ */
+public class MovieDataSourceTest {
+
+    private static final String SORT_CRITERIA = "popular";
+    private static final int PAGE_SIZE = 20;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Rule
+    public final InstantTaskExecutorRule mInstantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private final MockWebServer mServer = new MockWebServer();
+    /** The delays the retries were scheduled with */
+    private final List<Long> mRetryDelays = new CopyOnWriteArrayList<>();
+    /** The states of the page loads, in the order they were set */
+    private final BlockingQueue<NetworkState> mNetworkStates = new LinkedBlockingQueue<>();
+    private MovieDataSource mDataSource;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer.start();
+        TheMovieApi theMovieApi = new Retrofit.Builder()
+                .baseUrl(mServer.url("/"))
+                .addConverterFactory(GsonConverterFactory.create(Controller.createGson()))
+                .callbackExecutor(new Executor() {
+                    @Override
+                    public void execute(@NonNull Runnable command) {
+                        command.run();
+                    }
+                })
+                .build()
+                .create(TheMovieApi.class);
+        // No page is cached, so every page is requested from the network
+        MovieRepository repository = new MovieRepository(null, null, null, theMovieApi,
+                AppExecutors.getInstance()) {
+            @Override
+            public List<Movie> getCachedMoviePage(String sortCriteria, int page, boolean allowStale) {
+                return null;
+            }
+
+            @Override
+            public void cacheMoviePage(String sortCriteria, int page, List<Movie> movies) {
+            }
+        };
+        mDataSource = new MovieDataSource(repository, SORT_CRITERIA) {
+            @Override
+            void scheduleRetry(Runnable retry, long delayMillis) {
+                mRetryDelays.add(delayMillis);
+                retry.run();
+            }
+        };
+        mDataSource.getNetworkState().observeForever(new Observer<NetworkState>() {
+            @Override
+            public void onChanged(NetworkState networkState) {
+                mNetworkStates.add(networkState);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void backoffDelay_doublesUpToTheMaximumWithJitterOfHalfTheDelay() {
+        for (int attempt = 0; attempt < MAX_RETRY_ATTEMPTS + 3; attempt++) {
+            long delay = Math.min(RETRY_BASE_DELAY_MILLIS << attempt, RETRY_MAX_DELAY_MILLIS);
+            assertEquals(delay / 2, MovieDataSource.getBackoffDelayMillis(attempt, 0));
+            assertEquals(delay / 2 + delay / 4,
+                    MovieDataSource.getBackoffDelayMillis(attempt, 0.5));
+            assertTrue(MovieDataSource.getBackoffDelayMillis(attempt, Math.nextDown(1.0)) < delay);
+        }
+
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; i++) {
+            long delay = MovieDataSource.getBackoffDelayMillis(MAX_RETRY_ATTEMPTS,
+                    random.nextDouble());
+            assertTrue(delay >= RETRY_MAX_DELAY_MILLIS / 2 && delay < RETRY_MAX_DELAY_MILLIS);
+        }
+    }
+
+    @Test
+    public void serverErrors_giveUpAfterMaxRetryAttempts() throws InterruptedException {
+        for (int i = 0; i <= MAX_RETRY_ATTEMPTS + 1; i++) {
+            mServer.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        InitialCallback callback = new InitialCallback();
+        loadInitial(callback);
+
+        assertEquals(NetworkState.Status.FAILED, takeFinalState().getStatus());
+        assertEquals(MAX_RETRY_ATTEMPTS + 1, mServer.getRequestCount());
+        assertEquals(MAX_RETRY_ATTEMPTS, mRetryDelays.size());
+        for (int attempt = 0; attempt < MAX_RETRY_ATTEMPTS; attempt++) {
+            long delay = Math.min(RETRY_BASE_DELAY_MILLIS << attempt, RETRY_MAX_DELAY_MILLIS);
+            long retryDelay = mRetryDelays.get(attempt);
+            assertTrue("Retry " + attempt + " after " + retryDelay + " ms",
+                    retryDelay >= delay / 2 && retryDelay < delay);
+        }
+        assertNull(callback.mMovies.poll());
+    }
+
+    @Test
+    public void invalidApiKey_isNotRetried() throws InterruptedException {
+        mServer.enqueue(new MockResponse().setResponseCode(RESPONSE_CODE_API_STATUS));
+        mServer.enqueue(new MockResponse().setBody(createPage(1)));
+
+        loadInitial(new InitialCallback());
+
+        assertEquals(NetworkState.Status.FAILED, takeFinalState().getStatus());
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(0, mRetryDelays.size());
+    }
+
+    @Test
+    public void retry_reissuesOnlyTheFailedPage() throws InterruptedException {
+        mServer.enqueue(new MockResponse().setBody(createPage(1)));
+        mServer.enqueue(new MockResponse().setResponseCode(RESPONSE_CODE_API_STATUS));
+        mServer.enqueue(new MockResponse().setBody(createPage(2)));
+
+        InitialCallback initialCallback = new InitialCallback();
+        loadInitial(initialCallback);
+        assertNotNull(initialCallback.mMovies.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(NetworkState.Status.SUCCESS, takeFinalState().getStatus());
+
+        PageCallback pageCallback = new PageCallback();
+        mDataSource.loadAfter(new PageKeyedDataSource.LoadParams<>(2, PAGE_SIZE), pageCallback);
+        assertEquals(NetworkState.Status.FAILED, takeFinalState().getStatus());
+
+        mDataSource.retry();
+        List<Movie> movies = pageCallback.mMovies.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(movies);
+        assertEquals(2, movies.get(0).getId());
+        assertEquals(Integer.valueOf(3), pageCallback.mNextKeys.poll());
+
+        assertTrue(mServer.takeRequest().getPath().contains("page=1"));
+        assertTrue(mServer.takeRequest().getPath().contains("page=2"));
+        assertTrue(mServer.takeRequest().getPath().contains("page=2"));
+        // The page is only re-issued once, and the first page isn't loaded again
+        mDataSource.retry();
+        assertEquals(3, mServer.getRequestCount());
+        assertNull(initialCallback.mMovies.poll());
+    }
+
+    private void loadInitial(InitialCallback callback) {
+        mDataSource.loadInitial(
+                new PageKeyedDataSource.LoadInitialParams<Integer>(PAGE_SIZE, false), callback);
+    }
+
+    /**
+     * Returns the first state of the page loads that isn't RUNNING, since a retry sets the
+     * state back to RUNNING
+     */
+    private NetworkState takeFinalState() throws InterruptedException {
+        while (true) {
+            NetworkState networkState = mNetworkStates.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull("No page load finished", networkState);
+            if (networkState.getStatus() != NetworkState.Status.RUNNING) {
+                return networkState;
+            }
+        }
+    }
+
+    /**
+     * Returns the JSON of a page with a single movie, whose ID is the page number
+     */
+    private static String createPage(int page) {
+        return "{\"page\": " + page + ", \"results\": [{\"id\": " + page + "}]}";
+    }
+
+    private static class InitialCallback
+            extends PageKeyedDataSource.LoadInitialCallback<Integer, Movie> {
+
+        final BlockingQueue<List<Movie>> mMovies = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onResult(@NonNull List<Movie> data, int position, int totalCount,
+                             Integer previousPageKey, Integer nextPageKey) {
+            mMovies.add(data);
+        }
+
+        @Override
+        public void onResult(@NonNull List<Movie> data, Integer previousPageKey,
+                             Integer nextPageKey) {
+            mMovies.add(data);
+        }
+    }
+
+    private static class PageCallback extends PageKeyedDataSource.LoadCallback<Integer, Movie> {
+
+        final BlockingQueue<List<Movie>> mMovies = new LinkedBlockingQueue<>();
+        final BlockingQueue<Integer> mNextKeys = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onResult(@NonNull List<Movie> data, Integer adjacentPageKey) {
+            mNextKeys.add(adjacentPageKey);
+            mMovies.add(data);
+        }
+    }
+}
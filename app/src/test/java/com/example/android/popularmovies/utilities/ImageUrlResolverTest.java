@@ -0,0 +1,90 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.utilities;
+
+import org.junit.Test;
+
+import static com.example.android.popularmovies.utilities.Constant.THROUGHPUT_FAST_BYTES_PER_SECOND;
+import static com.example.android.popularmovies.utilities.Constant.THROUGHPUT_HYSTERESIS_PERCENT;
+import static com.example.android.popularmovies.utilities.Constant.THROUGHPUT_SLOW_BYTES_PER_SECOND;
+import static com.example.android.popularmovies.utilities.Constant.THROUGHPUT_VERY_SLOW_BYTES_PER_SECOND;
+import static com.example.android.popularmovies.utilities.ImageUrlResolver.TIER_FAST;
+import static com.example.android.popularmovies.utilities.ImageUrlResolver.TIER_MEDIUM;
+import static com.example.android.popularmovies.utilities.ImageUrlResolver.TIER_SLOW;
+import static com.example.android.popularmovies.utilities.ImageUrlResolver.TIER_UNKNOWN;
+import static com.example.android.popularmovies.utilities.ImageUrlResolver.TIER_VERY_SLOW;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Local unit tests of the network tiers {@link ImageUrlResolver} picks the image sizes for.
+ */
+public class ImageUrlResolverTest {
+
+    @Test
+    public void firstEstimate_picksTheTierItFallsIn() {
+        assertEquals(TIER_UNKNOWN,
+                ImageUrlResolver.getNetworkTier(TIER_UNKNOWN, ThroughputEstimator.UNKNOWN));
+        assertEquals(TIER_VERY_SLOW, ImageUrlResolver.getNetworkTier(TIER_UNKNOWN,
+                THROUGHPUT_VERY_SLOW_BYTES_PER_SECOND - 1));
+        assertEquals(TIER_SLOW, ImageUrlResolver.getNetworkTier(TIER_UNKNOWN,
+                THROUGHPUT_VERY_SLOW_BYTES_PER_SECOND));
+        assertEquals(TIER_MEDIUM, ImageUrlResolver.getNetworkTier(TIER_UNKNOWN,
+                THROUGHPUT_SLOW_BYTES_PER_SECOND));
+        assertEquals(TIER_FAST, ImageUrlResolver.getNetworkTier(TIER_UNKNOWN,
+                THROUGHPUT_FAST_BYTES_PER_SECOND));
+    }
+
+    @Test
+    public void estimateWaveringAroundThreshold_keepsTheTier() {
+        int tier = ImageUrlResolver.getNetworkTier(TIER_UNKNOWN, THROUGHPUT_SLOW_BYTES_PER_SECOND);
+        long[] estimates = {
+                THROUGHPUT_SLOW_BYTES_PER_SECOND * 9 / 10,
+                THROUGHPUT_SLOW_BYTES_PER_SECOND * 11 / 10,
+                THROUGHPUT_SLOW_BYTES_PER_SECOND * 7 / 10,
+                THROUGHPUT_SLOW_BYTES_PER_SECOND};
+        for (long estimate : estimates) {
+            tier = ImageUrlResolver.getNetworkTier(tier, estimate);
+            assertEquals(TIER_MEDIUM, tier);
+        }
+    }
+
+    @Test
+    public void estimatePastHysteresis_changesTheTier() {
+        long belowMedium = THROUGHPUT_SLOW_BYTES_PER_SECOND
+                * (100 - THROUGHPUT_HYSTERESIS_PERCENT) / 100 - 1;
+        assertEquals(TIER_SLOW, ImageUrlResolver.getNetworkTier(TIER_MEDIUM, belowMedium));
+
+        long aboveMedium = THROUGHPUT_FAST_BYTES_PER_SECOND
+                * (100 + THROUGHPUT_HYSTERESIS_PERCENT) / 100;
+        assertEquals(TIER_FAST, ImageUrlResolver.getNetworkTier(TIER_MEDIUM, aboveMedium));
+        // Just past the threshold, but within the hysteresis
+        assertEquals(TIER_MEDIUM, ImageUrlResolver.getNetworkTier(TIER_MEDIUM,
+                THROUGHPUT_FAST_BYTES_PER_SECOND));
+    }
+
+    @Test
+    public void suddenDrop_skipsTiers() {
+        assertEquals(TIER_VERY_SLOW, ImageUrlResolver.getNetworkTier(TIER_FAST, 1024));
+        assertEquals(TIER_FAST, ImageUrlResolver.getNetworkTier(TIER_VERY_SLOW,
+                THROUGHPUT_FAST_BYTES_PER_SECOND * 2));
+    }
+
+    @Test
+    public void unknownEstimate_keepsTheTier() {
+        assertEquals(TIER_SLOW,
+                ImageUrlResolver.getNetworkTier(TIER_SLOW, ThroughputEstimator.UNKNOWN));
+    }
+}
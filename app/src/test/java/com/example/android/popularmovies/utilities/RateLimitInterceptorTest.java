@@ -0,0 +1,175 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.example.android.popularmovies.utilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static com.example.android.popularmovies.utilities.Constant.RATE_LIMIT_MAX_RETRIES;
+import static com.example.android.popularmovies.utilities.Constant.RESPONSE_CODE_TOO_MANY_REQUESTS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Local unit tests of {@link RateLimitInterceptor} against a MockWebServer.
+ */
+public class RateLimitInterceptorTest {
+
+    private static final String PATH_INTERACTIVE = "/interactive";
+    private static final String PATH_PREFETCH = "/prefetch/";
+    /** More prefetch calls than the 5 calls per host the default Dispatcher runs */
+    private static final int PREFETCH_CALLS = 8;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    /** Closes the responses of the enqueued calls */
+    private static final Callback CLOSE_RESPONSE = new Callback() {
+        @Override
+        public void onFailure(Call call, IOException e) {
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            response.close();
+        }
+    };
+
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private final MockWebServer mServer = new MockWebServer();
+
+    @Before
+    public void setUp() throws IOException {
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void tooManyRequests_retriesAfterRetryAfterDelay() throws IOException {
+        mServer.enqueue(new MockResponse()
+                .setResponseCode(RESPONSE_CODE_TOO_MANY_REQUESTS)
+                .setHeader("Retry-After", "1"));
+        mServer.enqueue(new MockResponse().setBody("{}"));
+        OkHttpClient client = createClient(new OkHttpClient.Builder(), 10, 10);
+
+        long startNanos = System.nanoTime();
+        Response response = client.newCall(newRequest(PATH_INTERACTIVE, null)).execute();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        response.close();
+
+        assertEquals(200, response.code());
+        assertEquals(2, mServer.getRequestCount());
+        assertTrue("Retried after " + elapsedMillis + " ms", elapsedMillis >= 1000);
+    }
+
+    @Test
+    public void tooManyRequests_givesUpAfterMaxRetries() throws IOException {
+        for (int i = 0; i <= RATE_LIMIT_MAX_RETRIES; i++) {
+            mServer.enqueue(new MockResponse()
+                    .setResponseCode(RESPONSE_CODE_TOO_MANY_REQUESTS)
+                    .setHeader("Retry-After", "0"));
+        }
+        OkHttpClient client = createClient(new OkHttpClient.Builder(), 10, 10);
+
+        Response response = client.newCall(newRequest(PATH_INTERACTIVE, null)).execute();
+        response.close();
+
+        assertEquals(RESPONSE_CODE_TOO_MANY_REQUESTS, response.code());
+        assertEquals(RATE_LIMIT_MAX_RETRIES + 1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void interactiveCall_isSentAheadOfWaitingPrefetchCalls() throws Exception {
+        for (int i = 0; i < PREFETCH_CALLS + 2; i++) {
+            mServer.enqueue(new MockResponse().setBody("{}"));
+        }
+        // One token, refilled every 500 ms
+        OkHttpClient client = createClient(new OkHttpClient.Builder(), 1, 2);
+
+        // Take the only token, so that the next calls wait for a refill
+        client.newCall(newRequest(PATH_INTERACTIVE, null)).execute().close();
+        mServer.takeRequest();
+
+        for (int i = 0; i < PREFETCH_CALLS; i++) {
+            client.newCall(newRequest(PATH_PREFETCH + i, RequestPriority.PREFETCH))
+                    .enqueue(CLOSE_RESPONSE);
+        }
+        // Wait until every prefetch call is running, that is waiting in the bucket
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (client.dispatcher().runningCallsCount() < PREFETCH_CALLS
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(PREFETCH_CALLS, client.dispatcher().runningCallsCount());
+
+        client.newCall(newRequest(PATH_INTERACTIVE, RequestPriority.INTERACTIVE))
+                .enqueue(CLOSE_RESPONSE);
+
+        assertEquals(PATH_INTERACTIVE,
+                mServer.takeRequest(TIMEOUT_SECONDS, TimeUnit.SECONDS).getPath());
+    }
+
+    @Test
+    public void cachedResponse_doesNotTakeToken() throws IOException {
+        mServer.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=60")
+                .setBody("{}"));
+        Cache cache = new Cache(mTemporaryFolder.newFolder(), 1024 * 1024);
+        // One token, refilled after 100 seconds
+        OkHttpClient client = createClient(new OkHttpClient.Builder().cache(cache), 1, 0.01);
+
+        client.newCall(newRequest(PATH_INTERACTIVE, null)).execute().close();
+        long startNanos = System.nanoTime();
+        Response response = client.newCall(newRequest(PATH_INTERACTIVE, null)).execute();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        response.close();
+
+        assertTrue(response.cacheResponse() != null);
+        assertEquals(1, mServer.getRequestCount());
+        assertTrue("Served from the cache after " + elapsedMillis + " ms", elapsedMillis < 1000);
+    }
+
+    private OkHttpClient createClient(OkHttpClient.Builder builder, int capacity,
+                                      double requestsPerSecond) {
+        return new RateLimitInterceptor(capacity, requestsPerSecond).install(builder).build();
+    }
+
+    private Request newRequest(String path, RequestPriority priority) {
+        return new Request.Builder()
+                .url(mServer.url(path))
+                .tag(RequestPriority.class, priority)
+                .build();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static com.example.android.popularmovies.utilities.Constant.MAX_MOVIE_IDS_PER_QUERY;
+
+/**
+ * Compares deleting favorites one row at a time, as FavoriteAdapter did with
+ * MovieDao.deleteMovieByMovieId, with one MovieDao.deleteMoviesByMovieIds transaction.
+ * <p>
+ * The database is file-backed, in WAL mode, with the schema Room creates for the movie table.
+ * Each single-row delete outside a transaction is its own implicit transaction with its own
+ * commit, which is the cost the batch avoids.
+ * <p>
+ * Run with: ./gradlew :benchmark:jmh
+ */
+@State(Scope.Thread)
+public class FavoriteDeleteBenchmark {
+
+
+    private static final String CREATE_TABLE_MOVIE = "CREATE TABLE IF NOT EXISTS `movie` ("
+            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `movie_id` INTEGER NOT NULL, "
+            + "`original_title` TEXT, `title` TEXT, `poster_path` TEXT, `overview` TEXT, "
+            + "`vote_average` REAL NOT NULL, `release_date` TEXT, `backdrop_path` TEXT, "
+            + "`date` INTEGER, `runtime` TEXT, `release_year` TEXT)";
+    private static final String CREATE_INDEX_MOVIE_ID =
+            "CREATE UNIQUE INDEX IF NOT EXISTS `index_movie_movie_id` ON `movie` (`movie_id`)";
+    private static final String INSERT_MOVIE = "INSERT OR REPLACE INTO `movie` (`movie_id`, "
+            + "`original_title`, `title`, `poster_path`, `overview`, `vote_average`, `release_date`, "
+            + "`backdrop_path`, `date`, `runtime`, `release_year`) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_MOVIE_BY_MOVIE_ID = "DELETE FROM movie WHERE movie_id = ?";
+
+    @Param({"1000"})
+    public int favoriteCount;
+
+    private File mDatabaseFile;
+    private Connection mConnection;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws IOException, SQLException {
+        mDatabaseFile = File.createTempFile("favorites", ".db");
+        mConnection = DriverManager.getConnection("jdbc:sqlite:" + mDatabaseFile.getAbsolutePath());
+        try (Statement statement = mConnection.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=FULL");
+            statement.execute(CREATE_TABLE_MOVIE);
+            statement.execute(CREATE_INDEX_MOVIE_ID);
+        }
+    }
+
+    /**
+     * Insert the favorites in one transaction before each delete run
+     */
+    @Setup(Level.Invocation)
+    public void insertFavorites() throws SQLException {
+        mConnection.setAutoCommit(false);
+        try (PreparedStatement insert = mConnection.prepareStatement(INSERT_MOVIE)) {
+            for (int movieId = 1; movieId <= favoriteCount; movieId++) {
+                insert.setInt(1, movieId);
+                insert.setString(2, "Original title " + movieId);
+                insert.setString(3, "Title " + movieId);
+                insert.setString(4, "/poster" + movieId + ".jpg");
+                insert.setString(5, "Overview of the movie " + movieId);
+                insert.setDouble(6, 7.5);
+                insert.setString(7, "2018-01-01");
+                insert.setString(8, "/backdrop" + movieId + ".jpg");
+                insert.setLong(9, System.currentTimeMillis());
+                insert.setString(10, "120 min");
+                insert.setString(11, "2018");
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        mConnection.commit();
+        mConnection.setAutoCommit(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws SQLException {
+        mConnection.close();
+        mDatabaseFile.delete();
+        new File(mDatabaseFile.getAbsolutePath() + "-wal").delete();
+        new File(mDatabaseFile.getAbsolutePath() + "-shm").delete();
+    }
+
+    /**
+     * One DELETE per favorite, each committed on its own
+     */
+    @Benchmark
+    public int singleRowDeletes() throws SQLException {
+        int deleted = 0;
+        try (PreparedStatement delete = mConnection.prepareStatement(DELETE_MOVIE_BY_MOVIE_ID)) {
+            for (int movieId = 1; movieId <= favoriteCount; movieId++) {
+                delete.setInt(1, movieId);
+                deleted += delete.executeUpdate();
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * DELETE ... IN (...) in chunks of MAX_MOVIE_IDS_PER_QUERY, committed once
+     */
+    @Benchmark
+    public int batchDelete() throws SQLException {
+        int deleted = 0;
+        mConnection.setAutoCommit(false);
+        for (int start = 1; start <= favoriteCount; start += MAX_MOVIE_IDS_PER_QUERY) {
+            int end = Math.min(start + MAX_MOVIE_IDS_PER_QUERY - 1, favoriteCount);
+            try (PreparedStatement delete = mConnection.prepareStatement(
+                    deleteByMovieIdsSql(end - start + 1))) {
+                for (int movieId = start; movieId <= end; movieId++) {
+                    delete.setInt(movieId - start + 1, movieId);
+                }
+                deleted += delete.executeUpdate();
+            }
+        }
+        mConnection.commit();
+        mConnection.setAutoCommit(true);
+        return deleted;
+    }
+
+    /**
+     * Returns the SQL Room generates for MovieDao.deleteMoviesByMovieIdsChunk with the given
+     * number of IDs
+     */
+    private static String deleteByMovieIdsSql(int idCount) {
+        StringBuilder sql = new StringBuilder("DELETE FROM movie WHERE movie_id IN (");
+        for (int i = 0; i < idCount; i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        return sql.append(")").toString();
+    }
+}
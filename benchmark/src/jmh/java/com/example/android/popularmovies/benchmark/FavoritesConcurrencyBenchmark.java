@@ -0,0 +1,211 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.android.popularmovies.utilities.Constant.FAVORITES_PAGE_SIZE;
+
+/**
+ * Measures the first page of the favorites grid, read by the threads of Room's query executor
+ * while the single disk thread keeps writing favorites in transactions, with the journal mode
+ * MovieDatabase sets (WAL) and with the rollback journal (DELETE).
+ * <p>
+ * Each reading thread has its own connection, like the WAL connection pool on Android. With the
+ * rollback journal, a reader waits while a write transaction commits; with WAL it reads the last
+ * committed snapshot instead.
+ * <p>
+ * Run with: ./gradlew :benchmark:jmh
+ */
+public class FavoritesConcurrencyBenchmark {
+
+    /** Favorites inserted and deleted by each write transaction */
+    private static final int ROWS_PER_WRITE = 50;
+    /** The pause of the disk thread between two write transactions */
+    private static final long WRITE_INTERVAL_MILLIS = 1;
+
+    private static final String CREATE_TABLE_MOVIE = "CREATE TABLE IF NOT EXISTS `movie` ("
+            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `movie_id` INTEGER NOT NULL, "
+            + "`original_title` TEXT, `title` TEXT, `poster_path` TEXT, `overview` TEXT, "
+            + "`vote_average` REAL NOT NULL, `release_date` TEXT, `backdrop_path` TEXT, "
+            + "`date` INTEGER, `runtime` TEXT, `release_year` TEXT)";
+    private static final String CREATE_INDEX_MOVIE_ID =
+            "CREATE UNIQUE INDEX IF NOT EXISTS `index_movie_movie_id` ON `movie` (`movie_id`)";
+    private static final String INSERT_MOVIE = "INSERT OR REPLACE INTO `movie` (`movie_id`, "
+            + "`original_title`, `title`, `poster_path`, `overview`, `vote_average`, `release_date`, "
+            + "`backdrop_path`, `date`, `runtime`, `release_year`) "
+            + "VALUES (?, 'Original title', 'Title', '/poster.jpg', 'Overview', 7.5, '2018-01-01', "
+            + "'/backdrop.jpg', 0, '120 min', '2018')";
+    private static final String DELETE_MOVIE_BY_MOVIE_ID = "DELETE FROM movie WHERE movie_id = ?";
+    /** The first page Room's paging source loads for MovieDao.loadFavoriteThumbs */
+    private static final String LOAD_FAVORITE_THUMBS = "SELECT movie_id, title, poster_path "
+            + "FROM movie ORDER BY id LIMIT " + FAVORITES_PAGE_SIZE + " OFFSET 0";
+
+    /**
+     * The database file and the disk thread writing to it, shared by every reading thread
+     */
+    @State(Scope.Benchmark)
+    public static class Database {
+
+        @Param({"WAL", "DELETE"})
+        public String journalMode;
+
+        @Param({"1000"})
+        public int favoriteCount;
+
+        private File mDatabaseFile;
+        private Connection mWriteConnection;
+        private ExecutorService mDiskIO;
+        private volatile boolean mWriting;
+
+        @Setup(Level.Trial)
+        public void openDatabase() throws IOException, SQLException {
+            mDatabaseFile = File.createTempFile("favorites", ".db");
+            mWriteConnection = openConnection(this);
+            try (Statement statement = mWriteConnection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=" + journalMode);
+                statement.execute(CREATE_TABLE_MOVIE);
+                statement.execute(CREATE_INDEX_MOVIE_ID);
+            }
+            mWriteConnection.setAutoCommit(false);
+            try (PreparedStatement insert = mWriteConnection.prepareStatement(INSERT_MOVIE)) {
+                for (int movieId = 1; movieId <= favoriteCount; movieId++) {
+                    insert.setInt(1, movieId);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            mWriteConnection.commit();
+
+            // Like AppExecutors.diskIO, a single thread runs every write transaction
+            mWriting = true;
+            mDiskIO = Executors.newSingleThreadExecutor();
+            mDiskIO.execute(new Runnable() {
+                @Override
+                public void run() {
+                    writeUntilStopped();
+                }
+            });
+        }
+
+        /**
+         * Insert and delete a batch of favorites in a transaction, over and over. The disk thread
+         * pauses between the transactions, otherwise with the rollback journal it takes the
+         * write lock again before the waiting readers wake up, and they fail with SQLITE_BUSY.
+         */
+        private void writeUntilStopped() {
+            int movieId = favoriteCount;
+            try (PreparedStatement insert = mWriteConnection.prepareStatement(INSERT_MOVIE);
+                 PreparedStatement delete = mWriteConnection.prepareStatement(DELETE_MOVIE_BY_MOVIE_ID)) {
+                while (mWriting) {
+                    for (int i = 0; i < ROWS_PER_WRITE; i++) {
+                        insert.setInt(1, ++movieId);
+                        insert.executeUpdate();
+                        delete.setInt(1, movieId - favoriteCount);
+                        delete.executeUpdate();
+                    }
+                    mWriteConnection.commit();
+                    Thread.sleep(WRITE_INTERVAL_MILLIS);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void closeDatabase() throws InterruptedException, SQLException {
+            mWriting = false;
+            mDiskIO.shutdown();
+            mDiskIO.awaitTermination(1, TimeUnit.MINUTES);
+            mWriteConnection.close();
+            mDatabaseFile.delete();
+            new File(mDatabaseFile.getAbsolutePath() + "-wal").delete();
+            new File(mDatabaseFile.getAbsolutePath() + "-shm").delete();
+        }
+    }
+
+    /**
+     * The connection of a reading thread
+     */
+    @State(Scope.Thread)
+    public static class Reader {
+
+        private Connection mConnection;
+        private PreparedStatement mLoadFavoriteThumbs;
+
+        @Setup(Level.Trial)
+        public void openConnection(Database database) throws SQLException {
+            mConnection = FavoritesConcurrencyBenchmark.openConnection(database);
+            mLoadFavoriteThumbs = mConnection.prepareStatement(LOAD_FAVORITE_THUMBS);
+        }
+
+        @TearDown(Level.Trial)
+        public void closeConnection() throws SQLException {
+            mLoadFavoriteThumbs.close();
+            mConnection.close();
+        }
+    }
+
+    /**
+     * Open a connection to the database. The busy timeout lets a reader wait for a commit with the
+     * rollback journal instead of failing.
+     */
+    private static Connection openConnection(Database database) throws SQLException {
+        Connection connection = DriverManager.getConnection(
+                "jdbc:sqlite:" + database.mDatabaseFile.getAbsolutePath());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA busy_timeout=10000");
+        }
+        return connection;
+    }
+
+    /**
+     * Load the first page of the favorites from the four threads of Room's query executor
+     */
+    @Benchmark
+    @Threads(4)
+    public int loadFavoriteThumbs(Database database, Reader reader) throws SQLException {
+        int count = 0;
+        try (ResultSet resultSet = reader.mLoadFavoriteThumbs.executeQuery()) {
+            while (resultSet.next()) {
+                count += resultSet.getInt(1);
+            }
+        }
+        return count;
+    }
+}
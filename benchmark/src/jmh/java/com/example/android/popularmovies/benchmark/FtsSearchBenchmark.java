@@ -0,0 +1,361 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static com.example.android.popularmovies.utilities.Constant.PAGE_SIZE;
+
+/**
+ * Measures the full-text search of MovieDao.searchMovies over a fixture of tens of thousands of
+ * favorite and cached movies, the way MovieSearchDataSource loads it: the initial load of the
+ * search results, and the last page, which continues after the key of the page before it.
+ * <p>
+ * The database has the tables, FTS4 indexes and triggers that MovieDatabase.MIGRATION_4_5 creates
+ * and the index of MovieDatabase.MIGRATION_7_8. The fixture is generated from a fixed seed, so every run searches
+ * the same rows.
+ * <p>
+ * Run with: ./gradlew :benchmark:jmh
+ */
+@State(Scope.Thread)
+public class FtsSearchBenchmark {
+
+    /** The initial load of a PagedList, which loads three pages by default */
+    private static final int INITIAL_LOAD_SIZE = PAGE_SIZE * 3;
+    /** Movies per cached page, as returned by TMDb */
+    private static final int MOVIES_PER_PAGE = 20;
+    private static final long FIXTURE_SEED = 42L;
+
+    private static final String[] SORT_CRITERIA = {"popular", "top_rated", "now_playing"};
+    /** Common title words, so that queries match a realistic share of the rows */
+    private static final String[] COMMON_WORDS = {"star", "war", "love", "night", "dark", "city",
+            "king", "lost", "return", "dream", "island", "storm", "ghost", "blood", "house", "river",
+            "secret", "shadow", "last", "first", "empire", "summer", "winter", "world", "heart",
+            "fire", "iron", "silent", "golden", "wild"};
+    private static final int RANDOM_WORD_COUNT = 3000;
+
+    private static final String CREATE_TABLE_MOVIE = "CREATE TABLE IF NOT EXISTS `movie` ("
+            + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `movie_id` INTEGER NOT NULL, "
+            + "`original_title` TEXT, `title` TEXT, `poster_path` TEXT, `overview` TEXT, "
+            + "`vote_average` REAL NOT NULL, `release_date` TEXT, `backdrop_path` TEXT, "
+            + "`date` INTEGER, `runtime` TEXT, `release_year` TEXT)";
+    private static final String CREATE_TABLE_CACHED_MOVIE = "CREATE TABLE IF NOT EXISTS `cached_movie` ("
+            + "`sort_criteria` TEXT NOT NULL, `page` INTEGER NOT NULL, "
+            + "`position` INTEGER NOT NULL, `movie_id` INTEGER NOT NULL, "
+            + "`original_title` TEXT, `title` TEXT, `poster_path` TEXT, `overview` TEXT, "
+            + "`vote_average` REAL NOT NULL, `release_date` TEXT, `backdrop_path` TEXT, "
+            + "`fetched_at` INTEGER NOT NULL, "
+            + "PRIMARY KEY(`sort_criteria`, `page`, `position`))";
+    private static final String CREATE_INDEX_MOVIE_ID = "CREATE UNIQUE INDEX IF NOT EXISTS "
+            + "`index_movie_movie_id` ON `movie` (`movie_id`)";
+    private static final String CREATE_INDEX_CACHED_MOVIE_ID = "CREATE INDEX IF NOT EXISTS "
+            + "`index_cached_movie_movie_id` ON `cached_movie` (`movie_id`)";
+    private static final String INSERT_MOVIE = "INSERT INTO `movie` (`movie_id`, `original_title`, "
+            + "`title`, `poster_path`, `overview`, `vote_average`, `release_date`, `backdrop_path`) "
+            + "VALUES (?, ?, ?, ?, ?, 7.5, '2018-01-01', ?)";
+    private static final String INSERT_CACHED_MOVIE = "INSERT INTO `cached_movie` (`sort_criteria`, "
+            + "`page`, `position`, `movie_id`, `original_title`, `title`, `poster_path`, `overview`, "
+            + "`vote_average`, `release_date`, `backdrop_path`, `fetched_at`) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 7.5, '2018-01-01', ?, 0)";
+
+    /** The queries of the search ranks of MovieDao, in the order of the ranks */
+    private static final String SELECT_SEARCH_RESULT = "SELECT movie_id, original_title, title, "
+            + "poster_path, overview, vote_average, release_date, backdrop_path, ";
+    private static final String AFTER_KEY_BY_TITLE = "AND (ifnull(title, '') > ?3 "
+            + "OR (ifnull(title, '') = ?3 AND movie_id > ?4)) "
+            + "ORDER BY ifnull(title, ''), movie_id LIMIT ?5";
+    private static final String CACHED_MOVIE_IS_NEW = "cached_movie.movie_id NOT IN "
+            + "(SELECT movie_id FROM movie) AND NOT EXISTS (SELECT 1 FROM cached_movie AS earlier "
+            + "WHERE earlier.movie_id = cached_movie.movie_id AND earlier.rowid < cached_movie.rowid) ";
+    private static final String[] SEARCH_RANKS = {
+            SELECT_SEARCH_RESULT + "0 AS search_rank "
+                    + "FROM (SELECT docid FROM movie_fts WHERE movie_fts MATCH ?2) AS hit "
+                    + "INNER JOIN movie ON movie.rowid = hit.docid WHERE 1 " + AFTER_KEY_BY_TITLE,
+            SELECT_SEARCH_RESULT + "1 AS search_rank "
+                    + "FROM (SELECT docid FROM cached_movie_fts WHERE cached_movie_fts MATCH ?2) "
+                    + "AS hit INNER JOIN cached_movie ON cached_movie.rowid = hit.docid "
+                    + "WHERE " + CACHED_MOVIE_IS_NEW + AFTER_KEY_BY_TITLE,
+            SELECT_SEARCH_RESULT + "2 AS search_rank "
+                    + "FROM (SELECT docid FROM movie_fts WHERE movie_fts MATCH ?1) AS hit "
+                    + "INNER JOIN movie ON movie.rowid = hit.docid WHERE hit.docid NOT IN "
+                    + "(SELECT docid FROM movie_fts WHERE movie_fts MATCH ?2) "
+                    + AFTER_KEY_BY_TITLE,
+            SELECT_SEARCH_RESULT + "3 AS search_rank "
+                    + "FROM (SELECT docid FROM cached_movie_fts WHERE cached_movie_fts MATCH ?1) "
+                    + "AS hit INNER JOIN cached_movie ON cached_movie.rowid = hit.docid "
+                    + "WHERE hit.docid NOT IN (SELECT docid FROM cached_movie_fts "
+                    + "WHERE cached_movie_fts MATCH ?2) AND " + CACHED_MOVIE_IS_NEW
+                    + AFTER_KEY_BY_TITLE};
+
+    @Param({"10000"})
+    public int favoriteCount;
+
+    @Param({"30000"})
+    public int cachedMovieCount;
+
+    /** The text typed by the user: two full words, a common prefix and a rare prefix */
+    @Param({"star wars", "sta", "lo", "qx"})
+    public String query;
+
+    private File mDatabaseFile;
+    private Connection mConnection;
+    private PreparedStatement[] mSearchRanks;
+    /** The key the last page of the results loads after, the first key without a second page */
+    private SearchKey mLastPageKey;
+
+    @Setup(Level.Trial)
+    public void createFixture() throws IOException, SQLException {
+        mDatabaseFile = File.createTempFile("search", ".db");
+        mConnection = DriverManager.getConnection("jdbc:sqlite:" + mDatabaseFile.getAbsolutePath());
+        try (Statement statement = mConnection.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute(CREATE_TABLE_MOVIE);
+            statement.execute(CREATE_TABLE_CACHED_MOVIE);
+            statement.execute(CREATE_INDEX_MOVIE_ID);
+            statement.execute(CREATE_INDEX_CACHED_MOVIE_ID);
+            createFtsTable(statement, "movie_fts", "movie");
+            createFtsTable(statement, "cached_movie_fts", "cached_movie");
+        }
+
+        Random random = new Random(FIXTURE_SEED);
+        String[] vocabulary = createVocabulary(random);
+        mConnection.setAutoCommit(false);
+        try (PreparedStatement insert = mConnection.prepareStatement(INSERT_MOVIE)) {
+            for (int i = 0; i < favoriteCount; i++) {
+                insert.setInt(1, i + 1);
+                insert.setString(2, words(random, vocabulary, 3));
+                insert.setString(3, words(random, vocabulary, 3));
+                insert.setString(4, "/poster" + i + ".jpg");
+                insert.setString(5, words(random, vocabulary, 30));
+                insert.setString(6, "/backdrop" + i + ".jpg");
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        // Some movies appear under several sort criteria, with the same text, as they do in the app
+        Map<Integer, String[]> cachedTexts = new HashMap<>();
+        try (PreparedStatement insert = mConnection.prepareStatement(INSERT_CACHED_MOVIE)) {
+            for (int i = 0; i < cachedMovieCount; i++) {
+                int movieId = favoriteCount + 1 + random.nextInt(cachedMovieCount / 2);
+                String[] texts = cachedTexts.get(movieId);
+                if (texts == null) {
+                    texts = new String[]{words(random, vocabulary, 3),
+                            words(random, vocabulary, 3), words(random, vocabulary, 30)};
+                    cachedTexts.put(movieId, texts);
+                }
+                insert.setString(1, SORT_CRITERIA[i % SORT_CRITERIA.length]);
+                insert.setInt(2, i / MOVIES_PER_PAGE + 1);
+                insert.setInt(3, i % MOVIES_PER_PAGE);
+                insert.setInt(4, movieId);
+                insert.setString(5, texts[0]);
+                insert.setString(6, texts[1]);
+                insert.setString(7, "/poster" + i + ".jpg");
+                insert.setString(8, texts[2]);
+                insert.setString(9, "/backdrop" + i + ".jpg");
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        mConnection.commit();
+        mConnection.setAutoCommit(true);
+
+        // Build the queries the way MovieRepository.searchMovies does
+        mSearchRanks = new PreparedStatement[SEARCH_RANKS.length];
+        for (int rank = 0; rank < SEARCH_RANKS.length; rank++) {
+            mSearchRanks[rank] = mConnection.prepareStatement(SEARCH_RANKS[rank]);
+            mSearchRanks[rank].setString(1, toMatchQuery(query, null));
+            mSearchRanks[rank].setString(2, toMatchQuery(query, "title"));
+        }
+
+        // Scroll through every page of the results to find the key of the last page
+        SearchKey key = SearchKey.FIRST;
+        mLastPageKey = key;
+        while (true) {
+            SearchKey nextKey = loadPage(key, PAGE_SIZE);
+            if (nextKey == null) {
+                break;
+            }
+            mLastPageKey = key;
+            key = nextKey;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws SQLException {
+        for (PreparedStatement searchRank : mSearchRanks) {
+            searchRank.close();
+        }
+        mConnection.close();
+        mDatabaseFile.delete();
+        new File(mDatabaseFile.getAbsolutePath() + "-wal").delete();
+        new File(mDatabaseFile.getAbsolutePath() + "-shm").delete();
+    }
+
+    /**
+     * Load the first results, as the initial load of the search results does
+     */
+    @Benchmark
+    public SearchKey searchFirstPage() throws SQLException {
+        return loadPage(SearchKey.FIRST, INITIAL_LOAD_SIZE);
+    }
+
+    /**
+     * Load the last page of the results, which reads from the last rank with results
+     */
+    @Benchmark
+    public SearchKey searchLastPage() throws SQLException {
+        return loadPage(mLastPageKey, PAGE_SIZE);
+    }
+
+    /**
+     * Load up to loadSize results after the key, one rank after the other, the way
+     * MovieSearchDataSource does. Returns the key of the last result, or null without results.
+     */
+    private SearchKey loadPage(SearchKey key, int loadSize) throws SQLException {
+        SearchKey lastKey = null;
+        int count = 0;
+        int rank = key.mRank;
+        String afterTitle = key.mTitle;
+        int afterMovieId = key.mMovieId;
+        while (rank < mSearchRanks.length && count < loadSize) {
+            PreparedStatement searchRank = mSearchRanks[rank];
+            searchRank.setString(3, afterTitle);
+            searchRank.setInt(4, afterMovieId);
+            searchRank.setInt(5, loadSize - count);
+            try (ResultSet resultSet = searchRank.executeQuery()) {
+                while (resultSet.next()) {
+                    lastKey = new SearchKey(rank, resultSet.getString(3), resultSet.getInt(1));
+                    count++;
+                }
+            }
+            rank++;
+            afterTitle = SearchKey.FIRST.mTitle;
+            afterMovieId = SearchKey.FIRST.mMovieId;
+        }
+        return lastKey;
+    }
+
+    /**
+     * Returns the FTS4 query of the text, the same way MovieRepository.toMatchQuery builds it
+     */
+    private static String toMatchQuery(String text, String column) {
+        StringBuilder matchQuery = new StringBuilder();
+        for (String token : text.split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (matchQuery.length() > 0) {
+                matchQuery.append(' ');
+            }
+            if (column != null) {
+                matchQuery.append(column).append(':');
+            }
+            matchQuery.append(token).append('*');
+        }
+        return matchQuery.toString();
+    }
+
+    /**
+     * Create the FTS4 table and sync triggers the same way MovieDatabase.MIGRATION_4_5 does
+     */
+    private static void createFtsTable(Statement statement, String ftsTable, String contentTable)
+            throws SQLException {
+        statement.execute("CREATE VIRTUAL TABLE IF NOT EXISTS `" + ftsTable + "` USING FTS4("
+                + "`title` TEXT, `original_title` TEXT, `overview` TEXT, "
+                + "content=`" + contentTable + "`)");
+        String triggerPrefix = "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_" + ftsTable;
+        String deleteRow = "DELETE FROM `" + ftsTable + "` WHERE `docid`=OLD.`rowid`; END";
+        String insertRow = "INSERT INTO `" + ftsTable + "`(`docid`, `title`, `original_title`, "
+                + "`overview`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`original_title`, "
+                + "NEW.`overview`); END";
+        statement.execute(triggerPrefix + "_BEFORE_UPDATE BEFORE UPDATE ON `" + contentTable
+                + "` BEGIN " + deleteRow);
+        statement.execute(triggerPrefix + "_BEFORE_DELETE BEFORE DELETE ON `" + contentTable
+                + "` BEGIN " + deleteRow);
+        statement.execute(triggerPrefix + "_AFTER_UPDATE AFTER UPDATE ON `" + contentTable
+                + "` BEGIN " + insertRow);
+        statement.execute(triggerPrefix + "_AFTER_INSERT AFTER INSERT ON `" + contentTable
+                + "` BEGIN " + insertRow);
+    }
+
+    /**
+     * Returns the common words followed by random words, so that most titles are unique
+     */
+    private static String[] createVocabulary(Random random) {
+        String[] vocabulary = new String[COMMON_WORDS.length + RANDOM_WORD_COUNT];
+        System.arraycopy(COMMON_WORDS, 0, vocabulary, 0, COMMON_WORDS.length);
+        for (int i = COMMON_WORDS.length; i < vocabulary.length; i++) {
+            int length = 4 + random.nextInt(6);
+            StringBuilder word = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            vocabulary[i] = word.toString();
+        }
+        return vocabulary;
+    }
+
+    private static String words(Random random, String[] vocabulary, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(' ');
+            }
+            // Pick common words a tenth of the time
+            words.append(random.nextInt(10) == 0
+                    ? COMMON_WORDS[random.nextInt(COMMON_WORDS.length)]
+                    : vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return words.toString();
+    }
+
+    /**
+     * The key of a search result, as in MovieSearchDataSource.Key
+     */
+    public static final class SearchKey {
+
+        static final SearchKey FIRST = new SearchKey(0, "", Integer.MIN_VALUE);
+
+        final int mRank;
+        final String mTitle;
+        final int mMovieId;
+
+        SearchKey(int rank, String title, int movieId) {
+            mRank = rank;
+            mTitle = title == null ? "" : title;
+            mMovieId = movieId;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2018 Soojeong Shin
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.example.android.popularmovies.benchmark;
+
+import com.example.android.popularmovies.model.MovieDetails;
+import com.example.android.popularmovies.model.MovieResponse;
+import com.example.android.popularmovies.utilities.Controller;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Measures how long it takes to parse TMDb payloads, and how much is allocated per parse, through
+ * the same path GsonResponseBodyConverter uses: {@link Gson#getAdapter} and {@link Gson#newJsonReader}.
+ * <p>
+ * The "controller" configuration is the Gson built by {@link Controller#createGson()}, and the
+ * "reflective" configuration is a default Gson, which is what Retrofit used before the streaming
+ * TypeAdapters were added.
+ * <p>
+ * Run with: ./gradlew :benchmark:jmh
+ */
+@State(Scope.Benchmark)
+public class TmdbParsingBenchmark {
+
+    /** Recorded-shape response of /movie/popular?page=1 */
+    private static final String FIXTURE_POPULAR_PAGE = "/fixtures/movie_popular_page1.json";
+
+    /** Recorded-shape response of /movie/{id}?append_to_response=credits,videos,reviews */
+    private static final String FIXTURE_DETAILS = "/fixtures/movie_details_credits_videos_reviews.json";
+
+    private static final String GSON_CONTROLLER = "controller";
+    private static final String GSON_REFLECTIVE = "reflective";
+
+    @Param({GSON_CONTROLLER, GSON_REFLECTIVE})
+    public String gsonConfig;
+
+    private Gson mGson;
+    private TypeAdapter<MovieResponse> mMovieResponseAdapter;
+    private TypeAdapter<MovieDetails> mMovieDetailsAdapter;
+    private String mPopularPageJson;
+    private String mDetailsJson;
+
+    @Setup
+    public void setup() throws IOException {
+        mGson = GSON_CONTROLLER.equals(gsonConfig) ? Controller.createGson() : new Gson();
+        mMovieResponseAdapter = mGson.getAdapter(MovieResponse.class);
+        mMovieDetailsAdapter = mGson.getAdapter(MovieDetails.class);
+        mPopularPageJson = readFixture(FIXTURE_POPULAR_PAGE);
+        mDetailsJson = readFixture(FIXTURE_DETAILS);
+    }
+
+    @Benchmark
+    public MovieResponse parsePopularPage() throws IOException {
+        return mMovieResponseAdapter.read(mGson.newJsonReader(new StringReader(mPopularPageJson)));
+    }
+
+    @Benchmark
+    public MovieDetails parseDetailsWithCreditsVideosReviews() throws IOException {
+        return mMovieDetailsAdapter.read(mGson.newJsonReader(new StringReader(mDetailsJson)));
+    }
+
+    private static String readFixture(String name) throws IOException {
+        try (InputStream in = TmdbParsingBenchmark.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}